@@ -0,0 +1,133 @@
+package mines;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/* Saves and loads games in a compact binary format: a 40-byte header followed by the
+cells, two per byte. Only the state of a cell is stored (1 = mine, 2 = opened,
+4 = flagged), in the low nibble for even and the high nibble for odd row-major
+indices; adjacent-mine counts are recomputed on load. All numbers are big-endian.
+
+    offset  size  field
+         0     4  magic "MINE"
+         4     2  format version, 1
+         6     2  Topology code, 0 for the square board
+         8     4  height
+        12     4  width
+        16     8  seed of the board's MineGenerator
+        24     4  number of mines
+        28     4  number of opened cells
+        32     4  number of flagged cells
+        36     4  mines still to be placed on the first click, 0 once placed
+        40        cells, (height * width + 1) / 2 bytes
+
+Saving streams the cells through a small buffer, so no copy of the board is built.
+Loading maps the file (see MappedBoard), so a huge board can be inspected, or resumed
+and played, in place without reading it onto the heap. */
+public final class BoardFile {
+	static final int MAGIC = 0x4D494E45; // "MINE"
+	static final short VERSION = 1;
+	static final int HEADER = 40; // Bytes before the first cell
+	private static final int BUFFER = 1 << 16; // Bytes written at a time
+
+	private BoardFile() {
+	}
+
+	/*
+	 * Writes a game to a file, replacing it if it exists. The game is written to a
+	 * temporary file next to it first and then renamed, so a failed or interrupted
+	 * save leaves the old file as it was. board: The board to save. seed: The seed
+	 * of the board's MineGenerator. minesToPlace: Mines still to be placed on the
+	 * first click. path: The file to write.
+	 */
+	public static void save(MinesLogic board, long seed, int minesToPlace, Path path) throws IOException {
+		replace(path, out -> write(board, seed, minesToPlace, out));
+	}
+
+	/*
+	 * Writes a game played in place on a mapped save to a file, replacing it if it
+	 * exists, the file it was mapped from included, in the same safe way. board:
+	 * The board to save. path: The file to write.
+	 */
+	public static void save(MappedBoard board, Path path) throws IOException {
+		replace(path, board::write);
+	}
+
+	/* Writes the contents of a file. */
+	private interface Writer {
+		void write(FileChannel out) throws IOException;
+	}
+
+	/* Writes a temporary file next to a file and renames it over the file. */
+	private static void replace(Path path, Writer writer) throws IOException {
+		Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+		try {
+			try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING)) {
+				writer.write(out);
+			}
+			Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temp);// Only still there if the save failed
+		}
+	}
+
+	private static void write(MinesLogic board, long seed, int minesToPlace, FileChannel out) throws IOException {
+		int height = board.getHeight(), width = board.getWidth(), cells = height * width;
+		ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER);
+		buffer.putInt(MAGIC).putShort(VERSION).putShort((short) board.getTopology().getCode());
+		buffer.putInt(height).putInt(width).putLong(seed);
+		buffer.putInt(board.getNumMines()).putInt(cells - board.getNumMines() - board.getRemainingSafeCells());
+		buffer.putInt(board.getFlagsPlaced()).putInt(minesToPlace);
+		for (int index = 0; index < cells; index += 2) {
+			int low = board.stateBits(index);
+			int high = index + 1 < cells ? board.stateBits(index + 1) : 0;
+			buffer.put((byte) (low | high << 4));
+			if (!buffer.hasRemaining()) {
+				write(out, buffer);
+			}
+		}
+		write(out, buffer);
+	}
+
+	private static void write(FileChannel out, ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining())
+			out.write(buffer);
+		buffer.clear();
+	}
+
+	/*
+	 * Reads a saved game into a new board. path: The file to read. Throws
+	 * IOException if the file is not a valid save or the board does not fit in a
+	 * MinesLogic or the free heap; use map() to read those in place.
+	 */
+	public static MinesLogic load(Path path) throws IOException {
+		try (MappedBoard mapped = map(path)) {
+			return mapped.toMinesLogic();
+		}
+	}
+
+	/*
+	 * Maps a saved game for reading in place. path: The file to map. Throws
+	 * IOException if the file is not a valid save.
+	 */
+	public static MappedBoard map(Path path) throws IOException {
+		return new MappedBoard(path, false);
+	}
+
+	/*
+	 * Maps a saved game privately, to be played in place: moves change the mapping
+	 * only, until the game is saved with save(MappedBoard, Path). Only the header is
+	 * read up front. path: The file to map, which must be writable. Throws
+	 * IOException if the file is not a valid save.
+	 */
+	public static MappedBoard resume(Path path) throws IOException {
+		return new MappedBoard(path, true);
+	}
+}
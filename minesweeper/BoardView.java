@@ -0,0 +1,55 @@
+package mines;
+
+import javafx.scene.Node;
+import javafx.scene.input.MouseButton;
+
+/* A renderer that displays a MinesLogic board and reports clicks on its cells.
+The Controller talks to the board display only through this interface, so the
+button grid and the canvas renderer can be swapped and benchmarked against each other. */
+public interface BoardView {
+
+	/* Receives clicks on board cells. */
+	@FunctionalInterface
+	interface CellClickHandler {
+		/*
+		 * Called when a cell is clicked. row: The row index of the cell. col: The
+		 * column index of the cell. button: The mouse button that was clicked.
+		 */
+		void cellClicked(int row, int col, MouseButton button);
+	}
+
+	/* Returns the node to place in the scene graph. */
+	Node getNode();
+
+	/*
+	 * Shows a new board, rebuilding whatever the view keeps per board. mines: The
+	 * board to display.
+	 */
+	void setBoard(MinesLogic mines);
+
+	/* Repaints every cell of the board. Returns the number of cells painted. */
+	int drawBoard();
+
+	/*
+	 * Repaints the cells listed in a change set; the caller clears the set
+	 * afterwards. changes: The cells to repaint, never one that reports isAll().
+	 * Returns the number of cells painted.
+	 */
+	int drawChanges(ChangeSet changes);
+
+	/*
+	 * Shows mine probabilities over the covered cells and repaints the board, or
+	 * removes them when null. probabilities: One entry per cell in row-major order,
+	 * as computed by MineProbabilities.
+	 */
+	void showHints(double[] probabilities);
+
+	/* Sets the handler that is called when a cell is clicked. */
+	void setOnCellClick(CellClickHandler handler);
+
+	/* Returns the width the view would like to have for the current board. */
+	double getPrefBoardWidth();
+
+	/* Returns the height the view would like to have for the current board. */
+	double getPrefBoardHeight();
+}
@@ -0,0 +1,357 @@
+package mines;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/* A headless entry point for bots, next to RunMineFX for people. It plays one board at
+a time over stdin and stdout with a line-based protocol: every line the bot writes is
+one message, answered by exactly one line. A message may carry any number of moves, and
+the answer lists only the cells whose state the bot has not seen yet, so a bot never
+has to parse the whole board after every move. Answers are buffered and only flushed
+when no further message is already waiting on stdin, so a bot that writes many
+messages before reading the answers gets them in a few large writes.
+
+    java -cp <classes> mines.BotMain
+
+Messages, with numbers separated by single or repeated spaces:
+
+    N rows cols mines [seed]   new board, mines placed around the first opened cell
+                               -> N rows cols mines
+    O row col / F row col ...  opens cells / toggles flags, in order, in one message
+                               -> P|W|L count row col state row col state ...
+    V                          the whole board -> V row/row/... with one state per cell
+    Q                          quit
+
+P, W and L tell whether the game is still being played, won or lost; moves after the
+game ended are ignored. Cell states are the CellState codes, 0-8 for an opened cell
+with that many adjacent mines, 9 covered, 10 flagged and 11 a mine; in V answers they
+are written one character per cell as 0-8, '.', 'F' and 'X'. Malformed messages are
+answered with E and a reason and change nothing, even when only a later move of the
+message is bad. Messages longer than 16 MB are answered with E message too long. */
+public class BotMain {
+	private static final String VIEW_CHARS = "012345678.FX"; // One character per CellState code
+	private static final int MAX_LINE = 1 << 24; // Longest message, in bytes
+
+	private final InputStream in;
+	private final Output out;
+	private byte[] line = new byte[1 << 16]; // The message being parsed, grown up to MAX_LINE
+	private int length, pos; // Length of the message and the parse position in it
+	private boolean tooLong; // Whether the message was cut at MAX_LINE
+	private int moveRow, moveCol; // Cell of the move last parsed by nextMove()
+
+	private MinesLogic board;
+	private MineGenerator generator;
+	private int minesToPlace; // Mines still to be placed on the first open, 0 once placed
+	private boolean over; // Whether the game was won or lost
+	private byte[] seen; // The state of each cell as last sent to the bot
+	private int[] sent; // Cells listed in the current answer, to send each once
+
+	BotMain(InputStream in, OutputStream out) {
+		this.in = in;
+		this.out = new Output(out);
+	}
+
+	public static void main(String[] args) throws IOException {
+		// Raw file descriptors: System.out may flush on every line
+		BotMain bot = new BotMain(new BufferedInputStream(new FileInputStream(FileDescriptor.in), 1 << 16),
+				new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 1 << 16));
+		bot.run();
+	}
+
+	/* Answers messages until the input ends or a Q message. */
+	void run() throws IOException {
+		try {
+			while (readLine()) {
+				if (!answer())
+					break;
+				out.newLine();
+				if (in.available() == 0)
+					out.flush();// The bot may be waiting for the answers so far
+			}
+		} finally {
+			out.flush();
+		}
+	}
+
+	/* Answers one message. Returns false for a Q message. */
+	private boolean answer() throws IOException {
+		if (tooLong) {
+			out.text("E message too long");
+			return true;
+		}
+		pos = 0;
+		skipSpaces();
+		if (pos == length) {
+			out.text("E empty message");
+			return true;
+		}
+		char command = (char) line[pos++];
+		try {
+			switch (command) {
+			case 'N' -> newBoard();
+			case 'O', 'F' -> {
+				pos--;
+				moves();
+			}
+			case 'V' -> view();
+			case 'Q' -> {
+				return false;
+			}
+			default -> out.text("E unknown command ").text(String.valueOf(command));
+			}
+		} catch (IllegalArgumentException e) {
+			out.reset();
+			out.text("E ").text(e.getMessage());
+		}
+		return true;
+	}
+
+	/* N rows cols mines [seed] */
+	private void newBoard() {
+		int rows = number(), cols = number(), mines = number();
+		skipSpaces();
+		long seed = pos < length ? longNumber() : System.nanoTime();
+		if (rows <= 0 || cols <= 0 || (long) rows * cols > Integer.MAX_VALUE - 8)
+			throw new IllegalArgumentException("bad board size");
+		if (mines < 0 || mines >= rows * cols)
+			throw new IllegalArgumentException("mines must be less than the number of cells");
+		board = new MinesLogic(rows, cols, 0);
+		board.trackChanges();// Replies list the cells a message changed
+		generator = new MineGenerator(seed);
+		minesToPlace = mines;
+		over = false;
+		seen = new byte[rows * cols];
+		Arrays.fill(seen, CellState.HIDDEN);
+		sent = new int[16];
+		out.text("N ").number(rows).space().number(cols).space().number(mines);
+	}
+
+	/* O row col / F row col, any number of times. */
+	private void moves() {
+		if (board == null)
+			throw new IllegalArgumentException("no board, send N first");
+		ChangeSet changes = board.getChanges();
+		// Check every move before making any, so a bad message changes nothing
+		skipSpaces();
+		int start = pos;
+		while (pos < length)
+			nextMove();
+		pos = start;
+		while (pos < length) {
+			char move = nextMove();
+			if (over)
+				continue;
+			if (move == 'F') {
+				board.toggleFlag(moveRow, moveCol);
+				continue;
+			}
+			if (minesToPlace > 0) {// The first open is always safe
+				generator.place(board, minesToPlace, moveRow, moveCol);
+				minesToPlace = 0;
+				changes.clear();// Placing mines changes nothing the bot can see
+			}
+			if (!board.open(moveRow, moveCol))
+				over = true;
+			else if (board.isDone())
+				over = true;
+		}
+		char status = !over ? 'P' : board.isDone() ? 'W' : 'L';
+		int count = changed(changes);
+		changes.clear();
+		out.text(String.valueOf(status)).space().number(count);
+		for (int k = 0; k < count; k++) {
+			int index = sent[k], width = board.getWidth();
+			out.space().number(index / width).space().number(index % width).space().number(seen[index]);
+		}
+	}
+
+	/*
+	 * Parses the next move of the message into moveRow and moveCol. Returns the
+	 * move, O or F. Throws IllegalArgumentException for a bad move or a cell
+	 * outside the board.
+	 */
+	private char nextMove() {
+		char move = (char) line[pos++];
+		moveRow = number();
+		moveCol = number();
+		if (move != 'O' && move != 'F')
+			throw new IllegalArgumentException("unknown move " + move);
+		if (moveRow < 0 || moveCol < 0 || moveRow >= board.getHeight() || moveCol >= board.getWidth())
+			throw new IllegalArgumentException("cell outside the board: " + moveRow + " " + moveCol);
+		skipSpaces();
+		return move;
+	}
+
+	/*
+	 * Collects in sent the cells whose state differs from what the bot has seen,
+	 * and records their new state. Returns the number of such cells.
+	 */
+	private int changed(ChangeSet changes) {
+		int count = 0;
+		if (changes.isAll()) {
+			for (int index = 0; index < seen.length; index++)
+				count = check(index, count);
+		} else {
+			for (int k = 0; k < changes.size(); k++)
+				count = check(changes.index(k), count);
+		}
+		return count;
+	}
+
+	private int check(int index, int count) {
+		int width = board.getWidth();
+		byte state = board.state(index / width, index % width);
+		if (state == seen[index])
+			return count;// Unchanged, or already listed in this answer
+		seen[index] = state;
+		if (count == sent.length)
+			sent = Arrays.copyOf(sent, count * 2);
+		sent[count] = index;
+		return count + 1;
+	}
+
+	/* V */
+	private void view() {
+		if (board == null)
+			throw new IllegalArgumentException("no board, send N first");
+		int rows = board.getHeight(), cols = board.getWidth();
+		byte[] row = new byte[cols];
+		out.text("V ");
+		for (int r = 0; r < rows; r++) {
+			if (r > 0)
+				out.text("/");
+			board.readRow(r, row, 0);
+			for (int c = 0; c < cols; c++) {
+				seen[r * cols + c] = row[c];// Sent in full, so nothing is pending
+				out.character(VIEW_CHARS.charAt(row[c]));
+			}
+		}
+	}
+
+	/*
+	 * Reads the next line into line, growing it as needed. A line longer than
+	 * MAX_LINE is read to its end but not kept, and sets tooLong. Returns false at
+	 * the end of the input.
+	 */
+	private boolean readLine() throws IOException {
+		length = 0;
+		tooLong = false;
+		int b;
+		while ((b = in.read()) != -1 && b != '\n') {
+			if (length == line.length) {
+				if (length == MAX_LINE) {
+					tooLong = true;
+					continue;// Skip to the end of the line
+				}
+				line = Arrays.copyOf(line, Math.min(length * 2, MAX_LINE));
+			}
+			line[length++] = (byte) b;
+		}
+		if (length > 0 && line[length - 1] == '\r')
+			length--;
+		return b != -1 || length > 0;
+	}
+
+	private void skipSpaces() {
+		while (pos < length && line[pos] == ' ')
+			pos++;
+	}
+
+	/* Parses the next number of the message, which has to fit in an int. */
+	private int number() {
+		int start = pos;
+		long value = longNumber();
+		if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("number too large at position " + start);
+		return (int) value;
+	}
+
+	/* Parses the next number of the message. */
+	private long longNumber() {
+		skipSpaces();
+		int start = pos;
+		boolean negative = pos < length && line[pos] == '-';
+		if (negative)
+			pos++;
+		int digits = pos;
+		long value = 0;
+		while (pos < length && line[pos] >= '0' && line[pos] <= '9') {
+			if (value > (Long.MAX_VALUE - 9) / 10)
+				throw new IllegalArgumentException("number too large at position " + start);
+			value = value * 10 + (line[pos++] - '0');
+		}
+		if (pos == digits || (pos < length && line[pos] != ' '))
+			throw new IllegalArgumentException("bad number at position " + start);
+		return negative ? -value : value;
+	}
+
+	/*
+	 * Writes the answer being built into a byte buffer, which goes to the stream
+	 * when it fills up or is flushed, so an answer can still be replaced by an
+	 * error until newLine().
+	 */
+	private static final class Output {
+		private final OutputStream out;
+		private byte[] buffer = new byte[1 << 16];
+		private int size, mark; // Bytes in the buffer and the start of the current answer
+
+		Output(OutputStream out) {
+			this.out = out;
+		}
+
+		Output text(String s) {
+			for (int i = 0; i < s.length(); i++)
+				character(s.charAt(i));
+			return this;
+		}
+
+		Output character(char c) {
+			if (size == buffer.length)
+				buffer = Arrays.copyOf(buffer, size * 2);
+			buffer[size++] = (byte) c;
+			return this;
+		}
+
+		Output space() {
+			return character(' ');
+		}
+
+		Output number(int value) {
+			if (value < 0) {
+				character('-');
+				value = -value;
+			}
+			if (value >= 10)
+				number(value / 10);
+			return character((char) ('0' + value % 10));
+		}
+
+		/* Drops the answer being built. */
+		void reset() {
+			size = mark;
+		}
+
+		/* Ends the current answer, writing the buffer out once it is large. */
+		void newLine() throws IOException {
+			character('\n');
+			mark = size;
+			if (size >= 1 << 16) {
+				out.write(buffer, 0, size);
+				size = mark = 0;
+			}
+		}
+
+		void flush() throws IOException {
+			out.write(buffer, 0, size);
+			size = mark = 0;
+			out.flush();
+		}
+	}
+}
@@ -0,0 +1,179 @@
+package mines;
+
+import javafx.scene.Node;
+import javafx.scene.control.Button;
+import javafx.scene.image.ImageView;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.layout.ColumnConstraints;
+import javafx.scene.layout.GridPane;
+import javafx.scene.layout.RowConstraints;
+
+/* Displays the board as a GridPane holding one Button per cell.
+Simple and accessible, but the scene graph grows with the number of cells. On
+hexagonal boards the grid has two half-width columns per cell and every odd row
+starts one of them later, so each button touches the six cells that are its neighbours. */
+public class ButtonBoardView implements BoardView {
+	// Style of each CellState: the text colour of the numbers 1-8, none for the others
+	private static final String[] TEXT_STYLES = { "", "-fx-text-fill: blue;", "-fx-text-fill: green;",
+			"-fx-text-fill: red;", "-fx-text-fill: navy;", "-fx-text-fill: maroon;", "-fx-text-fill: teal;",
+			"-fx-text-fill: black;", "-fx-text-fill: gray;", "", "", "" };
+
+	private final GridPane g; // GridPane to display the game board
+	private MinesLogic mines; // The board being displayed
+	private Button[][] buttons; // Array of buttons representing the game cells
+	private CellClickHandler handler; // Called when a cell is clicked
+	private double[] hints; // Mine probability of each cell shown over covered cells, or null
+	private double cellSize = 40;// Cell button size
+
+	/* Creates a view that fills the given grid. g: The GridPane to display the board in. */
+	public ButtonBoardView(GridPane g) {
+		this.g = g;
+	}
+
+	@Override
+	public Node getNode() {
+		return g;
+	}
+
+	@Override
+	public void setBoard(MinesLogic mines) {
+		this.mines = mines;
+		this.hints = null;
+		int rows = mines.getHeight();
+		int cols = mines.getWidth();
+		boolean hex = mines.getTopology().isHex();
+		buttons = new Button[rows][cols];
+
+		// Adjust grid properties for even button spacing
+		g.getColumnConstraints().clear();
+		g.getRowConstraints().clear();
+
+		// Clear any existing buttons from the GridPane
+		g.getChildren().clear();
+
+		// Set up fixed-size rows and columns, half a cell wide on hexagonal boards
+		double columnWidth = hex ? cellSize / 2 : cellSize;
+		for (int i = 0; i < (hex ? 2 * cols + 1 : cols); i++) {
+			ColumnConstraints column = new ColumnConstraints();
+			column.setMinWidth(columnWidth); // Set fixed width for each column (adjust as needed)
+			column.setMaxWidth(columnWidth);
+			g.getColumnConstraints().add(column);
+		}
+
+		for (int i = 0; i < rows; i++) {
+			RowConstraints row = new RowConstraints();
+			row.setMinHeight(cellSize); // Set fixed height for each row (adjust as needed)
+			row.setMaxHeight(cellSize);
+			g.getRowConstraints().add(row);
+		}
+
+		// Create buttons for each cell and add them to the GridPane
+		for (int i = 0; i < rows; i++) {
+			for (int j = 0; j < cols; j++) {
+				// Create a button
+				Button b = new Button(".");
+				b.setPrefSize(cellSize, cellSize);// Set button size
+				b.setUserData(new int[] { i, j });// Store cell coordinates
+				b.setOnMouseClicked(this::handleCellClick);// Handle cell clicks
+				buttons[i][j] = b;
+				if (hex)
+					g.add(b, 2 * j + (i & 1), i, 2, 1); // Two half columns, odd rows one later
+				else
+					g.add(b, j, i); // Add the label at column 'j', row 'i'
+			}
+		}
+	}
+
+	@Override
+	public int drawBoard() {
+		if (buttons == null || mines == null)
+			return 0;
+		int rows = buttons.length;
+		int cols = buttons[0].length;
+		for (int r = 0; r < rows; r++) {
+			for (int c = 0; c < cols; c++) {
+				drawCell(r, c);
+			}
+		}
+		return rows * cols;
+	}
+
+	@Override
+	public int drawChanges(ChangeSet changes) {
+		for (int k = 0; k < changes.size(); k++) {
+			drawCell(changes.row(k), changes.col(k));
+		}
+		return changes.size();
+	}
+
+	@Override
+	public void showHints(double[] probabilities) {
+		hints = probabilities;
+		drawBoard();
+	}
+
+	@Override
+	public void setOnCellClick(CellClickHandler handler) {
+		this.handler = handler;
+	}
+
+	@Override
+	public double getPrefBoardWidth() {
+		if (buttons == null)
+			return 0;
+		return (buttons[0].length + (mines.getTopology().isHex() ? 0.5 : 0)) * cellSize;
+	}
+
+	@Override
+	public double getPrefBoardHeight() {
+		return buttons == null ? 0 : buttons.length * cellSize;
+	}
+
+	/*
+	 * Forwards a click on a cell button to the handler. e: The mouse event
+	 * triggered by clicking a cell.
+	 */
+	private void handleCellClick(MouseEvent e) {
+		Button b = (Button) e.getSource();
+		int[] rc = (int[]) b.getUserData();
+		if (handler != null)
+			handler.cellClicked(rc[0], rc[1], e.getButton());
+	}
+
+	/*
+	 * Sets and returns a graphical icon for flags or mines. state: The CellState
+	 * of the cell, FLAGGED or MINE. Returns an ImageView with the specified graphic.
+	 */
+	private ImageView setGrapich(byte state) {
+		// The image itself is shared, only the lightweight view is created per cell
+		if (state == CellState.FLAGGED) {
+			return ImageCache.view(ImageCache.FLAG, 15);
+		}
+		return ImageCache.view(ImageCache.MINE, 15);
+	}
+
+	/*
+	 * Updates the button of a single cell. r: The row index of the cell. c: The
+	 * column index of the cell.
+	 */
+	private void drawCell(int r, int c) {
+		byte cell = mines.state(r, c);
+		Button btn = buttons[r][c];
+		btn.setText("");
+		if (cell == CellState.FLAGGED || cell == CellState.MINE) {
+			btn.setGraphic(setGrapich(cell));
+		} else {
+			btn.setGraphic(null);
+			btn.setText(CellState.toText(cell));
+		}
+		btn.setStyle(TEXT_STYLES[cell]);// Set text color based on the number of mines
+		if (hints != null && CellState.isCovered(cell)) {
+			// Tint from green (surely safe) to red (surely a mine) and show the percentage
+			double p = hints[r * buttons[0].length + c];
+			btn.setStyle(String.format("-fx-background-color: hsb(%.0f, 45%%, 100%%); -fx-font-size: 9px;",
+					120 * (1 - p)));
+			if (cell == CellState.HIDDEN)
+				btn.setText(Math.round(p * 100) + "%");
+		}
+	}
+}
@@ -0,0 +1,271 @@
+package mines;
+
+import javafx.geometry.Orientation;
+import javafx.geometry.VPos;
+import javafx.scene.Node;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.ScrollBar;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.FontWeight;
+import javafx.scene.text.TextAlignment;
+
+/* Displays the board by painting the visible part of it onto a single Canvas.
+Only the cells inside the viewport are ever drawn, so the cost of the view does not
+grow with the size of the board. The viewport scrolls with the scroll bars or the
+mouse wheel (shift for horizontal) and zooms with ctrl + mouse wheel. On hexagonal
+boards every odd row is drawn half a cell to the right, so each cell touches the six
+cells that are its neighbours. */
+public class CanvasBoardView extends Region implements BoardView {
+	private static final double MIN_CELL = 8, MAX_CELL = 80; // Zoom limits, in pixels per cell
+	private static final double MAX_PREF = 900; // Largest size the view asks for
+	private static final Color[] NUMBER_COLORS = { Color.BLACK, Color.BLUE, Color.GREEN, Color.RED,
+			Color.NAVY, Color.MAROON, Color.TEAL, Color.BLACK, Color.GRAY };
+
+	private final Canvas canvas = new Canvas(); // Paints the visible cells, sized to the viewport
+	private final ScrollBar hBar = new ScrollBar(); // Horizontal scroll position, in pixels
+	private final ScrollBar vBar = new ScrollBar(); // Vertical scroll position, in pixels
+	private MinesLogic mines; // The board being displayed
+	private CellClickHandler handler; // Called when a cell is clicked
+	private double[] hints; // Mine probability of each cell shown over covered cells, or null
+	private double cellSize = 40; // Current zoom, in pixels per cell
+
+	private CanvasBoardView() {
+		vBar.setOrientation(Orientation.VERTICAL);
+	}
+
+	/*
+	 * Creates an empty canvas view. The view adds its children and listeners only
+	 * once it is fully constructed, so none of them can see it half built.
+	 */
+	public static CanvasBoardView create() {
+		CanvasBoardView view = new CanvasBoardView();
+		view.attach();
+		return view;
+	}
+
+	/* Adds the canvas and the scroll bars and starts listening to them. */
+	private void attach() {
+		hBar.valueProperty().addListener((observable, oldValue, newValue) -> paint());
+		vBar.valueProperty().addListener((observable, oldValue, newValue) -> paint());
+		getChildren().addAll(canvas, hBar, vBar);
+
+		canvas.setOnMouseClicked(this::handleClick);
+		setOnScroll(this::handleScroll);
+	}
+
+	@Override
+	public Node getNode() {
+		return this;
+	}
+
+	@Override
+	public void setBoard(MinesLogic mines) {
+		this.mines = mines;
+		this.hints = null;
+		hBar.setValue(0);
+		vBar.setValue(0);
+		requestLayout();
+	}
+
+	@Override
+	public int drawBoard() {
+		return paint();
+	}
+
+	@Override
+	public int drawChanges(ChangeSet changes) {
+		if (mines == null)
+			return 0;
+		GraphicsContext gc = canvas.getGraphicsContext2D();
+		int painted = 0;
+		for (int k = 0; k < changes.size(); k++) {
+			int r = changes.row(k), c = changes.col(k);
+			double x = c * cellSize + rowShift(r) - hBar.getValue(), y = r * cellSize - vBar.getValue();
+			// Cells outside the viewport are painted when they scroll into view
+			if (x + cellSize > 0 && y + cellSize > 0 && x < canvas.getWidth() && y < canvas.getHeight()) {
+				paintCell(gc, r, c, x, y);
+				painted++;
+			}
+		}
+		return painted;
+	}
+
+	@Override
+	public void showHints(double[] probabilities) {
+		hints = probabilities;
+		paint();
+	}
+
+	@Override
+	public void setOnCellClick(CellClickHandler handler) {
+		this.handler = handler;
+	}
+
+	@Override
+	public double getPrefBoardWidth() {
+		return mines == null ? 0 : Math.min(boardWidth(), MAX_PREF);
+	}
+
+	@Override
+	public double getPrefBoardHeight() {
+		return mines == null ? 0 : Math.min(mines.getHeight() * cellSize, MAX_PREF);
+	}
+
+	@Override
+	protected double computePrefWidth(double height) {
+		return getPrefBoardWidth() + vBar.prefWidth(-1);
+	}
+
+	@Override
+	protected double computePrefHeight(double width) {
+		return getPrefBoardHeight() + hBar.prefHeight(-1);
+	}
+
+	@Override
+	protected void layoutChildren() {
+		double barW = vBar.prefWidth(-1), barH = hBar.prefHeight(-1);
+		double w = Math.max(getWidth() - barW, 0), h = Math.max(getHeight() - barH, 0);
+		canvas.setWidth(w);
+		canvas.setHeight(h);
+		hBar.resizeRelocate(0, h, w, barH);
+		vBar.resizeRelocate(w, 0, barW, h);
+		updateScrollBars();
+		paint();
+	}
+
+	/* Fits the scroll bar ranges to the board size and the viewport. */
+	private void updateScrollBars() {
+		double boardW = mines == null ? 0 : boardWidth();
+		double boardH = mines == null ? 0 : mines.getHeight() * cellSize;
+		setRange(hBar, boardW, canvas.getWidth());
+		setRange(vBar, boardH, canvas.getHeight());
+	}
+
+	/* Returns the width of the whole board in pixels, with the shifted rows of a hexagonal board. */
+	private double boardWidth() {
+		return (mines.getWidth() + (mines.getTopology().isHex() ? 0.5 : 0)) * cellSize;
+	}
+
+	/* Returns how far the cells of a row are drawn to the right: half a cell on odd hexagonal rows. */
+	private double rowShift(int row) {
+		return mines.getTopology().isHex() && (row & 1) != 0 ? cellSize / 2 : 0;
+	}
+
+	/*
+	 * Sets the range of one scroll bar. bar: The scroll bar. content: The size of
+	 * the board along the bar. view: The size of the viewport along the bar.
+	 */
+	private static void setRange(ScrollBar bar, double content, double view) {
+		double max = Math.max(content - view, 0);
+		bar.setMax(max);
+		bar.setVisibleAmount(content <= 0 ? 1 : max * view / content);
+		bar.setUnitIncrement(20);
+		bar.setBlockIncrement(view);
+		bar.setDisable(max == 0);
+		if (bar.getValue() > max)
+			bar.setValue(max);
+	}
+
+	/* Paints every cell that intersects the viewport. Returns the number of cells painted. */
+	private int paint() {
+		GraphicsContext gc = canvas.getGraphicsContext2D();
+		gc.setFill(Color.LIGHTGRAY);
+		gc.fillRect(0, 0, canvas.getWidth(), canvas.getHeight());
+		if (mines == null)
+			return 0;
+		double ox = hBar.getValue(), oy = vBar.getValue();
+		int r0 = (int) (oy / cellSize);
+		int r1 = Math.min((int) ((oy + canvas.getHeight()) / cellSize), mines.getHeight() - 1);
+		int painted = 0;
+		for (int r = r0; r <= r1; r++) {
+			double shift = rowShift(r);
+			int c0 = Math.max((int) Math.floor((ox - shift) / cellSize), 0);
+			int c1 = Math.min((int) ((ox + canvas.getWidth() - shift) / cellSize), mines.getWidth() - 1);
+			for (int c = c0; c <= c1; c++) {
+				paintCell(gc, r, c, c * cellSize + shift - ox, r * cellSize - oy);
+			}
+			painted += Math.max(c1 - c0 + 1, 0);
+		}
+		return painted;
+	}
+
+	/*
+	 * Paints a single cell. gc: The canvas graphics context. r, c: The cell
+	 * position on the board. x, y: The top-left corner of the cell on the canvas.
+	 */
+	private void paintCell(GraphicsContext gc, int r, int c, double x, double y) {
+		byte cell = mines.state(r, c);
+		boolean closed = CellState.isCovered(cell);
+		double p = closed && hints != null ? hints[r * mines.getWidth() + c] : Double.NaN;
+		// Covered cells are tinted from green (surely safe) to red (surely a mine) when hints are shown
+		gc.setFill(Double.isNaN(p) ? (closed ? Color.gray(0.82) : Color.gray(0.95)) : Color.hsb(120 * (1 - p), 0.45, 1));
+		gc.fillRect(x, y, cellSize, cellSize);
+		gc.setStroke(Color.gray(0.6));
+		gc.strokeRect(x + 0.5, y + 0.5, cellSize - 1, cellSize - 1);
+
+		double icon = Math.round(cellSize * 0.4); // Same proportion as the 15px icons on 40px buttons
+		if (cell == CellState.FLAGGED) {// Pre-scaled by the cache, so drawing does not resample
+			gc.drawImage(ImageCache.get(ImageCache.FLAG, icon), x + (cellSize - icon) / 2, y + (cellSize - icon) / 2);
+		} else if (cell == CellState.MINE) {
+			gc.drawImage(ImageCache.get(ImageCache.MINE, icon), x + (cellSize - icon) / 2, y + (cellSize - icon) / 2);
+		} else if (!Double.isNaN(p)) {
+			if (cellSize >= 24) {// Too small to read below that
+				gc.setFill(Color.BLACK);
+				gc.setFont(Font.font("System", cellSize * 0.25));
+				gc.setTextAlign(TextAlignment.CENTER);
+				gc.setTextBaseline(VPos.CENTER);
+				gc.fillText(Math.round(p * 100) + "%", x + cellSize / 2, y + cellSize / 2);
+			}
+		} else if (cell != 0) {
+			gc.setFill(CellState.isNumber(cell) ? NUMBER_COLORS[cell] : Color.BLACK);
+			gc.setFont(Font.font("System", FontWeight.BOLD, cellSize * 0.4));
+			gc.setTextAlign(TextAlignment.CENTER);
+			gc.setTextBaseline(VPos.CENTER);
+			gc.fillText(CellState.toText(cell), x + cellSize / 2, y + cellSize / 2);
+		}
+	}
+
+	/*
+	 * Maps a click on the canvas back to a cell and forwards it to the handler. e:
+	 * The mouse event triggered by clicking the canvas.
+	 */
+	private void handleClick(MouseEvent e) {
+		if (mines == null || handler == null)
+			return;
+		int row = (int) ((e.getY() + vBar.getValue()) / cellSize);
+		if (row >= mines.getHeight())
+			return;
+		int col = (int) Math.floor((e.getX() + hBar.getValue() - rowShift(row)) / cellSize);
+		if (col >= 0 && col < mines.getWidth())
+			handler.cellClicked(row, col, e.getButton());
+	}
+
+	/*
+	 * Scrolls the viewport, or zooms around the mouse pointer when ctrl is held.
+	 * e: The scroll event.
+	 */
+	private void handleScroll(ScrollEvent e) {
+		if (e.isControlDown()) {
+			double old = cellSize;
+			cellSize = Math.max(MIN_CELL, Math.min(MAX_CELL, cellSize * (e.getDeltaY() > 0 ? 1.25 : 0.8)));
+			// Keep the board point under the mouse pointer in place
+			double bx = (e.getX() + hBar.getValue()) / old, by = (e.getY() + vBar.getValue()) / old;
+			updateScrollBars();
+			hBar.setValue(Math.max(0, Math.min(hBar.getMax(), bx * cellSize - e.getX())));
+			vBar.setValue(Math.max(0, Math.min(vBar.getMax(), by * cellSize - e.getY())));
+			paint();
+		} else if (e.isShiftDown()) {
+			double delta = e.getDeltaX() != 0 ? e.getDeltaX() : e.getDeltaY();
+			hBar.setValue(Math.max(0, Math.min(hBar.getMax(), hBar.getValue() - delta)));
+		} else {
+			hBar.setValue(Math.max(0, Math.min(hBar.getMax(), hBar.getValue() - e.getDeltaX())));
+			vBar.setValue(Math.max(0, Math.min(vBar.getMax(), vBar.getValue() - e.getDeltaY())));
+		}
+		e.consume();
+	}
+}
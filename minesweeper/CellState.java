@@ -0,0 +1,38 @@
+package mines;
+
+/* Primitive codes for what a player sees in a cell, as returned by MinesLogic.state()
+and the bulk reads, so the board can be read without creating a String per cell. An
+opened cell's code is its number of adjacent mines, 0 to 8, so numbers need no
+decoding; the codes above 8 are the covered and the shown states. */
+public final class CellState {
+	public static final byte HIDDEN = 9; // Covered, not flagged
+	public static final byte FLAGGED = 10; // Covered, flagged
+	public static final byte MINE = 11; // A mine, shown after the game is over
+
+	// Text of every code, as MinesLogic.get() shows it
+	private static final String[] TEXT = { " ", "1", "2", "3", "4", "5", "6", "7", "8", ".", "F", "X" };
+	private static final String CHARS = " 12345678.FX";
+
+	private CellState() {
+	}
+
+	/* Returns true if the code is an opened cell, with its number of adjacent mines. */
+	public static boolean isNumber(int state) {
+		return state >= 0 && state <= 8;
+	}
+
+	/* Returns true if the code is a covered cell, flagged or not. */
+	public static boolean isCovered(int state) {
+		return state == HIDDEN || state == FLAGGED;
+	}
+
+	/* Returns the text MinesLogic.get() shows for a code: " ", "1"-"8", ".", "F" or "X". */
+	public static String toText(int state) {
+		return TEXT[state];
+	}
+
+	/* Returns the character toString() shows for a code. */
+	public static char toChar(int state) {
+		return CHARS.charAt(state);
+	}
+}
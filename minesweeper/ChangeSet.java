@@ -0,0 +1,86 @@
+package mines;
+
+import java.util.Arrays;
+
+/* Collects the cells changed by moves on a MinesLogic board, so a view can repaint
+only those cells instead of the whole board. A board records changes only once a view
+has asked for them with MinesLogic.trackChanges(); the set is then filled by the board
+and drained by whoever draws it: read the changed cells, then call clear(). When more
+than a quarter of the board has changed the set stops listing cells and reports
+that everything changed, since a full repaint is cheaper at that point. */
+public class ChangeSet {
+	private final int width; // Width of the board, to split indices into rows and columns
+	private final int limit; // Number of listed cells after which the whole board counts as changed
+	private int[] changed = new int[16]; // Indices of the changed cells, possibly with repeats
+	private int size; // Number of entries used in changed
+	private boolean all; // Whether every cell has to be considered changed
+
+	/*
+	 * Creates an empty change set for a board. height: The height of the board.
+	 * width: The width of the board.
+	 */
+	ChangeSet(int height, int width) {
+		this.width = width;
+		this.limit = Math.max(16, height * width / 4);
+	}
+
+	/* Records that the cell at the given index has changed. */
+	void add(int index) {
+		if (all)
+			return;
+		if (size == limit) {
+			markAll();
+			return;
+		}
+		if (size == changed.length)
+			changed = Arrays.copyOf(changed, Math.min(changed.length * 2, limit));
+		changed[size++] = index;
+	}
+
+	/* Records that every cell of the board has changed. */
+	void markAll() {
+		all = true;
+		size = 0;
+	}
+
+	/*
+	 * Returns true if every cell has to be considered changed; in that case size()
+	 * is 0 and the individual cells are not listed.
+	 */
+	public boolean isAll() {
+		return all;
+	}
+
+	/* Returns true if nothing has changed since the last clear(). */
+	public boolean isEmpty() {
+		return !all && size == 0;
+	}
+
+	/* Returns the number of listed changed cells. A cell may be listed more than once. */
+	public int size() {
+		return size;
+	}
+
+	/* Returns the row of the k-th changed cell. */
+	public int row(int k) {
+		return index(k) / width;
+	}
+
+	/* Returns the column of the k-th changed cell. */
+	public int col(int k) {
+		return index(k) % width;
+	}
+
+	/* Returns the row-major board index (row * width + col) of the k-th changed cell. */
+	public int index(int k) {
+		if (k < 0 || k >= size)
+			throw new IndexOutOfBoundsException("Change " + k + " of " + size);
+		return changed[k];
+	}
+
+	/* Forgets all recorded changes. */
+	public void clear() {
+		all = false;
+		size = 0;
+	}
+}
@@ -0,0 +1,338 @@
+package mines;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/* An unbounded Minesweeper board. Rows and columns may be any int, negative included,
+and nothing is allocated up front: cells live in 64x64 chunks created the first time a
+cell in them is needed. Whether a cell holds a mine is a hash of the seed and the cell
+position, so a chunk works out its own mines and adjacent-mine counts, border included,
+without looking at its neighbours, and always comes out the same. Chunks in which
+nothing was opened or flagged can therefore be dropped and rebuilt: they are kept in a
+small least-recently-used cache, while only touched chunks are kept for good, so memory
+grows with the explored area. Cells use the same byte layout as MinesLogic. The cells
+around (0, 0) never hold a mine, so a game can always start there. At low densities an
+empty region may never end, so one open reveals at most floodLimit cells; the rest of
+the flood is kept and continueReveal() carries on with it, a step at a time, so every
+opened empty cell's neighbours end up opened as on a finite board. */
+public class ChunkedBoard {
+	private static final int CHUNK_BITS = 6; // Chunks are 64x64 cells
+	private static final int CHUNK = 1 << CHUNK_BITS;
+	private static final int LOCAL = CHUNK - 1; // Mask of the position inside a chunk
+
+	private static final int COUNT_MASK = 0x0F; // Same layout as MinesLogic
+	private static final int MINE = 0x10;
+	private static final int OPEN = 0x20;
+	private static final int FLAG = 0x40;
+
+	private final long seed; // Decides every mine on the board
+	private final long threshold; // A cell is a mine if its 53-bit hash is below this
+	private final int floodLimit; // Most cells a single open may reveal
+	private final int cacheSize; // Untouched chunks kept before the least recently used is dropped
+
+	private final Map<Long, Chunk> touched = new HashMap<>(); // Chunks with opened or flagged cells
+	private final Map<Long, Chunk> cache; // Untouched chunks, least recently used first
+	private long lastKey = Long.MIN_VALUE; // The chunk looked up last, the common case in a flood
+	private Chunk last;
+
+	private long openCount, flagCount;
+	private boolean showAll;
+	private int[] stackRows = new int[64], stackCols = new int[64]; // Work stack of the flood fill
+	private int stackTop; // Opened empty cells on the stack whose neighbours are still to be opened
+
+	/*
+	 * Creates a board. seed: Decides where the mines are. density: The share of
+	 * cells that hold a mine, in [0, 1].
+	 */
+	public ChunkedBoard(long seed, double density) {
+		this(seed, density, 1 << 20, 1024);
+	}
+
+	/*
+	 * Creates a board. seed: Decides where the mines are. density: The share of
+	 * cells that hold a mine, in [0, 1]. floodLimit: The most cells one open or
+	 * continueReveal may reveal; at low densities empty regions never end.
+	 * cacheSize: The number of untouched chunks to keep (4 KB each).
+	 */
+	public ChunkedBoard(long seed, double density, int floodLimit, int cacheSize) {
+		if (density < 0 || density > 1)
+			throw new IllegalArgumentException("Density must be in [0, 1]: " + density);
+		this.seed = seed;
+		this.threshold = (long) (density * (1L << 53));
+		this.floodLimit = floodLimit;
+		this.cacheSize = cacheSize;
+		this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, Chunk> eldest) {
+				if (size() <= ChunkedBoard.this.cacheSize)
+					return false;
+				if (eldest.getKey() == lastKey)
+					last = null;
+				return true;
+			}
+		};
+	}
+
+	/* The cells of one 64x64 chunk in row-major order. */
+	private static final class Chunk {
+		final byte[] cells = new byte[CHUNK * CHUNK];
+		boolean touched; // Whether a cell was opened or flagged, so it cannot be rebuilt
+	}
+
+	/* Returns the seed that decides where the mines are. */
+	public long getSeed() {
+		return seed;
+	}
+
+	/*
+	 * Opens a cell at the specified position, revealing the empty region around it
+	 * up to the flood limit; continueReveal() reveals the rest. row: The row index
+	 * of the position. col: The column index of the position. Returns false if the
+	 * cell contains a mine; otherwise true.
+	 */
+	public boolean open(int row, int col) {
+		Chunk chunk = chunk(row, col);
+		int local = local(row, col);
+		int cell = chunk.cells[local];
+		if ((cell & MINE) != 0)
+			return false;
+		if ((cell & OPEN) == 0) {
+			setOpen(chunk, local, row, col);
+			if ((cell & COUNT_MASK) == 0) {
+				push(row, col);
+				continueReveal();
+			}
+		}
+		return true;
+	}
+
+	/* Returns true if an open left part of its empty region for continueReveal(). */
+	public boolean isRevealing() {
+		return stackTop > 0;
+	}
+
+	/*
+	 * Carries on with the empty regions earlier opens stopped at the flood limit,
+	 * revealing up to floodLimit more cells. Returns the number of cells opened.
+	 */
+	public int continueReveal() {
+		int opened = 0;
+		while (stackTop > 0 && opened < floodLimit) {
+			int r = stackRows[--stackTop], c = stackCols[stackTop];
+			for (int dr = -1; dr <= 1; dr++) {
+				for (int dc = -1; dc <= 1; dc++) {
+					if ((dr | dc) == 0)
+						continue;
+					if (atEdge(r, dr) || atEdge(c, dc))
+						continue;// No cells beyond the int range
+					int nr = r + dr, nc = c + dc;
+					Chunk chunk = chunk(nr, nc);
+					int local = local(nr, nc);
+					int cell = chunk.cells[local];
+					if ((cell & (OPEN | MINE)) != 0)
+						continue;
+					setOpen(chunk, local, nr, nc);
+					opened++;
+					if ((cell & COUNT_MASK) == 0)
+						push(nr, nc);
+				}
+			}
+		}
+		return opened;
+	}
+
+	/*
+	 * Toggles a flag on a cell at the specified position. row: The row index of the
+	 * position. col: The column index of the position.
+	 */
+	public void toggleFlag(int row, int col) {
+		Chunk chunk = chunk(row, col);
+		int local = local(row, col);
+		markTouched(chunk, row, col);
+		chunk.cells[local] ^= FLAG;
+		flagCount += (chunk.cells[local] & FLAG) != 0 ? 1 : -1;
+	}
+
+	/*
+	 * Retrieves the string representation of the cell at the specified position,
+	 * as MinesLogic.get does. row: The row index of the position. col: The column
+	 * index of the position.
+	 */
+	public String get(int row, int col) {
+		return CellState.toText(state(row, col));
+	}
+
+	/*
+	 * Returns what a player sees in a cell as a CellState code, as MinesLogic.state
+	 * does. row: The row index of the position. col: The column index of the
+	 * position.
+	 */
+	public byte state(int row, int col) {
+		return state(chunk(row, col).cells[local(row, col)]);
+	}
+
+	/*
+	 * Reads the CellState codes of a rectangle of cells into a caller-supplied
+	 * array, row by row, as MinesLogic.readRegion does; every cell exists, so any
+	 * rectangle within the int range can be read. row, col: The top-left cell.
+	 * rows, cols: The size of the rectangle. out: Receives rows * cols codes.
+	 * offset: Where the first code goes.
+	 */
+	public void readRegion(int row, int col, int rows, int cols, byte[] out, int offset) {
+		if (rows < 0 || cols < 0 || (long) row + rows - 1 > Integer.MAX_VALUE
+				|| (long) col + cols - 1 > Integer.MAX_VALUE)
+			throw new ArrayIndexOutOfBoundsException(
+					"Region (" + row + ", " + col + ") " + rows + "x" + cols + " is outside the board");
+		for (int i = 0; i < rows; i++) {
+			for (int j = 0; j < cols;) {
+				int r = row + i, c = col + j;
+				Chunk chunk = chunk(r, c);
+				int run = Math.min(cols - j, CHUNK - (c & LOCAL)); // Cells of the row left in this chunk
+				for (int local = local(r, c), end = local + run; local < end; local++)
+					out[offset++] = state(chunk.cells[local]);
+				j += run;
+			}
+		}
+	}
+
+	private byte state(int cell) {
+		if (showAll || (cell & OPEN) != 0)
+			return (cell & MINE) != 0 ? CellState.MINE : (byte) (cell & COUNT_MASK);
+		return (cell & FLAG) != 0 ? CellState.FLAGGED : CellState.HIDDEN;
+	}
+
+	/* Returns the number of mines adjacent to a cell. */
+	public int getAdjacentMines(int row, int col) {
+		return chunk(row, col).cells[local(row, col)] & COUNT_MASK;
+	}
+
+	/*
+	 * Sets whether get() shows every cell. showAll: True to reveal all cells, false
+	 * to show only opened cells.
+	 */
+	public void setShowAll(boolean showAll) {
+		this.showAll = showAll;
+	}
+
+	/* Returns the number of opened cells. */
+	public long getOpenCount() {
+		return openCount;
+	}
+
+	/* Returns the number of flagged cells. */
+	public long getFlagsPlaced() {
+		return flagCount;
+	}
+
+	/* Returns the number of chunks in memory, touched or cached. */
+	public int getLoadedChunks() {
+		return touched.size() + cache.size();
+	}
+
+	/* Returns the number of chunks with opened or flagged cells, which are never dropped. */
+	public int getTouchedChunks() {
+		return touched.size();
+	}
+
+	/* Pushes an opened empty cell whose neighbours are to be opened onto the flood stack. */
+	private void push(int row, int col) {
+		if (stackTop == stackRows.length) {
+			stackRows = Arrays.copyOf(stackRows, stackTop * 2);
+			stackCols = Arrays.copyOf(stackCols, stackTop * 2);
+		}
+		stackRows[stackTop] = row;
+		stackCols[stackTop++] = col;
+	}
+
+	private static boolean atEdge(int x, int step) {
+		return step < 0 ? x == Integer.MIN_VALUE : step > 0 && x == Integer.MAX_VALUE;
+	}
+
+	private void setOpen(Chunk chunk, int local, int row, int col) {
+		markTouched(chunk, row, col);
+		chunk.cells[local] |= OPEN;
+		openCount++;
+	}
+
+	/* Moves a chunk out of the cache, since its state can no longer be rebuilt. */
+	private void markTouched(Chunk chunk, int row, int col) {
+		if (!chunk.touched)
+			markTouched(chunk, key(row >> CHUNK_BITS, col >> CHUNK_BITS));
+	}
+
+	private void markTouched(Chunk chunk, long key) {
+		chunk.touched = true;
+		cache.remove(key);
+		touched.put(key, chunk);
+	}
+
+	/* Returns the chunk holding a cell, creating it if it is not in memory. */
+	private Chunk chunk(int row, int col) {
+		long key = key(row >> CHUNK_BITS, col >> CHUNK_BITS);
+		if (key == lastKey && last != null)
+			return last;
+		Chunk chunk = touched.get(key);
+		if (chunk == null)
+			chunk = cache.get(key);
+		if (chunk == null) {
+			chunk = generate(row >> CHUNK_BITS, col >> CHUNK_BITS);
+			cache.put(key, chunk);
+		}
+		lastKey = key;
+		last = chunk;
+		return chunk;
+	}
+
+	private static long key(int chunkRow, int chunkCol) {
+		return ((long) chunkRow << 32) | (chunkCol & 0xFFFFFFFFL);
+	}
+
+	private static int local(int row, int col) {
+		return (row & LOCAL) << CHUNK_BITS | (col & LOCAL);
+	}
+
+	/*
+	 * Builds a chunk from the seed: the mines of the chunk and of the ring of
+	 * cells around it, then the counts from three-cell row and column sums.
+	 */
+	private Chunk generate(int chunkRow, int chunkCol) {
+		int size = CHUNK + 2;
+		byte[] mines = new byte[size * size]; // The chunk with a one-cell border
+		long row0 = ((long) chunkRow << CHUNK_BITS) - 1, col0 = ((long) chunkCol << CHUNK_BITS) - 1;
+		for (int r = 0; r < size; r++) {
+			for (int c = 0; c < size; c++)
+				mines[r * size + c] = (byte) (isMine(row0 + r, col0 + c) ? 1 : 0);
+		}
+		int[] rowSums = new int[size * CHUNK]; // Mines in columns c..c+2 of each bordered row
+		for (int r = 0; r < size; r++) {
+			for (int c = 0; c < CHUNK; c++) {
+				int i = r * size + c;
+				rowSums[r * CHUNK + c] = mines[i] + mines[i + 1] + mines[i + 2];
+			}
+		}
+		Chunk chunk = new Chunk();
+		for (int r = 0; r < CHUNK; r++) {
+			for (int c = 0; c < CHUNK; c++) {
+				int mine = mines[(r + 1) * size + c + 1];
+				int count = rowSums[r * CHUNK + c] + rowSums[(r + 1) * CHUNK + c] + rowSums[(r + 2) * CHUNK + c] - mine;
+				chunk.cells[r * CHUNK + c] = (byte) (count | (mine != 0 ? MINE : 0));
+			}
+		}
+		return chunk;
+	}
+
+	/* Returns true if the cell at a position holds a mine. */
+	private boolean isMine(long row, long col) {
+		if (row >= -1 && row <= 1 && col >= -1 && col <= 1)
+			return false;// The starting area is always safe
+		if (row < Integer.MIN_VALUE || row > Integer.MAX_VALUE || col < Integer.MIN_VALUE || col > Integer.MAX_VALUE)
+			return false;// Beyond the edge of the board
+		long h = seed ^ (row * 0x9E3779B97F4A7C15L) ^ (col * 0xC2B2AE3D27D4EB4FL);
+		h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;// SplitMix64 finalizer
+		h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+		h ^= h >>> 31;
+		return (h >>> 11) < threshold;
+	}
+}
@@ -0,0 +1,414 @@
+package mines;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/* A board that several players or bots can play at the same time. It is built from a
+MinesLogic board whose mines are placed and uses the same byte per cell, but every cell
+is changed with an atomic update of its own byte, so there is no lock at all: moves in
+different parts of the board never wait for each other, and two moves that race for a
+cell agree on which of them opened or flagged it. A flood fill only continues from the
+cells it opened itself, so when two fills meet, each stops where the other has been
+and together they open the region exactly once.
+
+Readers take snapshots: consistent copies of the board that contain every move that
+had finished and none that had not. The board is split into bands of rows, and each
+band counts the moves that entered it and the moves that left it, in counters of its
+own; the moves that entered a band are its version. A snapshot copies each band while
+no move is in it, then checks that no move entered any band since its copy started,
+and copies again only the bands that one did. A band whose version has not changed
+since the previous snapshot is not copied at all: the new snapshot shares the old
+copy, so a spectator following a game only copies the bands that moves touched.
+Writers never wait for a snapshot; a snapshot of a very busy band may have to retry. */
+public class ConcurrentBoard {
+	private static final int COUNT_MASK = 0x0F; // Same layout as MinesLogic
+	private static final int MINE = 0x10;
+	private static final int OPEN = 0x20;
+	private static final int FLAG = 0x40;
+
+	private static final int BAND_BITS = 4; // Bands of 16 rows
+	private static final int BAND_MASK = (1 << BAND_BITS) - 1;
+	private static final int PAD = 8; // Longs between the counters of two bands, so they share no cache line
+	private static final VarHandle CELL = MethodHandles.arrayElementVarHandle(byte[].class);
+
+	private final int height, width;
+	private final int numMines;
+	private final byte[] cells; // Accessed through CELL only
+	private final Topology.Grid grid; // Neighbours of the cells, as on the board copied
+	private final RegionLabels regions; // Opens empty regions in one pass, or null to flood-fill
+	private final AtomicLongArray entered, left; // Moves that entered and left each band, PAD apart
+	private final LongAdder opened = new LongAdder(), flags = new LongAdder();
+
+	/*
+	 * Creates a shared board with the state of a board whose mines are placed.
+	 * board: The board to copy, including its opened cells, flags and region
+	 * labels; it is not changed afterwards.
+	 */
+	public ConcurrentBoard(MinesLogic board) {
+		height = board.getHeight();
+		width = board.getWidth();
+		numMines = board.getNumMines();
+		regions = board.getRegionLabels();
+		grid = board.getGrid();
+		cells = new byte[height * width];
+		for (int i = 0; i < cells.length; i++) {
+			int bits = board.stateBits(i);
+			cells[i] = (byte) (board.adjacentMines(i) | bits << 4);
+			if ((bits & 2) != 0)
+				opened.increment();
+			if ((bits & 4) != 0)
+				flags.increment();
+		}
+		int bands = (height >> BAND_BITS) + 1;
+		entered = new AtomicLongArray(bands * PAD);
+		left = new AtomicLongArray(bands * PAD);
+	}
+
+	/* Returns the number of rows of the board. */
+	public int getHeight() {
+		return height;
+	}
+
+	/* Returns the number of columns of the board. */
+	public int getWidth() {
+		return width;
+	}
+
+	/* Returns the number of mines on the board. */
+	public int getNumMines() {
+		return numMines;
+	}
+
+	/*
+	 * Opens a cell, revealing the empty region around it, as MinesLogic.open does.
+	 * Safe to call from any thread. row: The row index of the position. col: The
+	 * column index of the position. Returns false if the cell contains a mine;
+	 * otherwise true.
+	 */
+	public boolean open(int row, int col) {
+		int index = index(row, col);
+		int cell = (byte) CELL.getVolatile(cells, index);
+		if ((cell & MINE) != 0)
+			return false;
+		if ((cell & OPEN) != 0)
+			return true;// Nothing to change
+		Move move = begin();
+		try {
+			if (setOpen(index, move) && (cell & COUNT_MASK) == 0) {
+				if (regions != null)
+					revealRegion(regions.getRegion(index), move);
+				else
+					reveal(index, move);
+			}
+		} finally {
+			end(move);
+		}
+		return true;
+	}
+
+	/*
+	 * Toggles a flag on a cell. Safe to call from any thread; two players toggling
+	 * the same cell at once leave it as it was. row: The row index of the position.
+	 * col: The column index of the position.
+	 */
+	public void toggleFlag(int row, int col) {
+		int index = index(row, col);
+		Move move = begin();
+		try {
+			move.enter(row >> BAND_BITS);
+			int cell = (byte) CELL.getAndBitwiseXor(cells, index, (byte) FLAG);
+			flags.add((cell & FLAG) != 0 ? -1 : 1);
+		} finally {
+			end(move);
+		}
+	}
+
+	/*
+	 * Returns what a player sees in a cell right now as a CellState code. Cells
+	 * read one by one may come from different moves; use snapshot() for a
+	 * consistent view. row: The row index of the position. col: The column index
+	 * of the position.
+	 */
+	public byte state(int row, int col) {
+		return state((byte) CELL.getVolatile(cells, index(row, col)), false);
+	}
+
+	/* Returns the number of opened cells, exact once no move is running. */
+	public long getOpenCount() {
+		return opened.sum();
+	}
+
+	/* Returns the number of flagged cells, exact once no move is running. */
+	public long getFlagsPlaced() {
+		return flags.sum();
+	}
+
+	/* Returns true if every cell without a mine is opened. */
+	public boolean isDone() {
+		return opened.sum() == (long) height * width - numMines;
+	}
+
+	/*
+	 * Returns the version of the board: a number that grows with every finished
+	 * move. Two snapshots with the same version show the same board.
+	 */
+	public long getVersion() {
+		long version = 0;
+		for (int b = 0; b < left.length(); b += PAD)
+			version += left.get(b);
+		return version;
+	}
+
+	/* Returns a consistent copy of the board, with every finished move and no other. */
+	public Snapshot snapshot() {
+		return snapshot(null);
+	}
+
+	/*
+	 * Returns a consistent copy of the board, sharing the bands that have not
+	 * changed with the given snapshot, or that snapshot itself if no move has
+	 * finished since it was taken. previous: A snapshot of this board, or null.
+	 */
+	public Snapshot snapshot(Snapshot previous) {
+		if (previous != null && previous.board != this)
+			previous = null;
+		int bands = left.length() / PAD;
+		byte[][] copies = new byte[bands][];
+		long[] versions = new long[bands];
+		int[] open = new int[bands], flagged = new int[bands];
+		boolean changed = previous == null;
+		for (int b = 0; b < bands; b++)
+			changed |= !copyBand(b, previous, copies, versions, open, flagged);
+		// Done once no move entered a band after its copy started, retrying the bands one did
+		for (boolean retry = true; retry;) {
+			VarHandle.loadLoadFence();// The cells are read before the counters are checked again
+			retry = false;
+			for (int b = 0; b < bands; b++) {
+				if (entered.get(b * PAD) != versions[b]) {
+					copyBand(b, null, copies, versions, open, flagged);
+					retry = changed = true;
+				}
+			}
+		}
+		return changed ? new Snapshot(this, versions, copies, open, flagged) : previous;
+	}
+
+	/*
+	 * Copies one band once no move is running in it, or takes it from the previous
+	 * snapshot if no move entered it since. previous: A snapshot of this board, or
+	 * null. Returns true if the band was taken from previous.
+	 */
+	private boolean copyBand(int b, Snapshot previous, byte[][] copies, long[] versions, int[] open,
+			int[] flagged) {
+		long version;
+		while ((version = entered.get(b * PAD)) != left.get(b * PAD))
+			Thread.onSpinWait();// A move is running in this band
+		if (previous != null && previous.versions[b] == version) {
+			copies[b] = previous.bands[b];
+			versions[b] = version;
+			open[b] = previous.bandOpen[b];
+			flagged[b] = previous.bandFlags[b];
+			return true;
+		}
+		int from = Math.min(b << BAND_BITS, height) * width, to = Math.min((b + 1) << BAND_BITS, height) * width;
+		byte[] copy = new byte[to - from];
+		int opens = 0, flags = 0;
+		for (int i = 0; i < copy.length; i++) {
+			int cell = (byte) CELL.getOpaque(cells, from + i);
+			copy[i] = (byte) cell;
+			opens += (cell >> 5) & 1;
+			flags += (cell >> 6) & 1;
+		}
+		copies[b] = copy;
+		versions[b] = version;
+		open[b] = opens;
+		flagged[b] = flags;
+		return false;
+	}
+
+	/*
+	 * A consistent copy of the board at one version. Its bands are never changed,
+	 * so later snapshots share the ones that stayed the same.
+	 */
+	public static final class Snapshot {
+		private final ConcurrentBoard board;
+		private final long version;
+		private final long[] versions; // Version of each band
+		private final byte[][] bands; // Cells of each band of rows
+		private final int[] bandOpen, bandFlags; // Opened and flagged cells of each band
+		private final int openCount, flagCount;
+
+		Snapshot(ConcurrentBoard board, long[] versions, byte[][] bands, int[] bandOpen, int[] bandFlags) {
+			this.board = board;
+			this.versions = versions;
+			this.bands = bands;
+			this.bandOpen = bandOpen;
+			this.bandFlags = bandFlags;
+			long version = 0;
+			int open = 0, flagged = 0;
+			for (int b = 0; b < bands.length; b++) {
+				version += versions[b];
+				open += bandOpen[b];
+				flagged += bandFlags[b];
+			}
+			this.version = version;
+			this.openCount = open;
+			this.flagCount = flagged;
+		}
+
+		/* Returns the version of the board the snapshot shows. */
+		public long getVersion() {
+			return version;
+		}
+
+		/* Returns the number of rows of the board. */
+		public int getHeight() {
+			return board.height;
+		}
+
+		/* Returns the number of columns of the board. */
+		public int getWidth() {
+			return board.width;
+		}
+
+		/* Returns the number of opened cells. */
+		public int getOpenCount() {
+			return openCount;
+		}
+
+		/* Returns the number of flagged cells. */
+		public int getFlagsPlaced() {
+			return flagCount;
+		}
+
+		/* Returns true if every cell without a mine was opened. */
+		public boolean isDone() {
+			return openCount == board.height * board.width - board.numMines;
+		}
+
+		/*
+		 * Returns what a player saw in a cell as a CellState code. row: The row index
+		 * of the position. col: The column index of the position. showAll: True to
+		 * show covered cells as well.
+		 */
+		public byte state(int row, int col, boolean showAll) {
+			board.index(row, col);// Bounds check
+			return ConcurrentBoard.state(bands[row >> BAND_BITS][((row & BAND_MASK) * board.width) + col], showAll);
+		}
+
+		/*
+		 * Copies the CellState codes of one row into out at offset, as
+		 * MinesLogic.readRow does.
+		 */
+		public void readRow(int row, byte[] out, int offset) {
+			board.index(row, 0);// Bounds check
+			byte[] band = bands[row >> BAND_BITS];
+			int start = (row & BAND_MASK) * board.width;
+			for (int col = 0; col < board.width; col++)
+				out[offset + col] = ConcurrentBoard.state(band[start + col], false);
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder out = new StringBuilder((board.width + 1) * board.height);
+			for (int row = 0; row < board.height; row++) {
+				for (int col = 0; col < board.width; col++)
+					out.append(CellState.toChar(state(row, col, false)));
+				out.append('\n');
+			}
+			return out.toString();
+		}
+	}
+
+	private static byte state(int cell, boolean showAll) {
+		if (showAll || (cell & OPEN) != 0)
+			return (cell & MINE) != 0 ? CellState.MINE : (byte) (cell & COUNT_MASK);
+		return (cell & FLAG) != 0 ? CellState.FLAGGED : CellState.HIDDEN;
+	}
+
+	/* The bands a running move has entered and the cells it opened. */
+	private final class Move {
+		private final long[] bands = new long[(left.length() / PAD + 63) >> 6];
+		int opened;
+
+		/* Counts the move into a band before its first change there. */
+		void enter(int band) {
+			long bit = 1L << (band & 63);
+			if ((bands[band >> 6] & bit) == 0) {
+				bands[band >> 6] |= bit;
+				entered.getAndIncrement(band * PAD);// Full fence: no cell of the band changes before
+			}
+		}
+	}
+
+	/* Starts a move. */
+	private Move begin() {
+		return new Move();
+	}
+
+	/* Ends a move: publishes its opened cells and leaves every band it entered. */
+	private void end(Move move) {
+		if (move.opened > 0)
+			opened.add(move.opened);
+		for (int w = 0; w < move.bands.length; w++) {
+			for (long bits = move.bands[w]; bits != 0; bits &= bits - 1)
+				left.getAndIncrement(((w << 6) + Long.numberOfTrailingZeros(bits)) * PAD);
+		}
+	}
+
+	/* Opens a closed cell. Returns true if this move opened it, false if it was open already. */
+	private boolean setOpen(int index, Move move) {
+		move.enter(index / width >> BAND_BITS);
+		int cell = (byte) CELL.getAndBitwiseOr(cells, index, (byte) OPEN);
+		if ((cell & OPEN) != 0)
+			return false;
+		move.opened++;
+		return true;
+	}
+
+	/*
+	 * Opens the cells of a labelled empty region that are not open yet. region:
+	 * The region of the empty cell the move opened.
+	 */
+	private void revealRegion(int region, Move move) {
+		for (int k = regions.getStart(region), end = regions.getEnd(region); k < end; k++)
+			setOpen(regions.getCell(k), move);
+	}
+
+	/*
+	 * Opens every cell connected to an empty cell opened by this move. Only cells
+	 * this move opens itself are explored further, so fills racing through the
+	 * same region split it between them. start: The index of the empty cell.
+	 */
+	private void reveal(int start, Move move) {
+		int[] stack = new int[64];
+		int[] around = new int[grid.getTopology().maxNeighbors()];
+		int top = 0;
+		stack[top++] = start;
+		while (top > 0) {
+			int index = stack[--top];
+			for (int k = 0, count = grid.neighbors(index, around); k < count; k++) {
+				int n = around[k];
+				// Neighbours of an empty cell hold no mine
+				if (setOpen(n, move) && ((byte) CELL.getOpaque(cells, n) & COUNT_MASK) == 0) {
+					if (top == stack.length)
+						stack = Arrays.copyOf(stack, top * 2);
+					stack[top++] = n;
+				}
+			}
+		}
+	}
+
+	/*
+	 * Converts a position to its index in the cells array. Throws
+	 * ArrayIndexOutOfBoundsException if the position is outside the board.
+	 */
+	private int index(int row, int col) {
+		if (row >= height || col >= width || row < 0 || col < 0)
+			throw new ArrayIndexOutOfBoundsException("Cell (" + row + ", " + col + ") is outside the board");
+		return row * width + col;
+	}
+}
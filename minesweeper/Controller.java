@@ -1,30 +1,37 @@
 package mines;
 
 import java.io.File;
-import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 
+import javafx.concurrent.Task;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.scene.Scene;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Alert.AlertType;
 import javafx.scene.control.Button;
+import javafx.scene.control.CheckMenuItem;
+import javafx.scene.control.Menu;
 import javafx.scene.control.MenuItem;
+import javafx.scene.control.ProgressIndicator;
+import javafx.scene.control.RadioMenuItem;
 import javafx.scene.control.ScrollPane;
+import javafx.scene.control.TextArea;
 import javafx.scene.control.TextField;
-import javafx.scene.image.Image;
-import javafx.scene.image.ImageView;
+import javafx.scene.control.ToggleGroup;
 import javafx.scene.input.MouseButton;
-import javafx.scene.input.MouseEvent;
-import javafx.scene.layout.ColumnConstraints;
+import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.GridPane;
-import javafx.scene.layout.RowConstraints;
 import javafx.scene.layout.StackPane;
 import javafx.scene.layout.VBox;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
 import javafx.scene.text.Text;
 import javafx.scene.text.TextFlow;
+import javafx.stage.FileChooser;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
 
@@ -32,7 +39,25 @@ import javafx.stage.Stage;
 Handles board setup, user input, and game state updates. */
 public class Controller {
 	private MinesLogic mines; // Represents the Minesweeper game board
-	private Button[][] buttons; // Array of buttons representing the game cells
+	private BoardView view; // Renderer currently displaying the board
+	private MoveJournal journal; // Makes the moves of the current game, for undo and redo
+	private int minesToPlace; // Mines still to be placed on the first click, 0 once placed
+	private Task<?> pending; // Background operation whose result is still to be published, or null
+	private boolean pendingSave; // Whether pending writes a file, which is left to finish when cancelled
+	private boolean hintsShown; // Whether the view currently shows mine probabilities
+	private Topology topology = Topology.SQUARE; // Shape of the boards of new games
+	private final MineProbabilities hintEngine = new MineProbabilities(); // Computes the hints
+	// Looks for boards that can be solved without guessing
+	private final NoGuessGenerator noGuess = SEED != null
+			? new NoGuessGenerator(Runtime.getRuntime().availableProcessors(), SEED)
+			: new NoGuessGenerator();
+
+	// Board generation and large moves run here, off the JavaFX application thread
+	private static final ExecutorService worker = Executors.newVirtualThreadPerTaskExecutor();
+	// Boards with at least this many cells open cells in the background
+	private static final int BACKGROUND_CELLS = 250_000;
+	// How long to look for a no-guess board before settling for an ordinary one
+	private static final long NO_GUESS_BUDGET_MS = 5_000;
 
 	@FXML
 	private Button resetButton;// Button to reset the game
@@ -40,6 +65,9 @@ public class Controller {
 	@FXML
 	private GridPane g;// GridPane to display the game board
 
+	@FXML
+	private BorderPane layout;// BorderPane whose center holds the board renderer
+
 	@FXML
 	private TextField textBoxHieght;// TextField for board height input
 
@@ -52,13 +80,35 @@ public class Controller {
 	@FXML
 	private StackPane window;// StackPane to hold the game layout
 
+	@FXML
+	private ProgressIndicator progress;// Shown while a background operation is running
+
 	@FXML
 	private MenuItem GuideMenu;// MenuItem to show how to play the game
 
 	@FXML
 	private MenuItem AboutMenu;// MenuItem to show the Creator
 
-	private double cellSize = 40;// Cell button size
+	@FXML
+	private CheckMenuItem canvasMenu;// MenuItem to switch to the canvas renderer
+
+	@FXML
+	private CheckMenuItem safeFirstMenu;// MenuItem to place mines only after the first click
+
+	@FXML
+	private CheckMenuItem noGuessMenu;// MenuItem to generate boards that can be solved without guessing
+
+	@FXML
+	private Menu topologyMenu;// Menu to choose the shape of the board, filled in initialize()
+
+	// Print the time of every repaint, to compare full and incremental repaints
+	private static final boolean FRAME_TIMING = Boolean.getBoolean("mines.frameTiming");
+	// Always repaint the whole board, the behaviour before incremental repaints
+	private static final boolean FULL_REDRAW = Boolean.getBoolean("mines.fullRedraw");
+	// Print the statistics of every no-guess generation, to size the generator
+	private static final boolean NO_GUESS_STATS = Boolean.getBoolean("mines.noGuessStats");
+	// Seed for reproducible boards, random boards if not set
+	private static final Long SEED = Long.getLong("mines.seed");
 	/*
 	 * Resets the Minesweeper game based on user input for dimensions and mines.
 	 * event: The action event triggered by clicking the reset button.
@@ -69,8 +119,13 @@ public class Controller {
 		int rows = Integer.parseInt(textBoxHieght.getText());
 		int cols = Integer.parseInt(textBoxWidth.getText());
 		int mines = Integer.parseInt(textBoxMines.getText());
-		initGame(rows, cols, mines);// Initialize the game with new parameters
-		resizeLayout(rows, cols);// Adjust layout size
+		boolean safeFirst = safeFirstMenu.isSelected() || noGuessMenu.isSelected();
+		Topology shape = topology;
+		// Build the new board in the background; the current one stays playable until it is ready
+		runInBackground(() -> newGame(rows, cols, mines, safeFirst, shape), game -> {
+			showGame(game);// Initialize the game with new parameters
+			resizeLayout(rows, cols);// Adjust layout size
+		});
 	}
 	//Show guide window when clicking guide in the menu
 	@FXML
@@ -145,6 +200,16 @@ public class Controller {
 		textBoxWidth.textProperty().addListener((observable, oldValue, newValue) -> {
 			handleTextFieldChange();
 		});
+
+		// One item per topology; the choice applies from the next new game
+		ToggleGroup shapes = new ToggleGroup();
+		for (Topology t : Topology.values()) {
+			RadioMenuItem item = new RadioMenuItem(t.getName());
+			item.setToggleGroup(shapes);
+			item.setSelected(t == topology);
+			item.setOnAction(e -> topology = t);
+			topologyMenu.getItems().add(item);
+		}
 	}
 
 	/*
@@ -185,46 +250,224 @@ public class Controller {
 	 * mines to place on the board.
 	 */
 	public void initGame(int rows, int cols, int numMines) {
-		mines = new MinesLogic(rows, cols, 0);// Initialize the Mines board
-		placeRandomMines(rows, cols, numMines);// Randomly place mines
-		buttons = new Button[rows][cols];
-
-		// Adjust grid properties for even button spacing
-		g.getColumnConstraints().clear();
-		g.getRowConstraints().clear();
-
-		// Clear any existing buttons from the GridPane
-		g.getChildren().clear();
-
-		// Set up fixed-size rows and columns
-		for (int i = 0; i < cols; i++) {
-			ColumnConstraints column = new ColumnConstraints();
-			column.setMinWidth(cellSize); // Set fixed width for each column (adjust as needed)
-			column.setMaxWidth(cellSize);
-			g.getColumnConstraints().add(column);
+		showGame(newGame(rows, cols, numMines, safeFirstMenu.isSelected() || noGuessMenu.isSelected(), topology));
+	}
+
+	/*
+	 * Builds a new board without touching the UI, so it can run on a background
+	 * thread. rows, cols: The board size. numMines: The number of mines. safeFirst:
+	 * Whether to place the mines only after the first click. topology: The shape
+	 * of the board. Returns the new game.
+	 */
+	private static NewGame newGame(int rows, int cols, int numMines, boolean safeFirst, Topology topology) {
+		MinesLogic board = new MinesLogic(rows, cols, 0, topology);// Initialize the Mines board
+		MineGenerator generator = SEED != null ? new MineGenerator(SEED) : new MineGenerator();
+		if (safeFirst)
+			return new NewGame(board, generator, numMines);// Placed around the first click, so it is never a mine
+		generator.place(board, numMines);// Randomly place mines
+		return new NewGame(board, generator, 0);
+	}
+
+	/*
+	 * Makes a fully built board the current game and draws it. Runs on the JavaFX
+	 * application thread. game: The game to show.
+	 */
+	private void showGame(NewGame game) {
+		mines = game.board();
+		mines.trackChanges();// Only the cells a move changes are repainted
+		journal = MoveJournal.attach(mines, game.generator().getSeed(), game.minesToPlace());
+		minesToPlace = game.minesToPlace();
+		if (view == null)
+			setView(new ButtonBoardView(g));// The button grid is the default renderer
+		view.setBoard(mines);
+		hintsShown = false;
+		drawBoard();// Draw the initial board state
+	}
+
+	/*
+	 * Shows the probability of a mine on every covered cell, computed in the
+	 * background. The hints disappear with the next move. event: The action event
+	 * triggered by the menu item.
+	 */
+	@FXML
+	void showHints(ActionEvent event) {
+		if (mines == null || pending != null)
+			return;
+		if (minesToPlace > 0) {
+			showError("Open a cell first, the mines are placed after the first click.");
+			return;
 		}
+		MinesLogic board = mines;
+		runInBackground(() -> hintEngine.compute(board), probabilities -> {
+			view.showHints(probabilities);
+			hintsShown = true;
+		});
+	}
+
+	/*
+	 * Takes back the last move, including a move that hit a mine. event: The action
+	 * event triggered by the menu item.
+	 */
+	@FXML
+	void undoMove(ActionEvent event) {
+		if (journal == null || pending != null || !journal.undo())
+			return;
+		afterUndoRedo();
+	}
 
-		for (int i = 0; i < rows; i++) {
-			RowConstraints row = new RowConstraints();
-			row.setMinHeight(cellSize); // Set fixed height for each row (adjust as needed)
-			row.setMaxHeight(cellSize);
-			g.getRowConstraints().add(row);
+	/*
+	 * Makes the last undone move again. event: The action event triggered by the
+	 * menu item.
+	 */
+	@FXML
+	void redoMove(ActionEvent event) {
+		if (journal == null || pending != null || !journal.redo())
+			return;
+		afterUndoRedo();
+	}
+
+	/* Shows the board after undo or redo, covering the mines again after a lost game. */
+	private void afterUndoRedo() {
+		if (hintsShown) {
+			hintsShown = false;
+			view.showHints(null);
 		}
+		mines.setShowAll(false);
+		drawChanges();
+	}
+
+	/*
+	 * Saves the current game to a file chosen by the user, in the background.
+	 * event: The action event triggered by the menu item.
+	 */
+	@FXML
+	void saveGame(ActionEvent event) {
+		if (mines == null || pending != null)
+			return;
+		File file = saveChooser().showSaveDialog(window.getScene().getWindow());
+		if (file == null)
+			return;
+		MinesLogic board = mines;
+		long seed = journal.getSeed();
+		int toPlace = minesToPlace;
+		runInBackground(() -> {
+			BoardFile.save(board, seed, toPlace, file.toPath());
+			return file;
+		}, saved -> {// Nothing changes on screen
+		});
+		pendingSave = true;
+	}
 
-		// Create buttons for each cell and add them to the GridPane
-		for (int i = 0; i < rows; i++) {
-			for (int j = 0; j < cols; j++) {
-				// Create a button
-				Button b = new Button(".");
-				b.setPrefSize(cellSize, cellSize);// Set button size
-				b.setUserData(new int[] { i, j });// Store cell coordinates
-				b.setOnMouseClicked(this::handleCellClick);// Handle cell clicks
-				buttons[i][j] = b;
-				g.add(b, j, i); // Add the label at column 'j', row 'i'
+	/*
+	 * Loads a game saved with saveGame, in the background, and makes it the
+	 * current game. The views, hints and journal work on a MinesLogic, so the save
+	 * is copied onto the heap rather than played in place as TerminalMines --file
+	 * does. event: The action event triggered by the menu item.
+	 */
+	@FXML
+	void loadGame(ActionEvent event) {
+		if (pending != null)
+			return;
+		File file = saveChooser().showOpenDialog(window.getScene().getWindow());
+		if (file == null)
+			return;
+		runInBackground(() -> {
+			try (MappedBoard saved = BoardFile.map(file.toPath())) {
+				return new NewGame(saved.toMinesLogic(), new MineGenerator(saved.getSeed()), saved.getMinesToPlace());
 			}
+		}, game -> {
+			showGame(game);
+			resizeLayout(game.board().getHeight(), game.board().getWidth());
+		});
+	}
+
+	/* Returns a file chooser for saved games. */
+	private static FileChooser saveChooser() {
+		FileChooser chooser = new FileChooser();
+		chooser.setTitle("Saved game");
+		chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Minesweeper games", "*.mines"));
+		return chooser;
+	}
+
+	/*
+	 * A board built off the UI thread, published to the UI only once complete.
+	 * board: The board. generator: The generator of its mines. minesToPlace: Mines
+	 * still to be placed on the first click.
+	 */
+	private record NewGame(MinesLogic board, MineGenerator generator, int minesToPlace) {
+	}
+
+	/*
+	 * Runs work on the background executor and hands its result to publish on the
+	 * JavaFX application thread. Only one operation is pending at a time: starting
+	 * a new one cancels the previous one, whose result is then dropped, so the UI
+	 * never sees a half-built or outdated board. A save is not interrupted, only
+	 * forgotten, so the file is still written. While an operation is pending the
+	 * progress indicator is shown and clicks on the board are ignored. work: The
+	 * operation to run. publish: Receives its result on the UI thread.
+	 */
+	private <T> void runInBackground(Callable<T> work, Consumer<T> publish) {
+		if (pending != null)
+			pending.cancel(!pendingSave);
+		pendingSave = false;
+		Task<T> task = new Task<>() {
+			@Override
+			protected T call() throws Exception {
+				return work.call();
+			}
+		};
+		task.setOnSucceeded(e -> {
+			if (pending == task) {
+				finishBackground();
+				publish.accept(task.getValue());
+			}
+		});
+		task.setOnFailed(e -> {
+			if (pending == task) {
+				finishBackground();
+				showError("Operation failed: " + task.getException());
+			}
+		});
+		pending = task;
+		progress.setVisible(true);
+		worker.submit(task);
+	}
+
+	/* Hides the progress indicator once the pending operation is done. */
+	private void finishBackground() {
+		pending = null;
+		pendingSave = false;
+		progress.setVisible(false);
+	}
+
+	/*
+	 * Switches between the button grid and the canvas renderer when the menu item
+	 * is toggled. event: The action event triggered by the menu item.
+	 */
+	@FXML
+	void switchRenderer(ActionEvent event) {
+		if (pending != null) {// The board is being replaced, keep the current renderer
+			canvasMenu.setSelected(view instanceof CanvasBoardView);
+			return;
 		}
-		drawBoard();// Draw the initial board state
+		setView(canvasMenu.isSelected() ? CanvasBoardView.create() : new ButtonBoardView(g));
+		if (mines != null) {
+			view.setBoard(mines);
+			drawBoard();
+			resizeLayout(mines.getHeight(), mines.getWidth());
+		}
+	}
 
+	/*
+	 * Makes a renderer the current board display. newView: The renderer to show.
+	 */
+	private void setView(BoardView newView) {
+		if (view instanceof ButtonBoardView)
+			g.getChildren().clear();// Drop the old buttons, the grid itself may be reused
+		view = newView;
+		hintsShown = false;
+		view.setOnCellClick(this::handleCellClick);
+		layout.setCenter(view.getNode());
 	}
 
 	/* Adjusts the layout size to fit dynamically within the window. */
@@ -232,9 +475,13 @@ public class Controller {
 		// Request a layout update for the window
 		window.requestLayout();
 
-		// Calculate the total width and height based on the grid size
-		double totalWidth = cols * cellSize + 160;
-		double totalHeight = rows * cellSize + 84;
+		// Calculate the total width and height based on the size the renderer asks for
+		double totalWidth = view.getPrefBoardWidth() + 160;
+		double totalHeight = view.getPrefBoardHeight() + 84;
+		if (view instanceof CanvasBoardView) {
+			totalWidth += 20;// Room for the scroll bars
+			totalHeight += 20;
+		}
 
 		// Request the stage to resize itself based on the new preferred size
 		Stage stage = (Stage) window.getScene().getWindow();
@@ -247,54 +494,93 @@ public class Controller {
 	}
 
 	/*
-	 * Randomly places mines on the game board. rows: The number of rows in the
-	 * board. cols: The number of columns in the board. numMines: The number of
-	 * mines to place.
+	 * Handles mouse clicks on game cells. row: The row index of the clicked cell.
+	 * col: The column index of the clicked cell. button: The mouse button used.
 	 */
-	private void placeRandomMines(int rows, int cols, int numMines) {
-		Random rand = new Random();
-		int minesPlaced = 0;
-		while (minesPlaced < numMines) {
-			int r = rand.nextInt(rows);
-			int c = rand.nextInt(cols);
-			if (mines.addMine(r, c)) {// Add mine if the cell is empty
-				minesPlaced++;
-
+	private void handleCellClick(int row, int col, MouseButton button) {
+		if (pending != null)
+			return;// A background operation owns the board until it is published
+		if (hintsShown) {// Hints are only valid for the position they were computed for
+			hintsShown = false;
+			view.showHints(null);
+		}
+		if (button == MouseButton.PRIMARY) { // Left-click: Open the cell
+			// The journal places the mines around the first click before opening it
+			MoveJournal moves = journal;
+			int toPlace = minesToPlace;
+			minesToPlace = 0;
+			if (toPlace > 0 && noGuessMenu.isSelected()) {
+				// Search for a board that can be solved from this click, then play it
+				runInBackground(() -> openNoGuess(moves, toPlace, row, col), this::showNoGuessResult);
+			} else if ((long) mines.getHeight() * mines.getWidth() >= BACKGROUND_CELLS) {
+				// Placing mines and large reveals would freeze the UI, run them on the worker
+				runInBackground(() -> moves.open(row, col), this::showOpenResult);
+			} else {
+				showOpenResult(moves.open(row, col));
 			}
+			return;
+		} else if (button == MouseButton.SECONDARY) {// Right-click: Toggle flag
+			// toggling flag in case of right click
+			journal.toggleFlag(row, col);
 		}
+		showMoveResult();
 	}
 
 	/*
-	 * Handles mouse clicks on game cells. e: The mouse event triggered by clicking
-	 * a cell.
+	 * Places mines that can be cleared from the first click without guessing, as
+	 * found by the no-guess generator, and opens the clicked cell. Runs on a
+	 * background thread. Returns the generator statistics.
 	 */
-	private void handleCellClick(MouseEvent e) {
-		Button b = (Button) e.getSource();
-		int[] rc = (int[]) b.getUserData();
-		int row = rc[0];
-		int col = rc[1];
-
-		if (e.getButton() == MouseButton.PRIMARY) { // Left-click: Open the cell
-			// left click-> open
-			boolean notMine = mines.open(row, col);
-			if (!notMine) {// If the cell contains a mine, end the game
-				// we hit a mine -> reveal all
-				mines.setShowAll(true);
-				drawBoard();
-				showError("Game is Over! You clicked a mine here!");
-				return;
-			}
-		} else if (e.getButton() == MouseButton.SECONDARY) {// Right-click: Toggle flag
-			// toggling flag in case of right click
-			mines.toggleFlag(row, col);
+	private NoGuessGenerator.Result openNoGuess(MoveJournal moves, int toPlace, int row, int col) {
+		MinesLogic board = moves.getBoard();
+		NoGuessGenerator.Result result = noGuess.generate(board.getHeight(), board.getWidth(), board.getTopology(),
+				toPlace, row, col, NO_GUESS_BUDGET_MS);
+		// The seed rebuilds exactly the board the generator verified
+		moves.setSeed(result.getSeed());
+		moves.open(row, col);
+		return result;
+	}
+
+	/*
+	 * Shows the first move of a no-guess game. result: The statistics of the
+	 * generator.
+	 */
+	private void showNoGuessResult(NoGuessGenerator.Result result) {
+		if (NO_GUESS_STATS)
+			System.out.println("No-guess generator: " + result);
+		showOpenResult(true);// The first click is always safe
+		if (!result.isNoGuess() && !mines.isDone()) {
+			Alert alert = new Alert(AlertType.INFORMATION);
+			alert.setTitle("No-guess board");
+			alert.setHeaderText(null);
+			alert.setContentText("No board without guesses was found in time, this one may need a guess.");
+			alert.showAndWait();
 		}
+	}
+
+	/*
+	 * Shows the outcome of opening a cell. notMine: False if the opened cell was a
+	 * mine.
+	 */
+	private void showOpenResult(boolean notMine) {
+		if (!notMine) {// If the cell contains a mine, end the game
+			// we hit a mine -> reveal all
+			mines.setShowAll(true);
+			drawChanges();
+			showError("Game is Over! You clicked a mine here!");
+			return;
+		}
+		showMoveResult();
+	}
 
-		drawBoard();
+	/* Repaints the cells changed by the last move and checks whether the game is won. */
+	private void showMoveResult() {
+		drawChanges();// Repaint only the cells this move changed
 
 		if (mines.isDone()) {// If all non-mine cells are opened, the player wins
 			// in case user is done
 			mines.setShowAll(true);
-			drawBoard();
+			drawChanges();
 			Alert alert = new Alert(AlertType.INFORMATION);
 			alert.setTitle("Good job mate!");
 			alert.setHeaderText(null);
@@ -303,81 +589,83 @@ public class Controller {
 		}
 	}
 
+	/* Updates the visual representation of the game board. */
+	private void drawBoard() {
+		if (view == null || mines == null)
+			return;
+		Metrics.RenderEvent event = Metrics.ENABLED ? new Metrics.RenderEvent() : null;
+		if (event != null)
+			event.begin();
+		long start = System.nanoTime();
+		int painted = view.drawBoard();
+		mines.getChanges().clear();// Everything is up to date now
+		logFrame("full", painted, start, event);
+	}
+
 	/*
-	 * Sets and returns a graphical icon for flags or mines. s: The string
-	 * representing the icon type ("F" for flag, "X" for mine). Returns an ImageView
-	 * with the specified graphic.
+	 * Updates only the cells that changed since the last repaint, falling back to
+	 * a full repaint when the board reports that everything changed.
 	 */
-	private ImageView setGrapich(String s) {
-		File file1 = new File("src/graphics/flag.png"); // Path relative to project folder
-		File file2 = new File("src/graphics/spike.png"); // Path relative to project folder
-		Image flag = new Image(file1.toURI().toString());
-		Image spike = new Image(file2.toURI().toString());
-		// Create an ImageView to display the image
-		ImageView imageView1 = new ImageView(flag);
-		ImageView imageView2 = new ImageView(spike);
-		// Optionally, you can resize the image to fit the button
-		imageView1.setFitWidth(15); // Set the width of the image
-		imageView1.setFitHeight(15); // Set the height of the image
-		imageView1.setPreserveRatio(true);
-		imageView2.setFitWidth(15); // Set the width of the image
-		imageView2.setFitHeight(15); // Set the height of the image
-		imageView2.setPreserveRatio(true);
-		if (s.equals("F")) {
-			return imageView1;
+	private void drawChanges() {
+		if (view == null || mines == null)
+			return;
+		ChangeSet changes = mines.getChanges();
+		if (changes.isAll() || FULL_REDRAW) {
+			drawBoard();
+			return;
 		}
-		return imageView2;
+		Metrics.RenderEvent event = Metrics.ENABLED ? new Metrics.RenderEvent() : null;
+		if (event != null)
+			event.begin();
+		long start = System.nanoTime();
+		int painted = view.drawChanges(changes);
+		changes.clear();
+		logFrame("changes", painted, start, event);
 	}
 
-	/* Updates the visual representation of the game board. */
-	private void drawBoard() {
-		if (buttons == null || mines == null)
-			return;
-		int rows = buttons.length;
-		int cols = buttons[0].length;
-		for (int r = 0; r < rows; r++) {
-			for (int c = 0; c < cols; c++) {
-				String cell = mines.get(r, c);
-				Button btn = buttons[r][c];
-				btn.setText("");
-				if (cell.equals("F")) {
-					btn.setGraphic(setGrapich("F"));
-				} else if (cell.equals("X")) {
-					btn.setGraphic(setGrapich("X"));
-				} else {
-					btn.setGraphic(null);
-					btn.setText(cell);
-				}
-				btn.setStyle("");
-				if (cell.matches("[1-8]")) {// Set text color based on the number of mines
-					switch (cell) {
-					case "1":
-						btn.setStyle("-fx-text-fill: blue;");
-						break;
-					case "2":
-						btn.setStyle("-fx-text-fill: green;");
-						break;
-					case "3":
-						btn.setStyle("-fx-text-fill: red;");
-						break;
-					case "4":
-						btn.setStyle("-fx-text-fill: navy;");
-						break;
-					case "5":
-						btn.setStyle("-fx-text-fill: maroon;");
-						break;
-					case "6":
-						btn.setStyle("-fx-text-fill: teal;");
-						break;
-					case "7":
-						btn.setStyle("-fx-text-fill: black;");
-						break;
-					case "8":
-						btn.setStyle("-fx-text-fill: gray;");
-						break;
-					}
-				}
+	/*
+	 * Records a repaint in Metrics when enabled, and prints how long it took when
+	 * frame timing is enabled with -Dmines.frameTiming=true. kind: The kind of
+	 * repaint. cells: The number of cells painted. start: System.nanoTime() at the
+	 * start of the repaint. event: The repaint's JFR event, null without metrics.
+	 */
+	private void logFrame(String kind, int cells, long start, Metrics.RenderEvent event) {
+		long nanos = System.nanoTime() - start;
+		if (event != null) {
+			Metrics.RENDER.record(nanos);
+			Metrics.RENDER_CELLS.record(cells);
+			if (event.shouldCommit()) {
+				event.renderer = view.getClass().getSimpleName();
+				event.kind = kind;
+				event.cells = cells;
+				event.commit();
 			}
 		}
+		if (FRAME_TIMING)
+			System.out.printf("%s %s repaint: %d cells in %.3f ms%n", view.getClass().getSimpleName(), kind, cells,
+					nanos / 1e6);
+	}
+
+	/*
+	 * Shows the instrumentation collected so far and prints it to the console.
+	 * event: The action event triggered by the menu item.
+	 */
+	@FXML
+	void showMetrics(ActionEvent event) {
+		if (!Metrics.ENABLED) {
+			showError("Metrics are off. Start the game with -Dmines.metrics=true to collect them.");
+			return;
+		}
+		String table = Metrics.dump(false);
+		System.out.print(table);
+		TextArea text = new TextArea(table);
+		text.setEditable(false);
+		text.setStyle("-fx-font-family: monospace;");
+		Alert alert = new Alert(AlertType.INFORMATION);
+		alert.setTitle("Metrics");
+		alert.setHeaderText(null);
+		alert.getDialogPane().setContent(text);
+		alert.getDialogPane().setPrefWidth(720);
+		alert.showAndWait();
 	}
 }
@@ -0,0 +1,253 @@
+package mines;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/* The boundary between the opened and the covered part of a board, seen as a system
+of constraints. Every covered cell next to an opened number is a variable (1 = mine),
+and every opened number with covered neighbours is a constraint saying how many of its
+variables are mines. Constraints that share no variable are independent, so the system
+is split into components that can be enumerated separately, and in parallel.
+Used by the solver and by the mine-probability hints. */
+class Frontier {
+	static final int COVERED = -1; // Covered cell nothing is known about
+	static final int MINE = -2; // Covered cell known to be a mine
+	static final int SAFE = -3; // Covered cell known to be safe
+
+	final int[] vars; // Board index of each variable
+	final int[][] constraintVars; // Variables of each constraint
+	final int[] need; // Number of mines still missing around each constraint
+	final int[][] varConstraints; // Constraints of each variable
+	final int[][] components; // Variables of each independent component
+
+	/*
+	 * Builds the constraint system from a view of the board. grid: The neighbours
+	 * of the cells. view: For each cell its opened number 0-8, or COVERED, MINE or
+	 * SAFE.
+	 */
+	Frontier(Topology.Grid grid, int[] view) {
+		int cells = view.length;
+		int[] varOf = new int[cells]; // Variable number + 1 of each cell, 0 if none
+		List<int[]> cons = new ArrayList<>();
+		List<Integer> needs = new ArrayList<>();
+		int nVars = 0;
+		int[] nbrs = new int[8];
+		for (int index = 0; index < cells; index++) {
+			if (view[index] < 0)
+				continue;
+			int n = grid.neighbors(index, nbrs);
+			int covered = 0, mines = 0;
+			for (int k = 0; k < n; k++) {
+				if (view[nbrs[k]] == COVERED)
+					covered++;
+				else if (view[nbrs[k]] == MINE)
+					mines++;
+			}
+			if (covered == 0)
+				continue;
+			int[] cv = new int[covered];
+			covered = 0;
+			for (int k = 0; k < n; k++) {
+				int nb = nbrs[k];
+				if (view[nb] == COVERED) {
+					if (varOf[nb] == 0)
+						varOf[nb] = ++nVars;
+					cv[covered++] = varOf[nb] - 1;
+				}
+			}
+			cons.add(cv);
+			needs.add(view[index] - mines);
+		}
+
+		vars = new int[nVars];
+		for (int index = 0; index < cells; index++) {
+			if (varOf[index] != 0)
+				vars[varOf[index] - 1] = index;
+		}
+		constraintVars = cons.toArray(new int[0][]);
+		need = new int[needs.size()];
+		for (int c = 0; c < need.length; c++)
+			need[c] = needs.get(c);
+
+		// Invert the constraint lists and join variables that share a constraint
+		int[] degree = new int[nVars];
+		int[] parent = new int[nVars];
+		for (int v = 0; v < nVars; v++)
+			parent[v] = v;
+		for (int[] cv : constraintVars) {
+			for (int v : cv) {
+				degree[v]++;
+				union(parent, cv[0], v);
+			}
+		}
+		varConstraints = new int[nVars][];
+		for (int v = 0; v < nVars; v++)
+			varConstraints[v] = new int[degree[v]];
+		Arrays.fill(degree, 0);
+		for (int c = 0; c < constraintVars.length; c++) {
+			for (int v : constraintVars[c])
+				varConstraints[v][degree[v]++] = c;
+		}
+
+		// Group the variables by component
+		int[] compOf = new int[nVars];
+		int nComps = 0;
+		int[] size = new int[nVars];
+		Arrays.fill(compOf, -1);
+		for (int v = 0; v < nVars; v++) {
+			int root = find(parent, v);
+			if (compOf[root] < 0)
+				compOf[root] = nComps++;
+			size[compOf[root]]++;
+		}
+		components = new int[nComps][];
+		for (int c = 0; c < nComps; c++)
+			components[c] = new int[size[c]];
+		Arrays.fill(size, 0);
+		for (int v = 0; v < nVars; v++) {
+			int c = compOf[find(parent, v)];
+			components[c][size[c]++] = v;
+		}
+	}
+
+	private static int find(int[] parent, int v) {
+		while (parent[v] != v) {
+			parent[v] = parent[parent[v]];
+			v = parent[v];
+		}
+		return v;
+	}
+
+	private static void union(int[] parent, int a, int b) {
+		a = find(parent, a);
+		b = find(parent, b);
+		if (a != b)
+			parent[b] = a;
+	}
+
+	/*
+	 * Counts the solutions of one component, grouped by the number of mines they
+	 * use: solutions[k] is the number of assignments with k mines and
+	 * mineCounts[k][i] how many of those make vars[i] a mine. Keeping the counts
+	 * per k lets callers combine components with the global mine count without
+	 * enumerating them again.
+	 */
+	static final class Table {
+		final int[] vars; // Variables of the component
+		final long[] solutions; // Number of solutions by number of mines
+		final long[][] mineCounts; // [k][i]: solutions with k mines where vars[i] is a mine
+		final boolean complete; // False if the node budget ran out before all solutions were found
+
+		Table(int[] vars, long[] solutions, long[][] mineCounts, boolean complete) {
+			this.vars = vars;
+			this.solutions = solutions;
+			this.mineCounts = mineCounts;
+			this.complete = complete;
+		}
+
+		/* Returns the total number of solutions. */
+		long total() {
+			long sum = 0;
+			for (long s : solutions)
+				sum += s;
+			return sum;
+		}
+	}
+
+	/*
+	 * Enumerates every solution of a component by backtracking, pruning a branch as
+	 * soon as a constraint has too many or too few mines left. comp: The index of
+	 * the component. budget: The largest number of search nodes to visit. Returns
+	 * the solution table, marked incomplete if the budget ran out.
+	 */
+	Table enumerate(int comp, long budget) {
+		int[] order = searchOrder(components[comp]);
+		int n = order.length;
+		long[] solutions = new long[n + 1];
+		long[][] mineCounts = new long[n + 1][n];
+
+		// Mines placed and variables left unassigned around each constraint
+		int[] placed = new int[need.length];
+		int[] open = new int[need.length];
+		for (int v : order) {
+			for (int c : varConstraints[v])
+				open[c]++;
+		}
+		boolean[] value = new boolean[n];
+		int[] state = new int[n + 1]; // 0: try safe next, 1: try mine next, 2: done
+		int depth = 0, mines = 0;
+		long nodes = 0;
+		while (depth >= 0) {
+			if (depth == n) {// All variables assigned: record the solution
+				solutions[mines]++;
+				for (int i = 0; i < n; i++) {
+					if (value[i])
+						mineCounts[mines][i]++;
+				}
+				depth--;
+				continue;
+			}
+			int v = order[depth];
+			if (state[depth] > 0) {// Undo the previous choice for this variable
+				for (int c : varConstraints[v]) {
+					open[c]++;
+					if (value[depth])
+						placed[c]--;
+				}
+				if (value[depth])
+					mines--;
+			}
+			if (state[depth] == 2 || ++nodes > budget) {
+				state[depth] = 0;
+				depth--;
+				if (nodes > budget)
+					return new Table(order, solutions, mineCounts, false);
+				continue;
+			}
+			boolean mine = state[depth]++ == 1;
+			value[depth] = mine;
+			boolean ok = true;
+			for (int c : varConstraints[v]) {
+				open[c]--;
+				if (mine)
+					placed[c]++;
+				if (placed[c] > need[c] || placed[c] + open[c] < need[c])
+					ok = false;
+			}
+			if (mine)
+				mines++;
+			if (ok)
+				depth++;
+		}
+		return new Table(order, solutions, mineCounts, true);
+	}
+
+	/*
+	 * Orders the variables of a component so that each one shares a constraint
+	 * with an earlier one, which lets constraints close and prune early.
+	 */
+	private int[] searchOrder(int[] comp) {
+		int[] order = new int[comp.length];
+		boolean[] seen = new boolean[vars.length];
+		boolean[] used = new boolean[need.length];
+		int head = 0, tail = 0;
+		order[tail++] = comp[0];
+		seen[comp[0]] = true;
+		while (head < tail) {
+			int v = order[head++];
+			for (int c : varConstraints[v]) {
+				if (used[c])
+					continue;
+				used[c] = true;
+				for (int w : constraintVars[c]) {
+					if (!seen[w]) {
+						seen[w] = true;
+						order[tail++] = w;
+					}
+				}
+			}
+		}
+		return order;
+	}
+}
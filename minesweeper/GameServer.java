@@ -0,0 +1,358 @@
+package mines;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/* Hosts many independent games in one JVM for bots and remote players. Clients connect
+over TCP on the loopback interface and send one request per line; every request gets
+exactly one response line, starting with OK or ERR:
+
+    NEW rows cols mines [seed]   -> OK id                 a new game, mines placed on the first open
+    OPEN id row col              -> OK PLAYING|WON|LOST n  n is the number of cells the move opened
+    FLAG id row col              -> OK flags              the number of flags now on the board
+    VIEW id [row col rows cols]  -> OK row/row/...        the board, or a window of it clipped to
+                                                          the board, as CellState characters
+    CLOSE id                     -> OK
+    STATS                        -> OK sessions=.. cells=.. created=.. evicted=.. requests=..
+
+Sessions are not tied to a connection, so any connection may play any game by its id.
+Each connection is served by its own virtual thread, so thousands of mostly idle
+clients cost little more than their sockets. Games live in a concurrent registry and
+a move locks only its own game, so moves on different games never wait for each
+other. The lock is a ReentrantLock rather than a monitor, so a virtual thread waiting
+for a game, or placing its mines on the first open, unmounts instead of pinning its
+carrier thread. Both the number of games and their cells together are capped, the
+cells by default to half the heap, and a NEW the heap cannot hold anyway is refused
+with ERR. A VIEW answers at most MAX_VIEW cells, so larger boards are read in windows. Games that see no request for the idle timeout
+are evicted.
+
+    java -cp <classes> mines.GameServer --port 7878 --idle 300 --max-sessions 100000 --max-cells 1000000000 */
+public class GameServer {
+	private static final int MAX_CELLS = 1 << 24; // Largest board a client may create
+	private static final int MAX_LINE = 256; // Longest request accepted, in characters
+	private static final int MAX_VIEW = 1 << 16; // Most cells a VIEW response holds
+
+	private final int maxSessions; // Most games kept at once
+	private final long maxCells; // Most cells of all games together
+	private final AtomicInteger sessionCount = new AtomicInteger(); // Games kept or being created
+	private final AtomicLong cellCount = new AtomicLong(); // Cells of those games
+	private final long idleNanos; // Time without requests after which a game is evicted
+	private final Map<Long, Session> sessions = new ConcurrentHashMap<>(); // Games by id
+	private final AtomicLong nextId = new AtomicLong(1);
+	private final AtomicLong created = new AtomicLong(), evicted = new AtomicLong(), requests = new AtomicLong();
+	private final SplittableRandom seeds = new SplittableRandom(); // Seeds of games created without one
+
+	/*
+	 * Creates a server without starting it. maxSessions: The most games kept at
+	 * once. maxCells: The most cells of all games together. idleSeconds: The time
+	 * without requests after which a game is evicted.
+	 */
+	public GameServer(int maxSessions, long maxCells, long idleSeconds) {
+		this.maxSessions = maxSessions;
+		this.maxCells = maxCells;
+		this.idleNanos = TimeUnit.SECONDS.toNanos(idleSeconds);
+	}
+
+	public static void main(String[] args) throws IOException {
+		int port = 7878, maxSessions = 100_000;
+		long idle = 300, maxCells = Runtime.getRuntime().maxMemory() / 2;// A cell takes a little over a byte
+		for (int i = 0; i < args.length; i += 2) {
+			if (i + 1 == args.length)
+				throw new IllegalArgumentException("Missing value for " + args[i]);
+			String value = args[i + 1];
+			switch (args[i]) {
+			case "--port" -> port = Integer.parseInt(value);
+			case "--idle" -> idle = Long.parseLong(value);
+			case "--max-sessions" -> maxSessions = Integer.parseInt(value);
+			case "--max-cells" -> maxCells = Long.parseLong(value);
+			default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+			}
+		}
+		GameServer server = new GameServer(maxSessions, maxCells, idle);
+		try (ServerSocket socket = new ServerSocket(port, 1024, InetAddress.getLoopbackAddress())) {
+			System.out.println("Listening on " + socket.getLocalSocketAddress());
+			server.serve(socket);
+		}
+	}
+
+	/* One game: the board, how its mines are placed and when it was last used. */
+	private static final class Session {
+		final MinesLogic board;
+		final MineGenerator generator;
+		final int numMines;
+		final ReentrantLock lock = new ReentrantLock();
+		boolean placed, over; // Guarded by lock
+		volatile long lastUsed = System.nanoTime();
+
+		Session(int rows, int cols, int numMines, long seed) {
+			this.board = new MinesLogic(rows, cols, 0);
+			this.generator = new MineGenerator(seed, 0);// Labels would take 8 bytes a cell more than maxCells counts
+			this.numMines = numMines;
+		}
+	}
+
+	/*
+	 * Accepts connections until the socket is closed, serving each on its own
+	 * virtual thread, and evicts idle games in the background.
+	 */
+	public void serve(ServerSocket socket) throws IOException {
+		ScheduledExecutorService evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "session-evictor");
+			thread.setDaemon(true);
+			return thread;
+		});
+		long period = Math.max(1, TimeUnit.NANOSECONDS.toMillis(idleNanos) / 4);
+		evictor.scheduleAtFixedRate(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+		try {
+			while (!socket.isClosed()) {
+				Socket client = socket.accept();
+				Thread.ofVirtual().name("client-", client.getPort()).start(() -> handle(client));
+			}
+		} finally {
+			evictor.shutdownNow();
+		}
+	}
+
+	/* Serves one connection until the client closes it. */
+	private void handle(Socket client) {
+		try (client) {
+			client.setTcpNoDelay(true);// Responses are small and latency matters more than packets
+			BufferedReader in = new BufferedReader(
+					new InputStreamReader(client.getInputStream(), StandardCharsets.US_ASCII));
+			Writer out = new BufferedWriter(new OutputStreamWriter(client.getOutputStream(), StandardCharsets.US_ASCII));
+			String line;
+			while ((line = in.readLine()) != null) {
+				out.write(execute(line));
+				out.write('\n');
+				if (!in.ready())
+					out.flush();// Pipelined requests are answered in one write
+			}
+		} catch (IOException e) {
+			// The client went away; its games stay until they are closed or evicted
+		}
+	}
+
+	/* Runs one request line and returns the response line. */
+	String execute(String line) {
+		requests.incrementAndGet();
+		if (line.length() > MAX_LINE)
+			return "ERR request too long";
+		String[] args = line.trim().split("\\s+");
+		try {
+			return switch (args[0].toUpperCase()) {
+			case "NEW" -> create(args);
+			case "OPEN" -> open(args);
+			case "FLAG" -> flag(args);
+			case "VIEW" -> view(args);
+			case "CLOSE" -> close(args);
+			case "STATS" -> "OK " + stats();
+			default -> "ERR unknown command " + args[0];
+			};
+		} catch (NumberFormatException e) {
+			return "ERR bad number: " + e.getMessage();
+		} catch (IllegalArgumentException e) {
+			return "ERR " + e.getMessage();
+		}
+	}
+
+	/* NEW rows cols mines [seed] */
+	private String create(String[] args) {
+		checkArgs(args, 4, 5);
+		int rows = Integer.parseInt(args[1]), cols = Integer.parseInt(args[2]), mines = Integer.parseInt(args[3]);
+		if (rows <= 0 || cols <= 0 || (long) rows * cols > MAX_CELLS)
+			throw new IllegalArgumentException("board must have between 1 and " + MAX_CELLS + " cells");
+		if (mines < 0 || mines >= rows * cols)
+			throw new IllegalArgumentException("mines must be less than the number of cells");
+		long seed;
+		if (args.length == 5) {
+			seed = Long.parseLong(args[4]);
+		} else {
+			synchronized (seeds) {
+				seed = seeds.nextLong();
+			}
+		}
+		reserve(rows * cols);
+		Session session;
+		try {
+			session = new Session(rows, cols, mines, seed);
+		} catch (OutOfMemoryError e) {
+			release(rows * cols);
+			return "ERR out of memory";
+		} catch (RuntimeException e) {
+			release(rows * cols);
+			throw e;
+		}
+		long id = nextId.getAndIncrement();
+		sessions.put(id, session);
+		created.incrementAndGet();
+		return "OK " + id;
+	}
+
+	/*
+	 * Takes a slot for a new game and its cells, so concurrent NEW requests never
+	 * get past the limits together. cells: The cells of the game. Throws
+	 * IllegalArgumentException if either limit would be passed.
+	 */
+	private void reserve(int cells) {
+		if (sessionCount.incrementAndGet() > maxSessions) {
+			sessionCount.decrementAndGet();
+			throw new IllegalArgumentException("server full");
+		}
+		if (cellCount.addAndGet(cells) > maxCells) {
+			release(cells);
+			throw new IllegalArgumentException("server full");
+		}
+	}
+
+	/* Gives back the slot and cells of a game that was removed or never created. */
+	private void release(int cells) {
+		cellCount.addAndGet(-cells);
+		sessionCount.decrementAndGet();
+	}
+
+	private void release(Session session) {
+		release(session.board.getHeight() * session.board.getWidth());
+	}
+
+	/* OPEN id row col */
+	private String open(String[] args) {
+		checkArgs(args, 4, 4);
+		Session session = session(args[1]);
+		int row = Integer.parseInt(args[2]), col = Integer.parseInt(args[3]);
+		session.lock.lock();
+		try {
+			MinesLogic board = session.board;
+			checkCell(board, row, col);
+			if (session.over)
+				throw new IllegalArgumentException("game over");
+			if (!session.placed) {// The first open is always safe; linear in the cells, at most MAX_CELLS
+				session.generator.place(board, session.numMines, row, col);
+				session.placed = true;
+			}
+			int before = board.getRemainingSafeCells();
+			boolean alive = board.open(row, col);
+			String status = !alive ? "LOST" : board.isDone() ? "WON" : "PLAYING";
+			session.over = !"PLAYING".equals(status);
+			return "OK " + status + " " + (before - board.getRemainingSafeCells());
+		} finally {
+			session.lock.unlock();
+		}
+	}
+
+	/* FLAG id row col */
+	private String flag(String[] args) {
+		checkArgs(args, 4, 4);
+		Session session = session(args[1]);
+		int row = Integer.parseInt(args[2]), col = Integer.parseInt(args[3]);
+		session.lock.lock();
+		try {
+			MinesLogic board = session.board;
+			checkCell(board, row, col);
+			if (session.over)
+				throw new IllegalArgumentException("game over");
+			board.toggleFlag(row, col);
+			return "OK " + board.getFlagsPlaced();
+		} finally {
+			session.lock.unlock();
+		}
+	}
+
+	/* VIEW id [row col rows cols] */
+	private String view(String[] args) {
+		if (args.length != 2)
+			checkArgs(args, 6, 6);
+		Session session = session(args[1]);
+		session.lock.lock();
+		try {
+			MinesLogic board = session.board;
+			int top = 0, left = 0, rows = board.getHeight(), cols = board.getWidth();
+			if (args.length == 6) {
+				top = Integer.parseInt(args[2]);
+				left = Integer.parseInt(args[3]);
+				checkCell(board, top, left);
+				if (Integer.parseInt(args[4]) <= 0 || Integer.parseInt(args[5]) <= 0)
+					throw new IllegalArgumentException("window must have at least one cell");
+				rows = Math.min(Integer.parseInt(args[4]), rows - top);
+				cols = Math.min(Integer.parseInt(args[5]), cols - left);
+			}
+			if ((long) rows * cols > MAX_VIEW)
+				throw new IllegalArgumentException("view of more than " + MAX_VIEW + " cells, ask for a window");
+			byte[] cells = new byte[rows * cols];
+			board.readRegion(top, left, rows, cols, cells, 0);
+			StringBuilder out = new StringBuilder(3 + rows * (cols + 1)).append("OK ");
+			for (int k = 0; k < cells.length; k++) {
+				if (k > 0 && k % cols == 0)
+					out.append('/');
+				out.append(CellState.toChar(cells[k]));
+			}
+			return out.toString();
+		} finally {
+			session.lock.unlock();
+		}
+	}
+
+	/* CLOSE id */
+	private String close(String[] args) {
+		checkArgs(args, 2, 2);
+		Session session = sessions.remove(Long.parseLong(args[1]));
+		if (session == null)
+			throw new IllegalArgumentException("no game " + args[1]);
+		release(session);
+		return "OK";
+	}
+
+	/* Returns the statistics of the server as name=value pairs. */
+	public String stats() {
+		return "sessions=" + sessions.size() + " cells=" + cellCount.get() + " created=" + created.get() + " evicted="
+				+ evicted.get() + " requests=" + requests.get();
+	}
+
+	/* Looks up a game and marks it as used. */
+	private Session session(String id) {
+		Session session = sessions.get(Long.parseLong(id));
+		if (session == null)
+			throw new IllegalArgumentException("no game " + id);
+		session.lastUsed = System.nanoTime();
+		return session;
+	}
+
+	/* Removes the games that have not been used for the idle timeout. */
+	void evictIdle() {
+		long now = System.nanoTime();
+		for (Map.Entry<Long, Session> entry : sessions.entrySet()) {
+			Session session = entry.getValue();
+			// Only the request that removes a game gives its slot back, should CLOSE race with this
+			if (now - session.lastUsed >= idleNanos && sessions.remove(entry.getKey(), session)) {
+				evicted.incrementAndGet();
+				release(session);
+			}
+		}
+	}
+
+	private static void checkArgs(String[] args, int min, int max) {
+		if (args.length < min || args.length > max)
+			throw new IllegalArgumentException("wrong number of arguments for " + args[0]);
+	}
+
+	private static void checkCell(MinesLogic board, int row, int col) {
+		if (row < 0 || col < 0 || row >= board.getHeight() || col >= board.getWidth())
+			throw new IllegalArgumentException("cell outside the board");
+	}
+}
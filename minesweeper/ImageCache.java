@@ -0,0 +1,73 @@
+package mines;
+
+import java.net.URL;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+
+/* Process-wide cache of the game images. Each image is decoded once from the
+classpath (the graphics folder next to the mines package) and then shared by every
+view. Renderers that need the image at cell size get a pre-scaled copy, decoded once
+per name and size; the copies of the last few sizes are kept, so switching between
+views or zooming back and forth does not decode the image again. */
+public class ImageCache {
+	public static final String FLAG = "flag.png"; // Image shown on flagged cells
+	public static final String MINE = "spike.png"; // Image shown on mines, also the window icon
+
+	private static final Map<String, Image> originals = new ConcurrentHashMap<>(); // Full-size images by name
+	private static final int SCALED_KEPT = 16; // Scaled copies kept, for all names together
+	// Scaled copies by name and size in pixels, least recently used first
+	private static final Map<String, Image> scaled = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Image> eldest) {
+			return size() > SCALED_KEPT;
+		}
+	});
+
+	private ImageCache() {
+	}
+
+	/*
+	 * Returns the full-size image with the given name, loading it on first use.
+	 * name: The file name of the image in the graphics folder.
+	 */
+	public static Image get(String name) {
+		return originals.computeIfAbsent(name, n -> new Image(resource(n).toExternalForm()));
+	}
+
+	/*
+	 * Returns the image scaled to fit a square of the given size. The scaled copy
+	 * is cached with the copies of a few other sizes. name: The file name of the
+	 * image. size: The side of the square in pixels.
+	 */
+	public static Image get(String name, double size) {
+		long px = Math.max(1, Math.round(size));
+		return scaled.computeIfAbsent(name + '@' + px, key -> new Image(resource(name).toExternalForm(), px, px, true, true));
+	}
+
+	/*
+	 * Returns a new ImageView that shows the shared image scaled to the given size.
+	 * Views are cheap; the pixels behind them are decoded only once. name: The file
+	 * name of the image. size: The side of the square in pixels.
+	 */
+	public static ImageView view(String name, double size) {
+		ImageView imageView = new ImageView(get(name, size));
+		imageView.setPreserveRatio(true);
+		return imageView;
+	}
+
+	/*
+	 * Finds an image on the classpath. name: The file name of the image. Throws
+	 * IllegalStateException if the image is missing from the classpath.
+	 */
+	private static URL resource(String name) {
+		URL url = ImageCache.class.getResource("/graphics/" + name);
+		if (url == null)
+			throw new IllegalStateException("Image not found on the classpath: /graphics/" + name);
+		return url;
+	}
+}
@@ -0,0 +1,93 @@
+package mines;
+
+import java.util.Arrays;
+
+/* Counts durations in logarithmic buckets with 16 linear sub-buckets each, so any
+value from 1 ns to hours is recorded in constant time and memory with a relative
+error below 1/16. Not thread-safe: every thread records into its own histogram and
+the histograms are added together at the end. */
+public class LatencyHistogram {
+	private static final int SUB_BITS = 4; // log2 of the sub-buckets per power of two
+	private static final int SUB = 1 << SUB_BITS;
+
+	private final long[] counts = new long[64 * SUB];
+	private long count, sum, max;
+
+	/* Records one duration in nanoseconds; negative values count as 0. */
+	public void record(long nanos) {
+		nanos = Math.max(0, nanos);
+		counts[bucket(nanos)]++;
+		count++;
+		sum += nanos;
+		max = Math.max(max, nanos);
+	}
+
+	/* Adds all the values recorded in another histogram to this one. */
+	public void add(LatencyHistogram other) {
+		for (int i = 0; i < counts.length; i++)
+			counts[i] += other.counts[i];
+		count += other.count;
+		sum += other.sum;
+		max = Math.max(max, other.max);
+	}
+
+	/* Forgets every recorded value. */
+	public void clear() {
+		Arrays.fill(counts, 0);
+		count = sum = max = 0;
+	}
+
+	/* Returns the number of recorded values. */
+	public long getCount() {
+		return count;
+	}
+
+	/* Returns the mean of the recorded values in nanoseconds. */
+	public double getMean() {
+		return count == 0 ? 0 : (double) sum / count;
+	}
+
+	/* Returns the largest recorded value in nanoseconds. */
+	public long getMax() {
+		return max;
+	}
+
+	/*
+	 * Returns a value that at least the given share of the recorded values do not
+	 * exceed, rounded up to the end of its bucket. percentile: In [0, 100].
+	 */
+	public long getPercentile(double percentile) {
+		long rank = (long) Math.ceil(percentile / 100 * count);
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= rank && seen > 0)
+				return Math.min(upper(i), max);
+		}
+		return max;
+	}
+
+	private static int bucket(long value) {
+		if (value < SUB)
+			return (int) value;
+		int exp = 63 - Long.numberOfLeadingZeros(value);
+		int sub = (int) (value >>> (exp - SUB_BITS)) & (SUB - 1);
+		return (exp - SUB_BITS + 1) * SUB + sub;
+	}
+
+	/* Returns the largest value that falls in a bucket. */
+	private static long upper(int bucket) {
+		if (bucket < SUB)
+			return bucket;
+		int exp = bucket / SUB + SUB_BITS - 1;
+		int sub = bucket % SUB;
+		return ((SUB + sub + 1L) << (exp - SUB_BITS)) - 1;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("n=%d mean=%.1fus p50=%.1fus p90=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus", count,
+				getMean() / 1e3, getPercentile(50) / 1e3, getPercentile(90) / 1e3, getPercentile(99) / 1e3,
+				getPercentile(99.9) / 1e3, max / 1e3);
+	}
+}
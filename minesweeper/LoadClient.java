@@ -0,0 +1,152 @@
+package mines;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/* Measures the throughput and latency of a GameServer. Every client holds its own
+connection, on its own virtual thread, and plays games back to back for the duration
+of the run: it creates a game, opens random cells it has not opened before until the
+game is won or lost, and closes it. Each request waits for its response, so the
+latency of every round trip is recorded:
+
+    java -cp <classes> mines.LoadClient --clients 256 --seconds 10
+
+Options: --host and --port of the server (localhost:7878 by default), --clients,
+--seconds, --rows, --cols and --mines (expert 16x30 with 99 mines by default) and
+--seed. */
+public class LoadClient {
+	private String host = "localhost";
+	private int port = 7878;
+	private int clients = 64;
+	private long seconds = 10;
+	private int rows = 16, cols = 30, mines = 99;
+	private long seed = 1;
+
+	public static void main(String[] args) throws Exception {
+		LoadClient load = new LoadClient();
+		for (int i = 0; i < args.length; i += 2) {
+			if (i + 1 == args.length)
+				throw new IllegalArgumentException("Missing value for " + args[i]);
+			String value = args[i + 1];
+			switch (args[i]) {
+			case "--host" -> load.host = value;
+			case "--port" -> load.port = Integer.parseInt(value);
+			case "--clients" -> load.clients = Integer.parseInt(value);
+			case "--seconds" -> load.seconds = Long.parseLong(value);
+			case "--rows" -> load.rows = Integer.parseInt(value);
+			case "--cols" -> load.cols = Integer.parseInt(value);
+			case "--mines" -> load.mines = Integer.parseInt(value);
+			case "--seed" -> load.seed = Long.parseLong(value);
+			default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+			}
+		}
+		long start = System.nanoTime();
+		Stats stats = load.run();
+		System.out.println(load.report(stats, System.nanoTime() - start));
+	}
+
+	/* Runs every client until the deadline. Returns their statistics added together. */
+	Stats run() throws Exception {
+		long deadline = System.nanoTime() + seconds * 1_000_000_000;
+		try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+			List<Future<Stats>> parts = new ArrayList<>();
+			SplittableRandom seeds = new SplittableRandom(seed);
+			for (int c = 0; c < clients; c++) {
+				SplittableRandom random = seeds.split();
+				parts.add(pool.submit(() -> play(random, deadline)));
+			}
+			Stats total = new Stats();
+			for (Future<Stats> part : parts)
+				total.add(part.get());
+			return total;
+		}
+	}
+
+	/* Plays games on one connection until the deadline. */
+	private Stats play(SplittableRandom random, long deadline) throws IOException {
+		Stats stats = new Stats();
+		int cells = rows * cols;
+		int[] order = new int[cells];
+		try (Socket socket = new Socket(host, port)) {
+			socket.setTcpNoDelay(true);
+			BufferedReader in = new BufferedReader(
+					new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+			Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII));
+			while (System.nanoTime() < deadline) {
+				String created = call(in, out, "NEW " + rows + " " + cols + " " + mines, stats);
+				if (created.startsWith("ERR"))
+					break;// The server is full or refuses the board
+				String id = created.substring(3);
+				for (int i = 0; i < cells; i++)
+					order[i] = i;
+				String status = "PLAYING";
+				// Open the cells in a random order, skipping the ones already opened
+				for (int i = 0; i < cells && status.equals("PLAYING"); i++) {
+					int k = i + random.nextInt(cells - i);
+					int cell = order[k];
+					order[k] = order[i];
+					String response = call(in, out, "OPEN " + id + " " + cell / cols + " " + cell % cols, stats);
+					if (response.startsWith("ERR"))
+						break;
+					status = response.substring(3, response.indexOf(' ', 3));
+				}
+				call(in, out, "CLOSE " + id, stats);
+				stats.games++;
+				if (status.equals("WON"))
+					stats.wins++;
+			}
+		}
+		return stats;
+	}
+
+	/* Sends one request and waits for its response, recording the round trip. */
+	private static String call(BufferedReader in, Writer out, String request, Stats stats) throws IOException {
+		long start = System.nanoTime();
+		out.write(request);
+		out.write('\n');
+		out.flush();
+		String response = in.readLine();
+		stats.latency.record(System.nanoTime() - start);
+		if (response == null)
+			throw new IOException("Server closed the connection");
+		if (response.startsWith("ERR"))
+			stats.errors++;
+		return response;
+	}
+
+	/* Formats the statistics of a run. nanos: The wall-clock time of the run. */
+	String report(Stats stats, long nanos) {
+		StringBuilder out = new StringBuilder();
+		out.append(String.format("server=%s:%d clients=%d board=%dx%d/%d%n", host, port, clients, rows, cols, mines));
+		out.append(String.format("games=%d wins=%d errors=%d%n", stats.games, stats.wins, stats.errors));
+		out.append(String.format("throughput=%.0f requests/s in %.2fs%n", stats.latency.getCount() * 1e9 / nanos,
+				nanos / 1e9));
+		out.append("request latency: ").append(stats.latency);
+		return out.toString();
+	}
+
+	/* The outcome of the requests made by one client, or of all of them. */
+	static final class Stats {
+		long games, wins, errors;
+		final LatencyHistogram latency = new LatencyHistogram();
+
+		void add(Stats other) {
+			games += other.games;
+			wins += other.wins;
+			errors += other.errors;
+			latency.add(other.latency);
+		}
+	}
+}
@@ -0,0 +1,375 @@
+package mines;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/* A saved game read in place through memory mapping, so opening it takes the same time
+whatever the size of the board, and only the pages actually read are loaded. The file
+is mapped in segments of 1 GB, so boards larger than a single mapping can hold, up to
+height * width cells of any int size, can be read as well. Cells are looked up and
+adjacent-mine counts worked out on demand. A board from BoardFile.resume() is mapped
+privately and can be played in place: a move changes the mapped cells, the operating
+system copies just the pages it touches, and the file is only changed by save(), so
+resuming a game reads the header and nothing else. Saves whose mines are still to be
+placed on the first click, and callers that need a MinesLogic, use toMinesLogic(),
+which copies every cell onto the heap, at about a byte per cell, and refuses boards
+that would take more than half of the heap still free. The mapping stays valid after
+close(), which only releases the file handle. */
+public class MappedBoard implements AutoCloseable {
+	private static final int SEGMENT_BITS = 30; // 1 GB mapped per segment
+	private static final long SEGMENT_MASK = (1L << SEGMENT_BITS) - 1;
+	private static final int LOAD_BYTES_PER_CELL = 2; // Heap asked of toMinesLogic per cell, with room to spare
+
+	private final FileChannel channel;
+	private final MappedByteBuffer[] segments;
+	private final int height, width;
+	private final Topology topology;
+	private final Topology.Grid grid; // Neighbours on other topologies than the square board, null for it
+	private final long seed;
+	private final int numMines, minesToPlace;
+	private int openCount, flagCount;
+	private final boolean playable; // Whether the file is mapped privately, so moves can change the cells
+	private boolean showAll;
+	private final int[] around; // Neighbours of the cell being flooded, on other topologies than the square board
+	private final int[] counted; // Neighbours of the cell being counted, on other topologies than the square board
+	private long[] stack = new long[64]; // Work stack of the flood fill
+
+	/*
+	 * Maps a saved game. path: The file to map. playable: True to map it privately,
+	 * so it can be played without changing the file; the file must be writable
+	 * then. Throws IOException if the file is not a valid save.
+	 */
+	MappedBoard(Path path, boolean playable) throws IOException {
+		this.playable = playable;
+		channel = playable ? FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)
+				: FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			long size = channel.size();
+			if (size < BoardFile.HEADER)
+				throw new IOException("Not a saved game, too short: " + path);
+			segments = new MappedByteBuffer[(int) ((size + SEGMENT_MASK) >>> SEGMENT_BITS)];
+			for (int s = 0; s < segments.length; s++) {
+				long start = (long) s << SEGMENT_BITS;
+				segments[s] = channel.map(playable ? FileChannel.MapMode.PRIVATE : FileChannel.MapMode.READ_ONLY, start,
+						Math.min(size - start, 1L << SEGMENT_BITS));
+			}
+			MappedByteBuffer header = segments[0];
+			if (header.getInt(0) != BoardFile.MAGIC)
+				throw new IOException("Not a saved game: " + path);
+			if (header.getShort(4) != BoardFile.VERSION)
+				throw new IOException("Unsupported save version " + header.getShort(4) + ": " + path);
+			if (header.getShort(6) < 0 || header.getShort(6) >= Topology.values().length)
+				throw new IOException("Unknown topology " + header.getShort(6) + ": " + path);
+			topology = Topology.fromCode(header.getShort(6));
+			height = header.getInt(8);
+			width = header.getInt(12);
+			seed = header.getLong(16);
+			numMines = header.getInt(24);
+			openCount = header.getInt(28);
+			flagCount = header.getInt(32);
+			minesToPlace = header.getInt(36);
+			if (height <= 0 || width <= 0 || size < BoardFile.HEADER + ((long) height * width + 1) / 2)
+				throw new IOException("Saved game is truncated: " + path);
+			if (topology.isSquare())
+				grid = null;
+			else if ((long) height * width > Integer.MAX_VALUE - 8)
+				throw new IOException("Only square boards can have more cells than a MinesLogic: " + path);
+			else
+				grid = topology.bind(height, width);
+			around = new int[topology.maxNeighbors()];
+			counted = new int[topology.maxNeighbors()];
+		} catch (IllegalArgumentException e) {
+			channel.close();
+			throw new IOException("Saved game is corrupt: " + e.getMessage());
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/* Returns the number of rows of the board. */
+	public int getHeight() {
+		return height;
+	}
+
+	/* Returns the number of columns of the board. */
+	public int getWidth() {
+		return width;
+	}
+
+	/* Returns which cells are neighbours on the board. */
+	public Topology getTopology() {
+		return topology;
+	}
+
+	/* Returns the seed of the board's MineGenerator. */
+	public long getSeed() {
+		return seed;
+	}
+
+	/* Returns the number of mines on the board. */
+	public int getNumMines() {
+		return numMines;
+	}
+
+	/* Returns the number of opened cells. */
+	public int getOpenCount() {
+		return openCount;
+	}
+
+	/* Returns the number of flagged cells. */
+	public int getFlagsPlaced() {
+		return flagCount;
+	}
+
+	/* Returns the number of mines still to be placed on the first click. */
+	public int getMinesToPlace() {
+		return minesToPlace;
+	}
+
+	/* Returns true if every non-mine cell is opened. */
+	public boolean isDone() {
+		return (long) height * width - numMines == openCount;
+	}
+
+	/* Returns the number of cells without a mine that are still to be opened. */
+	public long getRemainingSafeCells() {
+		return (long) height * width - numMines - openCount;
+	}
+
+	/* Returns true if the board can be played in place, as mapped by BoardFile.resume(). */
+	public boolean isPlayable() {
+		return playable && minesToPlace == 0;
+	}
+
+	/*
+	 * Opens a cell at the specified position, and the empty region around it, in
+	 * the mapped cells. row: The row index of the position. col: The column index
+	 * of the position. Returns false if the cell contains a mine; otherwise true.
+	 * Throws IllegalStateException unless isPlayable().
+	 */
+	public boolean open(int row, int col) {
+		long index = index(row, col);
+		checkPlayable();
+		int bits = bits(index);
+		if ((bits & 1) != 0)
+			return false;
+		if ((bits & 2) == 0) {
+			setBits(index, bits | 2);
+			openCount++;
+			if (adjacentMines(index) == 0)
+				flood(index);
+		}
+		return true;
+	}
+
+	/*
+	 * Toggles a flag on a cell at the specified position, in the mapped cells. row:
+	 * The row index of the position. col: The column index of the position. Throws
+	 * IllegalStateException unless isPlayable().
+	 */
+	public void toggleFlag(int row, int col) {
+		long index = index(row, col);
+		checkPlayable();
+		int bits = bits(index) ^ 4;
+		setBits(index, bits);
+		flagCount += (bits & 4) != 0 ? 1 : -1;
+	}
+
+	/*
+	 * Sets whether state() shows every cell. showAll: True to reveal all cells,
+	 * false to show only opened cells.
+	 */
+	public void setShowAll(boolean showAll) {
+		this.showAll = showAll;
+	}
+
+	/*
+	 * Retrieves the string representation of the cell at the specified position,
+	 * as MinesLogic.get does. row: The row index of the position. col: The column
+	 * index of the position.
+	 */
+	public String get(int row, int col) {
+		return CellState.toText(state(row, col));
+	}
+
+	/*
+	 * Returns what a player sees in a cell as a CellState code, as MinesLogic.state
+	 * does. row: The row index of the position. col: The column index of the
+	 * position.
+	 */
+	public byte state(int row, int col) {
+		long index = index(row, col);
+		int bits = bits(index);
+		if (showAll || (bits & 2) != 0)
+			return (bits & 1) != 0 ? CellState.MINE : (byte) adjacentMines(index);
+		return (bits & 4) != 0 ? CellState.FLAGGED : CellState.HIDDEN;
+	}
+
+	/*
+	 * Reads the CellState codes of a rectangle of cells into a caller-supplied
+	 * array, row by row, as MinesLogic.readRegion does. row, col: The top-left
+	 * cell. rows, cols: The size of the rectangle. out: Receives rows * cols codes.
+	 * offset: Where the first code goes.
+	 */
+	public void readRegion(int row, int col, int rows, int cols, byte[] out, int offset) {
+		if (rows < 0 || cols < 0 || row < 0 || col < 0 || (long) row + rows > height || (long) col + cols > width)
+			throw new ArrayIndexOutOfBoundsException(
+					"Region (" + row + ", " + col + ") " + rows + "x" + cols + " is outside the board");
+		for (int r = 0; r < rows; r++) {
+			for (int c = 0; c < cols; c++)
+				out[offset++] = state(row + r, col + c);
+		}
+	}
+
+	/* Returns the number of mines adjacent to a cell. */
+	public int getAdjacentMines(int row, int col) {
+		return adjacentMines(index(row, col));
+	}
+
+	private int adjacentMines(long index) {
+		int row = (int) (index / width), col = (int) (index % width), count = 0;
+		if (grid != null) {
+			for (int k = 0, n = grid.neighbors((int) index, counted); k < n; k++)
+				count += bits(counted[k]) & 1;
+			return count;
+		}
+		for (int r = Math.max(row - 1, 0); r <= Math.min(row + 1, height - 1); r++) {
+			for (int c = Math.max(col - 1, 0); c <= Math.min(col + 1, width - 1); c++) {
+				if (r != row || c != col)
+					count += bits((long) r * width + c) & 1;
+			}
+		}
+		return count;
+	}
+
+	/*
+	 * Opens every cell connected to an opened empty cell, with an explicit work
+	 * stack as MinesLogic does, but over long indices, as a mapped board may have
+	 * more cells than an int can count. start: The index of an opened cell with no
+	 * adjacent mines.
+	 */
+	private void flood(long start) {
+		int top = 0;
+		stack[top++] = start;
+		while (top > 0) {
+			long index = stack[--top];
+			if (grid != null) {
+				for (int k = 0, n = grid.neighbors((int) index, around); k < n; k++)
+					top = openNeighbour(around[k], top);
+				continue;
+			}
+			int row = (int) (index / width), col = (int) (index % width);
+			for (int r = Math.max(row - 1, 0); r <= Math.min(row + 1, height - 1); r++) {
+				for (int c = Math.max(col - 1, 0); c <= Math.min(col + 1, width - 1); c++)
+					top = openNeighbour((long) r * width + c, top);
+			}
+		}
+	}
+
+	/*
+	 * Opens a covered cell next to an empty one during a flood, pushing it if it is
+	 * empty as well. Returns the new top of the stack.
+	 */
+	private int openNeighbour(long index, int top) {
+		int bits = bits(index);
+		if ((bits & 3) != 0)
+			return top;// Opened already, or a mine
+		setBits(index, bits | 2);
+		openCount++;
+		if (adjacentMines(index) == 0) {
+			if (top == stack.length)
+				stack = Arrays.copyOf(stack, top * 2);
+			stack[top++] = index;
+		}
+		return top;
+	}
+
+	private void checkPlayable() {
+		if (!playable)
+			throw new IllegalStateException("Mapped for reading only; use BoardFile.resume() to play");
+		if (minesToPlace > 0)
+			throw new IllegalStateException("The mines are placed on the first click; play it with toMinesLogic()");
+	}
+
+	/*
+	 * Reads the whole save into a new playable board on the heap. Throws
+	 * IOException if the board has too many cells for a MinesLogic, or would not
+	 * leave half of the free heap; such saves can still be read in place.
+	 */
+	public MinesLogic toMinesLogic() throws IOException {
+		if ((long) height * width > Integer.MAX_VALUE - 8)
+			throw new IOException("Board too large to load: " + height + "x" + width);
+		Runtime runtime = Runtime.getRuntime();
+		long free = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+		if ((long) height * width * LOAD_BYTES_PER_CELL > free)
+			throw new IOException("Board too large to load into " + (free >> 20) + " MB of free heap: " + height
+					+ "x" + width);
+		MinesLogic board = new MinesLogic(height, width, 0, topology);
+		int cells = height * width;
+		for (int index = 0; index < cells; index += 2) {
+			int b = byteAt(BoardFile.HEADER + (index >> 1));
+			board.restoreStateBits(index, b & 0x0F);
+			if (index + 1 < cells)
+				board.restoreStateBits(index + 1, b >> 4);
+		}
+		board.recountMines();
+		if (board.getNumMines() != numMines || board.getFlagsPlaced() != flagCount
+				|| cells - numMines - board.getRemainingSafeCells() != openCount)
+			throw new IOException("Saved game is corrupt: the counters do not match the cells");
+		return board;
+	}
+
+	/*
+	 * Writes the board with its current counters to a file, for BoardFile.save():
+	 * the header, then the mapped cells as they are, moves included.
+	 */
+	void write(FileChannel out) throws IOException {
+		if (playable)// A read-only mapping still holds the counters it was saved with
+			segments[0].putInt(28, openCount).putInt(32, flagCount);
+		for (MappedByteBuffer segment : segments) {
+			ByteBuffer all = segment.duplicate().clear();
+			while (all.hasRemaining())
+				out.write(all);
+		}
+	}
+
+	/*
+	 * Converts a position to its row-major index. Throws
+	 * ArrayIndexOutOfBoundsException if the position is outside the board.
+	 */
+	private long index(int row, int col) {
+		if (row >= height || col >= width || row < 0 || col < 0)
+			throw new ArrayIndexOutOfBoundsException("Cell (" + row + ", " + col + ") is outside the board");
+		return (long) row * width + col;
+	}
+
+	/* Returns the state bits of a cell: 1 mine, 2 opened, 4 flagged. */
+	private int bits(long index) {
+		int b = byteAt(BoardFile.HEADER + (index >> 1));
+		return (index & 1) == 0 ? b & 0x0F : b >> 4;
+	}
+
+	/* Stores the state bits of a cell in the private mapping. */
+	private void setBits(long index, int bits) {
+		long offset = BoardFile.HEADER + (index >> 1);
+		int b = byteAt(offset);
+		b = (index & 1) == 0 ? (b & 0xF0) | bits : (b & 0x0F) | bits << 4;
+		segments[(int) (offset >>> SEGMENT_BITS)].put((int) (offset & SEGMENT_MASK), (byte) b);
+	}
+
+	private int byteAt(long offset) {
+		return segments[(int) (offset >>> SEGMENT_BITS)].get((int) (offset & SEGMENT_MASK)) & 0xFF;
+	}
+
+	/* Closes the file. The mapping itself is released once it is garbage collected. */
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+}
@@ -0,0 +1,157 @@
+package mines;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/* Instrumentation of the engine and the UI, switched on with -Dmines.metrics=true.
+When on, every measured operation is kept in an in-process histogram (see dump()) and
+emitted as a JDK Flight Recorder event in the "Minesweeper" category, which a recording
+started with -XX:StartFlightRecording or jcmd JFR.start picks up. When off, ENABLED is
+a constant false and the JIT removes the measuring code, so it costs nothing.
+
+Measured: the latency of MinesLogic.open, toggleFlag and isDone, the cells revealed per
+flood fill, the time and cells of every repaint, the time of every mine placement and of
+every region labelling. */
+public final class Metrics {
+	public static final boolean ENABLED = Boolean.getBoolean("mines.metrics");
+
+	static final Metric OPEN = new Metric("open", true); // MinesLogic.open latency
+	static final Metric FLOOD_CELLS = new Metric("flood cells", false); // Cells revealed per flood fill
+	static final Metric TOGGLE_FLAG = new Metric("toggleFlag", true); // MinesLogic.toggleFlag latency
+	static final Metric IS_DONE = new Metric("isDone", true); // MinesLogic.isDone latency
+	static final Metric RENDER = new Metric("render", true); // Repaint time
+	static final Metric RENDER_CELLS = new Metric("render cells", false); // Cells or nodes touched per repaint
+	static final Metric GENERATE = new Metric("generate", true); // Mine placement time
+	static final Metric LABEL = new Metric("label", true); // MinesLogic.labelRegions time
+
+	private static final Metric[] ALL = { OPEN, FLOOD_CELLS, TOGGLE_FLAG, IS_DONE, RENDER, RENDER_CELLS, GENERATE,
+			LABEL };
+
+	private Metrics() {
+	}
+
+	/*
+	 * A histogram of one measured quantity, shared by all threads. As in LongAdder,
+	 * the values are spread over stripes, each a histogram with a lock of its own,
+	 * picked by thread id, so threads recording at once rarely touch the same one;
+	 * take() adds the stripes together. The stripes are fixed in number, so the
+	 * memory stays the same however many threads come and go.
+	 */
+	static final class Metric {
+		private static final int STRIPES = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1) * 2;
+
+		private final String name;
+		private final boolean nanos; // Whether the values are durations in nanoseconds
+		private final LatencyHistogram[] stripes = new LatencyHistogram[STRIPES]; // Each guarded by itself
+
+		Metric(String name, boolean nanos) {
+			this.name = name;
+			this.nanos = nanos;
+			for (int s = 0; s < STRIPES; s++)
+				stripes[s] = new LatencyHistogram();
+		}
+
+		void record(long value) {
+			LatencyHistogram stripe = stripes[(int) Thread.currentThread().threadId() & (STRIPES - 1)];
+			synchronized (stripe) {
+				stripe.record(value);
+			}
+		}
+
+		private LatencyHistogram take(boolean reset) {
+			LatencyHistogram total = new LatencyHistogram();
+			for (LatencyHistogram stripe : stripes) {
+				synchronized (stripe) {
+					total.add(stripe);
+					if (reset)
+						stripe.clear();
+				}
+			}
+			return total;
+		}
+	}
+
+	/*
+	 * Returns a table of every metric: count, mean, percentiles and maximum, in
+	 * microseconds for durations. reset: Whether to start over afterwards.
+	 */
+	public static String dump(boolean reset) {
+		StringBuilder out = new StringBuilder();
+		out.append(String.format("%-14s %10s %10s %10s %10s %10s %10s%n", "metric", "count", "mean", "p50", "p99",
+				"p99.9", "max"));
+		for (Metric metric : ALL) {
+			LatencyHistogram h = metric.take(reset);
+			double scale = metric.nanos ? 1e3 : 1;
+			out.append(String.format("%-14s %10d %10.2f %10.2f %10.2f %10.2f %10.2f%n", metric.name + (metric.nanos ? " us" : ""),
+					h.getCount(), h.getMean() / scale, h.getPercentile(50) / scale, h.getPercentile(99) / scale,
+					h.getPercentile(99.9) / scale, h.getMax() / scale));
+		}
+		return out.toString();
+	}
+
+	@Name("mines.Open")
+	@Label("Open Cell")
+	@Category("Minesweeper")
+	@StackTrace(false)
+	static class OpenEvent extends Event {
+		@Label("Row")
+		int row;
+		@Label("Column")
+		int col;
+		@Label("Cells Revealed")
+		int revealed;
+		@Label("Hit Mine")
+		boolean mine;
+	}
+
+	@Name("mines.ToggleFlag")
+	@Label("Toggle Flag")
+	@Category("Minesweeper")
+	@StackTrace(false)
+	static class ToggleFlagEvent extends Event {
+		@Label("Row")
+		int row;
+		@Label("Column")
+		int col;
+	}
+
+	@Name("mines.IsDone")
+	@Label("Is Done")
+	@Category("Minesweeper")
+	@StackTrace(false)
+	static class IsDoneEvent extends Event {
+		@Label("Done")
+		boolean done;
+	}
+
+	@Name("mines.Render")
+	@Label("Render")
+	@Category("Minesweeper")
+	@StackTrace(false)
+	static class RenderEvent extends Event {
+		@Label("Renderer")
+		String renderer;
+		@Label("Kind")
+		String kind;
+		@Label("Cells Painted")
+		int cells;
+	}
+
+	@Name("mines.Generate")
+	@Label("Generate Board")
+	@Category("Minesweeper")
+	@StackTrace(false)
+	static class GenerateEvent extends Event {
+		@Label("Rows")
+		int rows;
+		@Label("Columns")
+		int cols;
+		@Label("Mines")
+		int mines;
+		@Label("Dense")
+		boolean dense;
+	}
+}
@@ -0,0 +1,200 @@
+package mines;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.CancellationException;
+
+/* Places mines on an empty MinesLogic board in guaranteed linear time, without retries.
+Sparse boards use Floyd's sampling algorithm, which picks a uniformly random set of
+distinct cells with exactly one random number per mine (O(mines)) and uses the board's
+own mine bits as the set of chosen cells. Dense boards draw every cell independently,
+correct the count to the exact number of mines and recount once (O(cells)). The same
+seed, board size and arguments always produce the same board. Placement may run on a background thread;
+interrupting that thread cancels it with a CancellationException. Optionally a cell (and its neighbours, when
+there is room) can be kept free of mines, so mines can be placed after the first click.
+Boards of up to LABEL_CELLS cells also get their empty regions labelled on the calling
+thread, so a click on an empty cell opens its region from a precomputed list. Labelling
+takes about 10 ms and 8 bytes per cell at that size, but grows to seconds and
+gigabytes on the largest boards, where it costs far more than the placement and than
+flooding the few regions a player opens; callers that want it there, or nowhere, pass
+their own limit. */
+public class MineGenerator {
+	private static final int SPARSE = 32; // Below one mine per this many cells, place mines one by one
+	private static final int CHECK_EVERY = (1 << 20) - 1; // Mask of the steps between cancellation checks
+	private static final int LABEL_CELLS = 1 << 18; // Largest board labelled by default
+	private final long seed; // Seed every placement starts from
+	private final int labelCells; // Boards of up to this many cells are labelled after placement
+
+	/* Creates a generator with a random seed. */
+	public MineGenerator() {
+		this(new SplittableRandom().nextLong());
+	}
+
+	/* Creates a generator that reproduces the boards of the given seed. */
+	public MineGenerator(long seed) {
+		this(seed, LABEL_CELLS);
+	}
+
+	/*
+	 * Creates a generator that reproduces the boards of the given seed. labelCells:
+	 * Boards of up to this many cells get their empty regions labelled, 0 for none.
+	 */
+	public MineGenerator(long seed, int labelCells) {
+		this.seed = seed;
+		this.labelCells = labelCells;
+	}
+
+	/* Returns the seed of this generator. */
+	public long getSeed() {
+		return seed;
+	}
+
+	/*
+	 * Places mines on a board that has none yet. board: The board to fill.
+	 * numMines: The number of mines, capped at the number of cells. Returns the
+	 * number of mines placed.
+	 */
+	public int place(MinesLogic board, int numMines) {
+		return place(board, numMines, new int[0]);
+	}
+
+	/*
+	 * Places mines on a board that has none yet, keeping the given cell free of
+	 * mines. Its neighbours, as the board's topology defines them, are kept free as
+	 * well when enough cells remain, so the first click opens an area rather than
+	 * a single number. board: The board to fill. numMines: The number of mines,
+	 * capped at the number of cells that may hold one. safeRow, safeCol: The
+	 * position of the first click. Returns the number of mines placed.
+	 */
+	public int place(MinesLogic board, int numMines, int safeRow, int safeCol) {
+		int height = board.getHeight(), width = board.getWidth();
+		Topology.Grid grid = board.getGrid();
+		int[] area = new int[grid.getTopology().maxNeighbors() + 1];
+		int n = grid.neighbors(safeRow, safeCol, area);
+		area[n++] = safeRow * width + safeCol;
+		area = Arrays.copyOf(area, n);
+		Arrays.sort(area);
+		if ((long) height * width - area.length >= numMines)
+			return place(board, numMines, area);
+		return place(board, numMines, new int[] { safeRow * width + safeCol });// Only the clicked cell
+	}
+
+	/*
+	 * Places mines on every cell except the excluded ones. board: The board to
+	 * fill. numMines: The number of mines. excluded: Sorted indices of the cells
+	 * that must stay free. Returns the number of mines placed.
+	 */
+	private int place(MinesLogic board, int numMines, int[] excluded) {
+		int cells = board.getHeight() * board.getWidth() - excluded.length; // Cells that may hold a mine
+		numMines = Math.max(0, Math.min(numMines, cells));
+		boolean dense = (long) numMines * SPARSE >= cells;
+		Metrics.GenerateEvent event = null;
+		long start = 0;
+		if (Metrics.ENABLED) {
+			event = new Metrics.GenerateEvent();
+			event.begin();
+			start = System.nanoTime();
+		}
+		SplittableRandom rand = new SplittableRandom(seed);
+		if (dense)
+			placeDense(board, numMines, cells, excluded, rand);
+		else
+			placeSparse(board, numMines, cells, excluded, rand);
+		if (Metrics.ENABLED) {
+			Metrics.GENERATE.record(System.nanoTime() - start);
+			if (event.shouldCommit()) {
+				event.rows = board.getHeight();
+				event.cols = board.getWidth();
+				event.mines = numMines;
+				event.dense = dense;
+				event.commit();
+			}
+		}
+		if ((long) board.getHeight() * board.getWidth() <= labelCells)
+			board.labelRegions(null);
+		return numMines;
+	}
+
+	/*
+	 * Floyd's algorithm, O(mines): for each j in the last numMines candidates pick
+	 * t in [0, j]; if t is already a mine then j cannot be one yet, so take j
+	 * instead. Each mine updates its neighbour counts as it is added.
+	 */
+	private static void placeSparse(MinesLogic board, int numMines, int cells, int[] excluded,
+			SplittableRandom rand) {
+		int width = board.getWidth();
+		for (int j = cells - numMines; j < cells; j++) {
+			if ((j & CHECK_EVERY) == 0)
+				checkCancelled();
+			int t = candidate(rand.nextInt(j + 1), excluded);
+			if (!board.addMine(t / width, t % width)) {
+				t = candidate(j, excluded);
+				board.addMine(t / width, t % width);
+			}
+		}
+	}
+
+	/*
+	 * Independent draws, O(cells): makes every cell a mine with probability
+	 * numMines / cells on its own, then adds or removes mines at uniformly random
+	 * cells until exactly numMines are placed, and recomputes all adjacent-mine
+	 * counts in a second sequential pass. Draws that happen to make k mines leave
+	 * every set of k cells equally likely, and adding or removing a uniformly
+	 * random mine keeps it so, so the board is as uniform as with one-by-one
+	 * sampling. No draw depends on the one before, so a random long makes four
+	 * 16-bit draws and eight of them are stored with one write; rounding the
+	 * probability to 16 bits only changes how many corrections follow. Boards with
+	 * fewer than one free cell per SPARSE cells start full and only remove mines,
+	 * so the corrections always find what they look for within a few tries.
+	 */
+	private static void placeDense(MinesLogic board, int numMines, int cells, int[] excluded,
+			SplittableRandom rand) {
+		int total = board.getHeight() * board.getWidth();
+		int target = board.getNumMines() + numMines;
+		long threshold = (long) (cells - numMines) * SPARSE < cells ? 1 << 16 : ((long) numMines << 16) / cells; // Draws below it make a mine
+		int index = 0;
+		for (; index + 8 <= total; index += 8) {
+			if ((index & CHECK_EVERY) == 0)
+				checkCancelled();
+			long hits = 0; // One draw per byte, 1 for a mine
+			for (int half = 0; half < 64; half += 32) {
+				long bits = rand.nextLong();
+				for (int shift = 0; shift < 64; shift += 16)
+					hits |= (((bits >>> shift) & 0xFFFF) - threshold) >>> 63 << (half + shift / 2);
+			}
+			board.markMines(index, hits);
+		}
+		for (; index < total; index++)
+			board.markMine(index, (int) (((rand.nextLong() & 0xFFFF) - threshold) >>> 63));
+		for (int cell : excluded)
+			board.unmarkMine(cell);
+		while (board.getNumMines() > target)
+			board.unmarkMine(rand.nextInt(total));// Excluded cells hold no mine, so need no check
+		while (board.getNumMines() < target) {
+			int cell = rand.nextInt(total);
+			if (!board.isMine(cell) && Arrays.binarySearch(excluded, cell) < 0)
+				board.markMine(cell, 1);
+		}
+		board.recountMines();
+	}
+
+	/* Throws CancellationException if the current thread has been interrupted. */
+	private static void checkCancelled() {
+		if (Thread.currentThread().isInterrupted())
+			throw new CancellationException("Mine placement cancelled");
+	}
+
+	/*
+	 * Maps a candidate number to a board index, skipping the excluded cells. t: The
+	 * candidate number. excluded: Sorted indices of the cells that must stay free.
+	 */
+	private static int candidate(int t, int[] excluded) {
+		for (int e : excluded) {
+			if (t >= e)
+				t++;
+			else
+				break;
+		}
+		return t;
+	}
+}
@@ -0,0 +1,247 @@
+package mines;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/* Computes, for every covered cell of a board, the exact probability that it holds a
+mine, given what a player can see and the total number of mines on the board.
+The exact rules of the solver decide what they can first. The rest of the frontier is
+split into independent components, and each component is enumerated once into a table
+of solution counts by number of mines used. Tables are memoized by the component's
+constraints, so after a move only the components that changed are enumerated again.
+The components are then combined with the cells away from the frontier by weighting
+every total number of frontier mines f with C(interior cells, mines left - f). */
+public class MineProbabilities {
+	private static final int CACHE_SIZE = 4096; // Component tables kept between calls
+
+	private final MinesSolver solver; // Enumerates the components in parallel
+	// Component tables by constraint signature, least recently used first
+	private final Map<Key, Entry> cache = new LinkedHashMap<>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+			return size() > CACHE_SIZE;
+		}
+	};
+
+	/* Creates a hint engine that enumerates on the common fork-join pool. */
+	public MineProbabilities() {
+		this(ForkJoinPool.commonPool());
+	}
+
+	/* Creates a hint engine that enumerates on the given pool. */
+	public MineProbabilities(ForkJoinPool pool) {
+		this.solver = new MinesSolver(pool);
+	}
+
+	/*
+	 * Computes the mine probability of every cell. board: The board to read.
+	 * Returns one entry per cell in row-major order: the probability in [0, 1] for
+	 * covered cells and NaN for opened ones.
+	 */
+	public synchronized double[] compute(MinesLogic board) {
+		int[] view = MinesSolver.read(board);
+		MinesSolver.propagate(view, board.getGrid(), new long[4]);
+		Frontier frontier = new Frontier(board.getGrid(), view);
+
+		// Look up the table of every component, then enumerate only the ones missing
+		int nComps = frontier.components.length;
+		Entry[] entries = new Entry[nComps];
+		Key[] keys = new Key[nComps];
+		int[] marks = new int[frontier.need.length]; // Component + 1 that last listed each constraint
+		int[] missing = new int[nComps];
+		int nMissing = 0;
+		for (int c = 0; c < nComps; c++) {
+			keys[c] = new Key(frontier, c, marks);
+			entries[c] = cache.get(keys[c]);
+			if (entries[c] == null)
+				missing[nMissing++] = c;
+		}
+		if (nMissing > 0) {
+			Frontier.Table[] tables = solver.enumerate(frontier, Arrays.copyOf(missing, nMissing));
+			for (int i = 0; i < nMissing; i++) {
+				int c = missing[i];
+				if (tables[c] != null && tables[c].complete) {
+					entries[c] = new Entry(frontier, tables[c]);
+					cache.put(keys[c], entries[c]);
+				}
+			}
+		}
+
+		// Cells that are neither decided nor part of an enumerated component
+		double[] probability = new double[view.length];
+		boolean[] inComponent = new boolean[view.length];
+		for (Entry entry : entries) {
+			if (entry != null) {
+				for (int cell : entry.cells)
+					inComponent[cell] = true;
+			}
+		}
+		int knownMines = 0, interior = 0;
+		for (int i = 0; i < view.length; i++) {
+			if (view[i] == Frontier.MINE)
+				knownMines++;
+			else if (view[i] == Frontier.COVERED && !inComponent[i])
+				interior++;
+		}
+		int minesLeft = board.getNumMines() - knownMines;
+
+		// Distribution of frontier mines: convolution of the component tables
+		int maxF = 0;
+		for (Entry entry : entries) {
+			if (entry != null)
+				maxF += entry.solutions.length - 1;
+		}
+		double[][] prefix = new double[nComps + 1][];
+		prefix[0] = new double[] { 1 };
+		for (int c = 0; c < nComps; c++)
+			prefix[c + 1] = entries[c] == null ? prefix[c] : convolve(prefix[c], entries[c].solutions);
+		double[][] suffix = new double[nComps + 1][];
+		suffix[nComps] = new double[] { 1 };
+		for (int c = nComps - 1; c >= 0; c--)
+			suffix[c] = entries[c] == null ? suffix[c + 1] : convolve(suffix[c + 1], entries[c].solutions);
+
+		// weight[f] = C(interior, minesLeft - f), scaled to avoid overflow
+		double[] weight = binomialWeights(interior, minesLeft, maxF);
+		double[] all = prefix[nComps];
+		double z = 0, interiorMines = 0;
+		for (int f = 0; f < all.length; f++) {
+			z += all[f] * weight[f];
+			interiorMines += all[f] * weight[f] * (minesLeft - f);
+		}
+
+		for (int i = 0; i < view.length; i++) {
+			if (view[i] >= 0)
+				probability[i] = Double.NaN;
+			else if (view[i] == Frontier.MINE)
+				probability[i] = 1;
+			else if (view[i] == Frontier.SAFE)
+				probability[i] = 0;
+			else if (!inComponent[i])
+				probability[i] = z == 0 || interior == 0 ? 0 : interiorMines / z / interior;
+		}
+		for (int c = 0; c < nComps; c++) {
+			Entry entry = entries[c];
+			if (entry == null)
+				continue;
+			// h[k]: weight of this component using k mines, summed over all the others
+			double[] others = convolve(prefix[c], suffix[c + 1]);
+			double[] h = new double[entry.solutions.length];
+			for (int k = 0; k < h.length; k++) {
+				for (int g = 0; g < others.length && k + g < weight.length; g++)
+					h[k] += others[g] * weight[k + g];
+			}
+			for (int v = 0; v < entry.cells.length; v++) {
+				double num = 0;
+				for (int k = 0; k < h.length; k++)
+					num += entry.mineCounts[k][v] * h[k];
+				probability[entry.cells[v]] = z == 0 ? 0 : num / z;
+			}
+		}
+		return probability;
+	}
+
+	/*
+	 * Returns weight[f] proportional to C(n, m - f) for f in [0, maxF], computed in
+	 * log space and scaled so the largest weight is 1.
+	 */
+	private static double[] binomialWeights(int n, int m, int maxF) {
+		double[] logFact = new double[n + 1];
+		for (int i = 1; i <= n; i++)
+			logFact[i] = logFact[i - 1] + Math.log(i);
+		double[] log = new double[maxF + 1];
+		double max = Double.NEGATIVE_INFINITY;
+		for (int f = 0; f <= maxF; f++) {
+			int k = m - f;
+			log[f] = k < 0 || k > n ? Double.NEGATIVE_INFINITY : logFact[n] - logFact[k] - logFact[n - k];
+			max = Math.max(max, log[f]);
+		}
+		double[] weight = new double[maxF + 1];
+		if (max == Double.NEGATIVE_INFINITY)
+			return weight;// No way to place the remaining mines
+		for (int f = 0; f <= maxF; f++)
+			weight[f] = Math.exp(log[f] - max);
+		return weight;
+	}
+
+	private static double[] convolve(double[] a, double[] b) {
+		double[] out = new double[a.length + b.length - 1];
+		for (int i = 0; i < a.length; i++) {
+			if (a[i] == 0)
+				continue;
+			for (int j = 0; j < b.length; j++)
+				out[i + j] += a[i] * b[j];
+		}
+		return out;
+	}
+
+	/*
+	 * A component table in board coordinates, normalized so its solutions sum to
+	 * 1; the scale of each component cancels out in the probabilities.
+	 */
+	private static final class Entry {
+		final int[] cells; // Board index of each variable
+		final double[] solutions; // Share of the solutions by number of mines
+		final double[][] mineCounts; // [k][v]: share of the solutions with k mines where cells[v] is a mine
+
+		Entry(Frontier frontier, Frontier.Table table) {
+			cells = new int[table.vars.length];
+			for (int i = 0; i < cells.length; i++)
+				cells[i] = frontier.vars[table.vars[i]];
+			double total = table.total();
+			solutions = new double[table.solutions.length];
+			mineCounts = new double[table.solutions.length][cells.length];
+			for (int k = 0; k < solutions.length; k++) {
+				solutions[k] = table.solutions[k] / total;
+				for (int v = 0; v < cells.length; v++)
+					mineCounts[k][v] = table.mineCounts[k][v] / total;
+			}
+		}
+	}
+
+	/*
+	 * Identifies a component by its constraints in board coordinates: for each
+	 * constraint the number of mines it needs and the cells it covers. Two
+	 * components with the same key have the same solutions. marks: One entry per
+	 * constraint of the frontier, shared by the keys of all its components, which
+	 * are built in any order with distinct comp.
+	 */
+	private static final class Key {
+		private final int[] signature;
+		private final int hash;
+
+		Key(Frontier frontier, int comp, int[] marks) {
+			int[] vars = frontier.components[comp];
+			int[] sig = new int[16];
+			int n = 0;
+			// The component's variables are in ascending order, so the key is canonical
+			for (int v : vars) {
+				for (int c : frontier.varConstraints[v]) {
+					if (marks[c] == comp + 1)
+						continue;
+					marks[c] = comp + 1;
+					int[] cv = frontier.constraintVars[c];
+					if (n + cv.length + 2 > sig.length)
+						sig = Arrays.copyOf(sig, Math.max(sig.length * 2, n + cv.length + 2));
+					sig[n++] = frontier.need[c];
+					sig[n++] = cv.length;
+					for (int w : cv)
+						sig[n++] = frontier.vars[w];
+				}
+			}
+			signature = Arrays.copyOf(sig, n);
+			hash = Arrays.hashCode(signature);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof Key && Arrays.equals(signature, ((Key) o).signature);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+}
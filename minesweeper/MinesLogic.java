@@ -1,14 +1,39 @@
 package mines;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
 
-/* Represents a Minesweeper game board with specified dimensions and number of mines. */
+/* Represents a Minesweeper game board with specified dimensions and number of mines.
+The board is stored as one byte per cell in a flat row-major array: the low four bits
+hold the number of adjacent mines and the upper bits hold the mine/open/flag state.
+Which cells are neighbours is up to the board's Topology; the classic square board
+keeps row-by-row algorithms for recounting and opening, the others go through the
+topology's neighbour tables. */
 public class MinesLogic {
+	private static final int COUNT_MASK = 0x0F; // Bits holding the adjacent-mine count (0-8)
+	private static final int MINE = 0x10; // Set if the cell contains a mine
+	private static final int OPEN = 0x20; // Set if the cell is opened
+	private static final int FLAG = 0x40; // Set if the cell is flagged
+	private static final long MINE_BYTES = 0x1010101010101010L; // MINE in each byte of a long
+	private static final long COUNT_BYTES = 0x0F0F0F0F0F0F0F0FL; // COUNT_MASK in each byte of a long
+	private static final VarHandle EIGHT_BYTES = MethodHandles.byteArrayViewVarHandle(long[].class,
+			ByteOrder.LITTLE_ENDIAN); // Eight entries of a byte array as one long, the first in the low byte
+
 	private int numMines;
+	private int openCount; // Number of opened cells, kept up to date by open()
+	private int flagCount; // Number of flagged cells, kept up to date by toggleFlag()
 	private int height, width;
 	private boolean showAll;
-	private CheckDot dots[][]; // The game board represented as a 2D array of cells
+	private byte cells[]; // The game board, cell (row, col) is at index row * width + col
+	private final Topology.Grid grid; // Neighbours of the cells
+	private final int around[]; // Neighbours of one cell, reused between calls
+	private int stack[] = new int[64]; // Work stack of the flood fill, reused between calls
+	private ChangeSet changes; // Cells changed by open, toggleFlag and setShowAll since the last clear; null until trackChanges()
+	private MoveJournal journal; // Told about every opened cell, so moves can be undone; usually null
+	private RegionLabels regions; // Empty regions opened in one pass, dropped whenever a mine moves; may be null
 
 	/*
 	 * Initializes the Mines game with the specified height, width, and number of
@@ -16,39 +41,113 @@ public class MinesLogic {
 	 * numMines: The initial number of mines on the board.
 	 */
 	public MinesLogic(int height, int width, int numMines) {
+		this(height, width, numMines, Topology.SQUARE);
+	}
+
+	/*
+	 * Initializes a game on a board of the given topology. height, width: The size
+	 * of the board. numMines: The initial number of mines on the board. topology:
+	 * Which cells are neighbours. Throws IllegalArgumentException if the topology
+	 * does not fit the size (see Topology.bind).
+	 */
+	public MinesLogic(int height, int width, int numMines, Topology topology) {
+		if ((long) height * width > Integer.MAX_VALUE - 8)
+			throw new IllegalArgumentException("Board too large: " + height + "x" + width);
+		this.grid = topology.bind(height, width);
+		this.around = new int[topology.maxNeighbors()];
 		this.height = height;
 		this.width = width;
 		this.showAll = false;
 		this.numMines = numMines;
-		dots = new CheckDot[height][width];
+		cells = new byte[height * width]; // All cells start closed, unflagged and without mines
+	}
 
-		// Initialize the board with empty cells
-		for (int i = 0; i < height; i++) {
-			for (int j = 0; j < width; j++) {
-				dots[i][j] = new CheckDot(i, j);
+	/*
+	 * Adds a mine to the specified position on the board. row: The row index of the
+	 * position. col: The column index of the position. Returns true if the mine was
+	 * added successfully; false if the position is outside the board or already
+	 * holds a mine.
+	 */
+	public boolean addMine(int row, int col) {
+		if (row < height && col < width && row >= 0 && col >= 0) {
+			int index = row * width + col;
+			if ((cells[index] & MINE) == 0) {// A cell holds at most one mine
+				cells[index] |= MINE;
+				addToNeighbors(row, col, 1);
+				numMines++;
+				regions = null;
+				if (changes != null)
+					changes.markAll();// Numbers around the mine change, redraw everything
+				return true;
 			}
 		}
+		return false;
+	}
 
-		// Set neighbors for each cell
-		for (CheckDot[] row1 : dots) {
-			for (CheckDot col1 : row1) {
-				col1.getNeighbors();
+	/*
+	 * Removes a mine from the specified position on the board and updates the
+	 * adjacent-mine counts of its neighbours. row: The row index of the position.
+	 * col: The column index of the position. Returns true if a mine was removed;
+	 * false if the position is outside the board or holds no mine.
+	 */
+	public boolean removeMine(int row, int col) {
+		if (row < height && col < width && row >= 0 && col >= 0) {
+			int index = row * width + col;
+			if ((cells[index] & MINE) != 0) {
+				cells[index] &= ~MINE;
+				addToNeighbors(row, col, -1);
+				numMines--;
+				regions = null;
+				if (changes != null)
+					changes.markAll();// Numbers around the mine change, redraw everything
+				return true;
 			}
 		}
+		return false;
 	}
 
 	/*
-	 * Adds a mine to the specified position on the board. row: The row index of the
-	 * position. col: The column index of the position. Returns true if the mine was
-	 * added successfully; false otherwise.
+	 * Moves a mine from one position to another, keeping the adjacent-mine counts
+	 * up to date. fromRow, fromCol: The position of the mine. toRow, toCol: The new
+	 * position, which must not hold a mine yet. Returns true if the mine was moved;
+	 * false otherwise.
 	 */
-	public boolean addMine(int row, int col) {
-		if (row < height && col < width && row >= 0 && col >= 0) {
-			dots[row][col].setMine(true);
-			numMines++;
-			return true;
+	public boolean moveMine(int fromRow, int fromCol, int toRow, int toCol) {
+		if (toRow >= height || toCol >= width || toRow < 0 || toCol < 0
+				|| (cells[toRow * width + toCol] & MINE) != 0)
+			return false;
+		if (!removeMine(fromRow, fromCol))
+			return false;
+		return addMine(toRow, toCol);
+	}
+
+	/*
+	 * Returns the number of mines next to the cell at the specified position,
+	 * whether or not the cell has been opened. row: The row index of the position.
+	 * col: The column index of the position.
+	 */
+	public int getAdjacentMines(int row, int col) {
+		return cells[index(row, col)] & COUNT_MASK;
+	}
+
+	/*
+	 * Recounts the mines around every cell and compares the result with the cached
+	 * adjacent-mine counts. Meant for tests and debugging, as it walks the whole
+	 * board. Returns true if every cached count is correct; otherwise false.
+	 */
+	public boolean checkCounts() {
+		for (int row = 0; row < height; row++) {
+			for (int col = 0; col < width; col++) {
+				int cnt = 0;
+				for (int k = 0, n = grid.neighbors(row, col, around); k < n; k++) {
+					if ((cells[around[k]] & MINE) != 0)
+						cnt++;
+				}
+				if ((cells[row * width + col] & COUNT_MASK) != cnt)
+					return false;
+			}
 		}
-		return false;
+		return true;
 	}
 
 	/*
@@ -57,20 +156,53 @@ public class MinesLogic {
 	 * mine; otherwise true.
 	 */
 	public boolean open(int row, int col) {
-		if (dots[row][col].isMine) {// If the cell is a mine, return false
+		if (Metrics.ENABLED)
+			return openMeasured(row, col);
+		return openCell(row, col);
+	}
+
+	/* Opens a cell as open() does, recording its latency and flood size in Metrics. */
+	private boolean openMeasured(int row, int col) {
+		Metrics.OpenEvent event = new Metrics.OpenEvent();
+		event.begin();
+		long start = System.nanoTime();
+		int before = openCount;
+		boolean notMine = openCell(row, col);
+		Metrics.OPEN.record(System.nanoTime() - start);
+		int revealed = openCount - before;
+		if (revealed > 1)
+			Metrics.FLOOD_CELLS.record(revealed);
+		if (event.shouldCommit()) {
+			event.row = row;
+			event.col = col;
+			event.revealed = revealed;
+			event.mine = !notMine;
+			event.commit();
+		}
+		return notMine;
+	}
+
+	private boolean openCell(int row, int col) {
+		int index = index(row, col);
+		if ((cells[index] & MINE) != 0) {// If the cell is a mine, return false
 			return false;
-		} else if (!dots[row][col].isOpen) {// Open the cell if it hasn't been opened yet
-			dots[row][col].setOpen(true);
-
-			// If no mines are nearby, recursively open neighbors
-			if (dots[row][col].numOfMines() == 0) { // Only recurse if no mines nearby
-				for (CheckDot dot : dots[row][col].Nlist) {
-					if (dots[row][col].toString() == " ")
-						open(dot.i, dot.j);
-				}
-				return true;
-			}
+		} else if ((cells[index] & OPEN) == 0) {// Open the cell if it hasn't been opened yet
+			cells[index] |= OPEN;
+			openCount++;
+			if (changes != null)
+				changes.add(index);
+			if (journal != null)
+				journal.opened(index);
 
+			// If no mines are nearby, open the empty region around it
+			if ((cells[index] & COUNT_MASK) == 0) {
+				if (regions != null)
+					revealRegion(regions.getRegion(index));
+				else if (grid.getTopology().isSquare())
+					reveal(index);
+				else
+					flood(index);
+			}
 		}
 		return true;
 	}
@@ -80,36 +212,145 @@ public class MinesLogic {
 	 * position. col: The column index of the position.
 	 */
 	public void toggleFlag(int row, int col) {
-		if (dots[row][col].isFlag) {
-			dots[row][col].setFlag(false);
-		} else {
-			dots[row][col].setFlag(true);
+		if (Metrics.ENABLED)
+			toggleFlagMeasured(row, col);
+		else
+			flipFlag(row, col);
+	}
+
+	/* Toggles a flag as toggleFlag() does, recording its latency in Metrics. */
+	private void toggleFlagMeasured(int row, int col) {
+		Metrics.ToggleFlagEvent event = new Metrics.ToggleFlagEvent();
+		event.begin();
+		long start = System.nanoTime();
+		flipFlag(row, col);
+		Metrics.TOGGLE_FLAG.record(System.nanoTime() - start);
+		if (event.shouldCommit()) {
+			event.row = row;
+			event.col = col;
+			event.commit();
 		}
 	}
 
+	private void flipFlag(int row, int col) {
+		int index = index(row, col);
+		cells[index] ^= FLAG;
+		flagCount += (cells[index] & FLAG) != 0 ? 1 : -1;
+		if (changes != null)
+			changes.add(index);
+	}
+
 	/*
 	 * Checks if the game is completed, i.e., all non-mine cells are opened. Returns
 	 * true if the game is done; false otherwise.
 	 */
 	public boolean isDone() {
-		int openCnt = 0;
-		for (CheckDot[] dotRow : dots) {
-			for (CheckDot dotCol : dotRow) {
-				if (dotCol.isOpen)
-					openCnt++;
-			}
+		if (Metrics.ENABLED)
+			return isDoneMeasured();
+		return allSafeOpened();
+	}
+
+	/* Checks the game as isDone() does, recording its latency in Metrics. */
+	private boolean isDoneMeasured() {
+		Metrics.IsDoneEvent event = new Metrics.IsDoneEvent();
+		event.begin();
+		long start = System.nanoTime();
+		boolean done = allSafeOpened();
+		Metrics.IS_DONE.record(System.nanoTime() - start);
+		if (event.shouldCommit()) {
+			event.done = done;
+			event.commit();
 		}
+		return done;
+	}
+
+	private boolean allSafeOpened() {
 		// Game is done if the number of opened cells equals the total non-mine cells
-		return ((height * width) - numMines) == openCnt;
+		return ((height * width) - numMines) == openCount;
+	}
+
+	/* Returns the number of rows of the board. */
+	public int getHeight() {
+		return height;
+	}
+
+	/* Returns the number of columns of the board. */
+	public int getWidth() {
+		return width;
+	}
+
+	/* Returns which cells are neighbours on this board. */
+	public Topology getTopology() {
+		return grid.getTopology();
+	}
+
+	/* Returns the topology bound to the size of this board. */
+	public Topology.Grid getGrid() {
+		return grid;
+	}
+
+	/* Returns the number of mines on the board. */
+	public int getNumMines() {
+		return numMines;
+	}
+
+	/* Returns the number of flagged cells. */
+	public int getFlagsPlaced() {
+		return flagCount;
+	}
+
+	/* Returns the number of non-mine cells that still have to be opened. */
+	public int getRemainingSafeCells() {
+		return (height * width) - numMines - openCount;
 	}
 
 	/*
 	 * Retrieves the string representation of the cell at the specified position.
 	 * row: The row index of the position. col: The column index of the position.
-	 * Returns the string representation of the cell.
+	 * Returns the string representation of the cell. Kept for compatibility; state()
+	 * gives the same information as a primitive.
 	 */
 	public String get(int row, int col) {
-		return dots[row][col].toString();
+		return CellState.toText(state(cells[index(row, col)]));
+	}
+
+	/*
+	 * Returns what a player sees in a cell as a CellState code: 0-8 for an opened
+	 * cell, HIDDEN, FLAGGED, or MINE when mines are shown. row: The row index of
+	 * the position. col: The column index of the position.
+	 */
+	public byte state(int row, int col) {
+		return state(cells[index(row, col)]);
+	}
+
+	/*
+	 * Reads the CellState codes of a whole row into a caller-supplied array. row:
+	 * The row index. out: Receives width codes. offset: Where the first code goes.
+	 */
+	public void readRow(int row, byte[] out, int offset) {
+		readRegion(row, 0, 1, width, out, offset);
+	}
+
+	/*
+	 * Reads the CellState codes of a rectangle of cells into a caller-supplied
+	 * array, row by row. row, col: The top-left cell. rows, cols: The size of the
+	 * rectangle. out: Receives rows * cols codes. offset: Where the first code goes.
+	 */
+	public void readRegion(int row, int col, int rows, int cols, byte[] out, int offset) {
+		if (rows < 0 || cols < 0 || row < 0 || col < 0 || row + rows > height || col + cols > width)
+			throw new ArrayIndexOutOfBoundsException(
+					"Region (" + row + ", " + col + ") " + rows + "x" + cols + " is outside the board");
+		for (int r = 0; r < rows; r++) {
+			int from = (row + r) * width + col;
+			for (int c = 0; c < cols; c++)
+				out[offset++] = state(cells[from + c]);
+		}
+	}
+
+	private byte state(int cell) {
+		if (showAll || (cell & OPEN) != 0)
+			return (cell & MINE) != 0 ? CellState.MINE : (byte) (cell & COUNT_MASK);
+		return (cell & FLAG) != 0 ? CellState.FLAGGED : CellState.HIDDEN;
 	}
 
 	/*
@@ -117,15 +358,38 @@ public class MinesLogic {
 	 * cells, false to show only opened cells.
 	 */
 	public void setShowAll(boolean showAll) {
+		if (this.showAll != showAll && changes != null)
+			changes.markAll();
 		this.showAll = showAll;
 	}
 
+	/*
+	 * Starts recording the cells whose representation changes, for a view that
+	 * repaints only those, and returns the change set. Until then nothing is
+	 * recorded, so boards that nobody draws do not collect changes. The set is
+	 * owned by the board and is updated in place; the caller is expected to clear
+	 * it once it has handled the changes.
+	 */
+	public ChangeSet trackChanges() {
+		if (changes == null)
+			changes = new ChangeSet(height, width);
+		return changes;
+	}
+
+	/*
+	 * Returns the cells whose representation changed since the change set was last
+	 * cleared, or null if trackChanges() has not been called.
+	 */
+	public ChangeSet getChanges() {
+		return changes;
+	}
+
 	/* Returns a string representation of the game board. */
 	public String toString() {
-		StringBuilder g = new StringBuilder();
+		StringBuilder g = new StringBuilder(height * (width + 1));
 		for (int i = 0; i < height; i++) {
-			for (int j = 0; j < width; j++) {
-				g.append(get(i, j));// Append the string representation of each cell
+			for (int j = 0, index = i * width; j < width; j++, index++) {
+				g.append(CellState.toChar(state(cells[index])));// Append the character of each cell
 			}
 			g.append("\n");// Add a newline at the end of each row
 		}
@@ -133,167 +397,352 @@ public class MinesLogic {
 		return g.toString();
 	}
 
-	/* Represents a single cell on the game board. */
-	private class CheckDot {
-		private int i, j;// Coordinates of the cell
-		private boolean isFlag;// Whether the cell is flagged
-		private boolean isMine;// Whether the cell contains a mine
-		private boolean isOpen;// Whether the cell is opened
-		private List<CheckDot> Nlist = new ArrayList<>();
-
-		/*
-		 * Initializes a cell at the specified position. i: The row index of the cell.
-		 * j: The column index of the cell.
-		 */
-		public CheckDot(int i, int j) {
-			this.i = i;
-			this.j = j;
-			this.isFlag = false;
-			this.isMine = false;
-			this.isOpen = false;
-		}
 
-		/*
-		 * Retrieves the neighbors of the cell and stores them in Nlist. Returns a list
-		 * of neighboring cells.
-		 */
-		public List<CheckDot> getNeighbors() {
-			return Nlist = neighborsList();
-		}
+	/*
+	 * Returns true if a cell holds a mine, whatever the board shows, for headless
+	 * tools that know the answer. index: The row-major index of the cell.
+	 */
+	boolean isMine(int index) {
+		return (cells[index] & MINE) != 0;
+	}
 
-		/*
-		 * Checks if the cell is flagged. Returns true if the cell is flagged; otherwise
-		 * false.
-		 */
-		public boolean checkFlag() {
-			return isFlag;
-		}
+	/* Returns true if a cell is opened. index: The row-major index of the cell. */
+	boolean isOpen(int index) {
+		return (cells[index] & OPEN) != 0;
+	}
 
-		/*
-		 * Checks if the cell contains a mine. Returns true if the cell contains a mine;
-		 * otherwise false.
-		 */
-		public boolean checkMine() {
-			return isMine;
-		}
+	/*
+	 * Returns the number of mines next to a cell, whether or not it has been
+	 * opened. index: The row-major index of the cell.
+	 */
+	int adjacentMines(int index) {
+		return cells[index] & COUNT_MASK;
+	}
 
-		/*
-		 * Checks if the cell is opened. Returns true if the cell is opened; otherwise
-		 * false.
-		 */
-		public boolean checkOpen() {
-			return isOpen;
-		}
+	/*
+	 * Labels the empty regions of the board, whose mines must be placed, so open()
+	 * reveals a region from its precomputed cell list instead of flood-filling it.
+	 * MineGenerator calls this after placing the mines of small boards; it takes
+	 * O(cells) time and 8 bytes per cell, which pays off on larger boards only when
+	 * they are opened many times or the 3BV is wanted. The labels are dropped as soon as a mine is added or removed. pool: Labels
+	 * large boards in parallel, or null to label on the calling thread. Returns the
+	 * labels, which also give the 3BV of the board, or null on topologies other
+	 * than the square board, whose regions are flood-filled instead.
+	 */
+	public RegionLabels labelRegions(ForkJoinPool pool) {
+		regions = grid.getTopology().isSquare() ? RegionLabels.compute(this, pool) : null;
+		if (Metrics.ENABLED && regions != null)
+			Metrics.LABEL.record(regions.getNanos());
+		return regions;
+	}
 
-		/*
-		 * Sets the flagged status of the cell. isFlag: True to flag the cell, false to
-		 * unflag it.
-		 */
-		public void setFlag(boolean isFlag) {
-			this.isFlag = isFlag;
-		}
+	/* Returns the labels of the empty regions, or null if they are not computed. */
+	public RegionLabels getRegionLabels() {
+		return regions;
+	}
 
-		/*
-		 * Sets whether the cell contains a mine. isMine: True if the cell contains a
-		 * mine, false otherwise.
-		 */
-		public void setMine(boolean isMine) {
-			this.isMine = isMine;
-		}
+	/*
+	 * Sets the journal that is told about every cell opened from now on, or null
+	 * to stop recording.
+	 */
+	void setJournal(MoveJournal journal) {
+		this.journal = journal;
+	}
 
-		/*
-		 * Sets whether the cell is opened. isOpen: True to open the cell, false to
-		 * close it.
-		 */
+	/*
+	 * Closes an opened cell again, to undo a move. index: The row-major index of
+	 * the cell, which must be opened.
+	 */
+	void close(int index) {
+		cells[index] &= ~OPEN;
+		openCount--;
+		if (changes != null)
+			changes.add(index);
+	}
 
-		public void setOpen(boolean isOpen) {
-			this.isOpen = isOpen;
-		}
+	/*
+	 * Closes every cell and removes every flag, keeping the mines, so a journal
+	 * can replay the moves of a game on the same board.
+	 */
+	void closeAll() {
+		for (int index = 0; index < cells.length; index++)
+			cells[index] &= ~(OPEN | FLAG);
+		openCount = 0;
+		flagCount = 0;
+		if (changes != null)
+			changes.markAll();
+	}
 
-		/*
-		 * Checks if the specified position is within the board boundaries. i: The row
-		 * index. j: The column index. Returns true if the position is within bounds;
-		 * otherwise false.
-		 */
-		public boolean inBoard(int i, int j) {
-			return i < height && j < width && i >= 0 && j >= 0;
-		}
+	/*
+	 * Returns the state bits of a cell, for saving: 1 if it holds a mine, 2 if it
+	 * is opened, 4 if it is flagged. index: The row-major index of the cell.
+	 */
+	int stateBits(int index) {
+		return (cells[index] & (MINE | OPEN | FLAG)) >> 4;
+	}
 
-		/*
-		 * Retrieves a list of neighboring cells for this cell. Returns a list of valid
-		 * neighbors.
-		 */
-		public List<CheckDot> neighborsList() {
-			List<CheckDot> list = new ArrayList<>();
+	/*
+	 * Restores the state bits of a cell on a board being loaded, which has to
+	 * start empty; recountMines() must be called once all cells are restored.
+	 * index: The row-major index of the cell. bits: As returned by stateBits().
+	 */
+	void restoreStateBits(int index, int bits) {
+		cells[index] = (byte) ((bits & 7) << 4);
+		regions = null;
+		numMines += bits & 1;
+		openCount += (bits >> 1) & 1;
+		flagCount += (bits >> 2) & 1;
+	}
 
-			// Check all 8 possible neighbors and add them if they are within bounds
-			if (inBoard(i - 1, j - 1)) {
-				list.add(dots[i - 1][j - 1]);
-			}
-			if (inBoard(i - 1, j)) {
-				list.add(dots[i - 1][j]);
-			}
-			if (inBoard(i - 1, j + 1)) {
-				list.add(dots[i - 1][j + 1]);
-			}
-			if (inBoard(i, j - 1)) {
-				list.add(dots[i][j - 1]);
-			}
-			if (inBoard(i, j + 1)) {
-				list.add(dots[i][j + 1]);
-			}
-			if (inBoard(i + 1, j - 1)) {
-				list.add(dots[i + 1][j - 1]);
+	/*
+	 * ORs a draw into the mine bit of a cell without a mine, without updating the
+	 * adjacent-mine counts, for bulk placement that calls recountMines()
+	 * afterwards. The store is made whatever the draw, so the caller needs no
+	 * branch. index: The row-major index of the cell. hit: 1 to make it a mine, 0
+	 * to leave it as it is.
+	 */
+	void markMine(int index, int hit) {
+		cells[index] |= (byte) (hit << 4);// MINE is bit 4
+		numMines += hit;
+	}
+
+	/*
+	 * ORs eight draws into the mine bits of eight consecutive cells without mines
+	 * in one store, like markMine. index: The row-major index of the first cell.
+	 * hits: One draw per byte, the first cell's in the low byte, each 1 to make
+	 * the cell a mine or 0 to leave it as it is.
+	 */
+	void markMines(int index, long hits) {
+		EIGHT_BYTES.set(cells, index, (long) EIGHT_BYTES.get(cells, index) | hits << 4);// MINE is bit 4
+		numMines += Long.bitCount(hits);
+	}
+
+	/*
+	 * Clears the mine bit of a cell without updating the adjacent-mine counts, the
+	 * reverse of markMine. index: The row-major index of the cell. Returns true if
+	 * the cell held a mine.
+	 */
+	boolean unmarkMine(int index) {
+		if ((cells[index] & MINE) == 0)
+			return false;
+		cells[index] &= ~MINE;
+		numMines--;
+		return true;
+	}
+
+	/*
+	 * Recomputes the adjacent-mine count of every cell from the mine bits in one
+	 * sequential pass. On the square board each row first sums the mine bits of
+	 * the rows above, at and below it column by column, then adds up three
+	 * neighbouring column sums per cell. Both loops work on eight bytes at a time
+	 * as one long: no byte of the sums can carry into the next, as a mine bit
+	 * times nine still fits a byte. On other topologies every mine adds one to
+	 * its neighbours.
+	 */
+	void recountMines() {
+		if (!grid.getTopology().isSquare()) {
+			for (int index = 0; index < cells.length; index++)
+				cells[index] &= ~COUNT_MASK;
+			for (int row = 0, index = 0; row < height; row++) {
+				for (int col = 0; col < width; col++, index++) {
+					if ((cells[index] & MINE) != 0)
+						addToNeighbors(row, col, 1);
+				}
 			}
-			if (inBoard(i + 1, j)) {
-				list.add(dots[i + 1][j]);
+			regions = null;
+			if (changes != null)
+				changes.markAll();
+			return;
+		}
+		byte[] sums = new byte[width + 2]; // Mine bits of three rows by column, 0 past both edges
+		for (int row = 0; row < height; row++) {
+			columnMineSums(row, sums);
+			int col = 0, index = row * width;
+			for (; col + 8 <= width; col += 8, index += 8) {
+				long eight = (long) EIGHT_BYTES.get(cells, index);
+				long cnt = (long) EIGHT_BYTES.get(sums, col) + (long) EIGHT_BYTES.get(sums, col + 1)
+						+ (long) EIGHT_BYTES.get(sums, col + 2) - (eight & MINE_BYTES); // Counted in units of MINE
+				EIGHT_BYTES.set(cells, index, (eight & ~COUNT_BYTES) | ((cnt >>> 4) & COUNT_BYTES));
 			}
-			if (inBoard(i + 1, j + 1)) {
-				list.add(dots[i + 1][j + 1]);
+			for (; col < width; col++, index++) {
+				int cell = cells[index];
+				int cnt = sums[col] + sums[col + 1] + sums[col + 2] - (cell & MINE); // Counted in units of MINE
+				cells[index] = (byte) ((cell & ~COUNT_MASK) | (cnt >> 4));
 			}
-			return list;
 		}
+		regions = null;
+		if (changes != null)
+			changes.markAll();
+	}
 
-		/*
-		 * Counts the number of mines in neighboring cells. Returns the count of
-		 * neighboring mines.
-		 */
-		public int numOfMines() {
-			int cnt = 0;
-			for (CheckDot s : Nlist) {
-				if (s.isMine)
-					cnt++;
-			}
-			return cnt;
+	/*
+	 * Stores in sums[col + 1] the mine bits (MINE each) of column col in the rows
+	 * next to and at a row, which is at most 3 * MINE and fits a byte. row: The
+	 * row index. sums: Array of width + 2 entries; the first and last are left 0.
+	 */
+	private void columnMineSums(int row, byte[] sums) {
+		int at = row * width;
+		if (row > 0 && row + 1 < height) {// The common case, three rows
+			int up = at - width, down = at + width, col = 0;
+			for (; col + 8 <= width; col += 8)
+				EIGHT_BYTES.set(sums, col + 1, ((long) EIGHT_BYTES.get(cells, up + col) & MINE_BYTES)
+						+ ((long) EIGHT_BYTES.get(cells, at + col) & MINE_BYTES)
+						+ ((long) EIGHT_BYTES.get(cells, down + col) & MINE_BYTES));
+			for (; col < width; col++)
+				sums[col + 1] = (byte) ((cells[up + col] & MINE) + (cells[at + col] & MINE) + (cells[down + col] & MINE));
+			return;
+		}
+		for (int col = 0; col < width; col++)
+			sums[col + 1] = (byte) (cells[at + col] & MINE);
+		if (row > 0) {
+			for (int col = 0, up = at - width; col < width; col++)
+				sums[col + 1] += (byte) (cells[up + col] & MINE);
+		}
+		if (row + 1 < height) {
+			for (int col = 0, down = at + width; col < width; col++)
+				sums[col + 1] += (byte) (cells[down + col] & MINE);
 		}
+	}
+
+	/*
+	 * Converts a position to its index in the cells array. row: The row index. col:
+	 * The column index. Throws ArrayIndexOutOfBoundsException if the position is
+	 * outside the board.
+	 */
+	private int index(int row, int col) {
+		if (row >= height || col >= width || row < 0 || col < 0)
+			throw new ArrayIndexOutOfBoundsException("Cell (" + row + ", " + col + ") is outside the board");
+		return row * width + col;
+	}
 
-		/*
-		 * Returns a string representation of the cell, showing its state based on the
-		 * game rules.
-		 */
-		public String toString() {
-			int mines = numOfMines();
-			if (showAll) {
-				if (checkMine())
-					return "X";
-				if (mines != 0) {
-					return mines + "";
+	/*
+	 * Opens every cell connected to an opened empty cell. This is a scanline fill
+	 * driven by an explicit work stack instead of recursion, so large empty regions
+	 * can neither overflow the thread stack nor revisit cells: every popped seed is
+	 * widened into the whole run of empty cells on its row, the run and its row
+	 * ends are opened, and the rows above and below are opened across the run,
+	 * pushing one seed per run of closed empty cells found there. All cells touched
+	 * this way neighbour an empty cell, so none of them can be a mine. start: The
+	 * index of an already opened cell with no adjacent mines.
+	 */
+	private void reveal(int start) {
+		int top = 0;
+		stack[top++] = start;
+		while (top > 0) {
+			int seed = stack[--top];
+			int row = seed / width, rowStart = row * width, rowEnd = rowStart + width - 1;
+			if (seed != start && (cells[seed] & OPEN) != 0)
+				continue;// Already opened as part of another run
+
+			// Widen the seed to the whole run of closed empty cells on its row
+			int a = seed, b = seed;
+			while (a > rowStart && (cells[a - 1] & (OPEN | COUNT_MASK)) == 0)
+				a--;
+			while (b < rowEnd && (cells[b + 1] & (OPEN | COUNT_MASK)) == 0)
+				b++;
+			int from = a > rowStart ? a - 1 : a, to = b < rowEnd ? b + 1 : b;
+			for (int n = from; n <= to; n++) {
+				if ((cells[n] & OPEN) == 0) {
+					cells[n] |= OPEN;
+					openCount++;
+					if (changes != null)
+						changes.add(n);
+					if (journal != null)
+						journal.opened(n);
 				}
-				return " ";
-			} else {
-				if (!checkOpen()) {
-					if (checkFlag())
-						return "F";
-					return ".";
-				} else {
-					if (checkMine())
-						return "X";
-					if (mines != 0) {
-						return mines + "";
+			}
+
+			// Open the rows above and below across the run, seeding their empty runs
+			for (int adjacent = -width; adjacent <= width; adjacent += 2 * width) {
+				if (from + adjacent < 0 || to + adjacent >= cells.length)
+					continue;
+				boolean inRun = false;
+				for (int n = from + adjacent; n <= to + adjacent; n++) {
+					int cell = cells[n];
+					if ((cell & OPEN) != 0) {// Already-open cells are left alone
+						inRun = false;
+					} else if ((cell & COUNT_MASK) != 0) {
+						cells[n] = (byte) (cell | OPEN);
+						openCount++;
+						if (changes != null)
+							changes.add(n);
+						if (journal != null)
+							journal.opened(n);
+						inRun = false;
+					} else if (!inRun) {// First closed empty cell of a run, widened when popped
+						if (top == stack.length)
+							stack = Arrays.copyOf(stack, stack.length * 2);
+						stack[top++] = n;
+						inRun = true;
 					}
-					return " ";
 				}
 			}
 		}
 	}
+
+	/*
+	 * Opens every cell connected to an opened empty cell on topologies other than
+	 * the square board, whose neighbours need not lie in the rows above and below:
+	 * every empty cell opened is pushed once, and popping it opens its neighbours.
+	 * start: The index of an already opened cell with no adjacent mines.
+	 */
+	private void flood(int start) {
+		int top = 0;
+		stack[top++] = start;
+		while (top > 0) {
+			int index = stack[--top];
+			for (int k = 0, n = grid.neighbors(index, around); k < n; k++) {
+				int nb = around[k];
+				int cell = cells[nb];
+				if ((cell & OPEN) != 0)
+					continue;
+				cells[nb] = (byte) (cell | OPEN);
+				openCount++;
+				if (changes != null)
+					changes.add(nb);
+				if (journal != null)
+					journal.opened(nb);
+				if ((cell & COUNT_MASK) == 0) {
+					if (top == stack.length)
+						stack = Arrays.copyOf(stack, stack.length * 2);
+					stack[top++] = nb;
+				}
+			}
+		}
+	}
+
+	/*
+	 * Opens every cell of a labelled empty region that is not open yet: its empty
+	 * cells and their numbered border, none of which can be a mine. region: The
+	 * region of an already opened empty cell.
+	 */
+	private void revealRegion(int region) {
+		for (int k = regions.getStart(region), end = regions.getEnd(region); k < end; k++) {
+			int n = regions.getCell(k);
+			if ((cells[n] & OPEN) == 0) {
+				cells[n] |= OPEN;
+				openCount++;
+				if (changes != null)
+					changes.add(n);
+				if (journal != null)
+					journal.opened(n);
+			}
+		}
+	}
+
+	/*
+	 * Adds delta to the adjacent-mine count of every neighbour of a cell. row: The
+	 * row index of the cell. col: The column index of the cell. delta: +1 when a
+	 * mine is added, -1 when one is removed.
+	 */
+	private void addToNeighbors(int row, int col, int delta) {
+		if (grid.isInterior(row, col)) {// Most cells: no bounds to check
+			int index = row * width + col;
+			for (int d : grid.deltas(row))
+				cells[index + d] = (byte) (cells[index + d] + delta);
+			return;
+		}
+		for (int k = 0, n = grid.neighbors(row, col, around); k < n; k++)
+			cells[around[k]] = (byte) (cells[around[k]] + delta);
+	}
 }
@@ -0,0 +1,403 @@
+package mines;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/* Finds every covered cell of a board that is provably safe or provably a mine, using
+only what a player can see (MinesLogic.get). Deductions are made in phases of growing
+cost, each repeated until nothing new is found:
+1. single-cell rule: a number whose missing mines equal zero or its covered neighbours,
+2. subset rule: a number whose covered neighbours contain those of a nearby number,
+3. exact enumeration of the frontier, split into independent components that are
+   solved in parallel on a fork-join pool; a cell that is a mine in every solution
+   (or in none) is decided.
+The solver never changes the board. Flags are ignored, as they may be wrong. */
+public class MinesSolver {
+	private static final int MAX_COMPONENT = 64; // Larger components are not enumerated
+	private static final long NODE_BUDGET = 1L << 22; // Search nodes allowed per component
+	private static final int SPLIT = 16; // Components per fork-join leaf task
+
+	private final ForkJoinPool pool; // Runs the component enumeration
+
+	/* Creates a solver that enumerates on the common fork-join pool. */
+	public MinesSolver() {
+		this(ForkJoinPool.commonPool());
+	}
+
+	/*
+	 * Creates a solver that enumerates on the given pool, or on the calling thread
+	 * when the pool is null, for callers that already run one solver per core.
+	 */
+	public MinesSolver(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/* The cells proved safe or mines, and the time spent in each phase. */
+	public static class Result {
+		private final int width;
+		private final int[] view; // Final view: numbers, Frontier.COVERED, MINE or SAFE
+		private final long readNanos, singleNanos, subsetNanos, enumerationNanos;
+		private final int components, skippedComponents;
+
+		Result(int width, int[] view, long[] nanos, int components, int skippedComponents) {
+			this.width = width;
+			this.view = view;
+			this.readNanos = nanos[0];
+			this.singleNanos = nanos[1];
+			this.subsetNanos = nanos[2];
+			this.enumerationNanos = nanos[3];
+			this.components = components;
+			this.skippedComponents = skippedComponents;
+		}
+
+		/* Returns true if the covered cell at (row, col) is provably safe. */
+		public boolean isSafe(int row, int col) {
+			return view[row * width + col] == Frontier.SAFE;
+		}
+
+		/* Returns true if the covered cell at (row, col) is provably a mine. */
+		public boolean isMine(int row, int col) {
+			return view[row * width + col] == Frontier.MINE;
+		}
+
+		/* Returns the board indices (row * width + col) of the provably safe cells. */
+		public int[] getSafeCells() {
+			return cellsWith(Frontier.SAFE);
+		}
+
+		/* Returns the board indices of the provably mined cells, including shown mines. */
+		public int[] getMineCells() {
+			return cellsWith(Frontier.MINE);
+		}
+
+		private int[] cellsWith(int status) {
+			int n = 0;
+			for (int v : view) {
+				if (v == status)
+					n++;
+			}
+			int[] cells = new int[n];
+			n = 0;
+			for (int i = 0; i < view.length; i++) {
+				if (view[i] == status)
+					cells[n++] = i;
+			}
+			return cells;
+		}
+
+		/* Returns the time spent reading the board, in nanoseconds. */
+		public long getReadNanos() {
+			return readNanos;
+		}
+
+		/* Returns the time spent applying the single-cell rule, in nanoseconds. */
+		public long getSingleNanos() {
+			return singleNanos;
+		}
+
+		/* Returns the time spent applying the subset rule, in nanoseconds. */
+		public long getSubsetNanos() {
+			return subsetNanos;
+		}
+
+		/* Returns the time spent enumerating components, in nanoseconds. */
+		public long getEnumerationNanos() {
+			return enumerationNanos;
+		}
+
+		/* Returns the number of frontier components that were enumerated or skipped. */
+		public int getComponents() {
+			return components;
+		}
+
+		/* Returns the number of components too large to enumerate. */
+		public int getSkippedComponents() {
+			return skippedComponents;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("safe=%d mines=%d components=%d (skipped %d) read=%.3fms single=%.3fms"
+					+ " subset=%.3fms enumeration=%.3fms", getSafeCells().length, getMineCells().length, components,
+					skippedComponents, readNanos / 1e6, singleNanos / 1e6, subsetNanos / 1e6,
+					enumerationNanos / 1e6);
+		}
+	}
+
+	/*
+	 * Solves the visible state of a board. board: The board to read. Returns the
+	 * cells that are provably safe or mines.
+	 */
+	public Result solve(MinesLogic board) {
+		Topology.Grid grid = board.getGrid();
+		long[] nanos = new long[4];
+		long start = System.nanoTime();
+		int[] view = read(board);
+		nanos[0] = System.nanoTime() - start;
+
+		int components = 0, skipped = 0;
+		boolean progress = true;
+		while (progress) {
+			propagate(view, grid, nanos);
+
+			// Only enumerate what the rules could not decide
+			progress = false;
+			start = System.nanoTime();
+			Frontier frontier = new Frontier(grid, view);
+			Frontier.Table[] tables = enumerateAll(frontier);
+			components = tables.length;
+			skipped = 0;
+			for (Frontier.Table table : tables) {
+				if (table == null || !table.complete) {
+					skipped++;
+					continue;
+				}
+				long total = table.total();
+				for (int i = 0; i < table.vars.length; i++) {
+					long mines = 0;
+					for (long[] counts : table.mineCounts)
+						mines += counts[i];
+					int cell = frontier.vars[table.vars[i]];
+					if (mines == 0) {
+						view[cell] = Frontier.SAFE;
+						progress = true;
+					} else if (mines == total) {
+						view[cell] = Frontier.MINE;
+						progress = true;
+					}
+				}
+			}
+			nanos[3] += System.nanoTime() - start;
+		}
+		return new Result(board.getWidth(), view, nanos, components, skipped);
+	}
+
+	/*
+	 * Applies the single-cell and subset rules until neither finds anything new.
+	 * view: The view to update in place. grid: The neighbours of the cells. nanos:
+	 * Receives the time spent in each rule at indices 1 and 2.
+	 */
+	static void propagate(int[] view, Topology.Grid grid, long[] nanos) {
+		boolean progress = true;
+		while (progress) {
+			long start = System.nanoTime();
+			singleRule(view, grid);
+			nanos[1] += System.nanoTime() - start;
+
+			start = System.nanoTime();
+			progress = subsetRule(view, grid);
+			nanos[2] += System.nanoTime() - start;
+		}
+	}
+
+	/*
+	 * Enumerates every component of a frontier in parallel. Components above the
+	 * size limit are left null. Returns one table per component.
+	 */
+	Frontier.Table[] enumerateAll(Frontier frontier) {
+		int[] comps = new int[frontier.components.length];
+		for (int c = 0; c < comps.length; c++)
+			comps[c] = c;
+		return enumerate(frontier, comps);
+	}
+
+	/*
+	 * Enumerates some components of a frontier in parallel. comps: The indices of
+	 * the components to enumerate. Returns one table per component of the frontier,
+	 * null for those not listed and those above the size limit.
+	 */
+	Frontier.Table[] enumerate(Frontier frontier, int[] comps) {
+		Frontier.Table[] tables = new Frontier.Table[frontier.components.length];
+		if (pool == null)
+			enumerateRange(frontier, comps, tables, 0, comps.length);
+		else
+			pool.invoke(new EnumerateTask(frontier, comps, tables, 0, comps.length));
+		return tables;
+	}
+
+	private static void enumerateRange(Frontier frontier, int[] comps, Frontier.Table[] tables, int from, int to) {
+		for (int i = from; i < to; i++) {
+			int c = comps[i];
+			if (frontier.components[c].length <= MAX_COMPONENT)
+				tables[c] = frontier.enumerate(c, NODE_BUDGET);
+		}
+	}
+
+	/* Splits a range of components until it is small enough to enumerate directly. */
+	private static class EnumerateTask extends RecursiveAction {
+		private final Frontier frontier;
+		private final int[] comps; // Indices of the components to enumerate
+		private final Frontier.Table[] tables;
+		private final int from, to; // Range of comps
+
+		EnumerateTask(Frontier frontier, int[] comps, Frontier.Table[] tables, int from, int to) {
+			this.frontier = frontier;
+			this.comps = comps;
+			this.tables = tables;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > SPLIT) {
+				int mid = (from + to) >>> 1;
+				invokeAll(new EnumerateTask(frontier, comps, tables, from, mid),
+						new EnumerateTask(frontier, comps, tables, mid, to));
+				return;
+			}
+			enumerateRange(frontier, comps, tables, from, to);
+		}
+	}
+
+	/*
+	 * Reads what a player sees: opened numbers, covered cells and shown mines.
+	 * Returns the initial view of the board.
+	 */
+	static int[] read(MinesLogic board) {
+		int height = board.getHeight(), width = board.getWidth();
+		int[] view = new int[height * width];
+		byte[] row = new byte[width];
+		for (int r = 0; r < height; r++) {
+			board.readRow(r, row, 0);
+			for (int c = 0; c < width; c++) {
+				byte cell = row[c];
+				int v;
+				if (CellState.isNumber(cell))
+					v = cell;
+				else if (cell == CellState.MINE)
+					v = Frontier.MINE;
+				else
+					v = Frontier.COVERED;// Flags are the player's guesses, not knowledge
+				view[r * width + c] = v;
+			}
+		}
+		return view;
+	}
+
+
+	/*
+	 * Applies the single-cell rule until it finds nothing new: if a number already
+	 * has all its mines, its other covered neighbours are safe; if it needs as many
+	 * mines as it has covered neighbours, they are all mines. Uses a work list of
+	 * numbers, so each deduction only rechecks the numbers around it.
+	 */
+	private static void singleRule(int[] view, Topology.Grid grid) {
+		int cells = view.length;
+		int[] work = new int[cells];
+		boolean[] queued = new boolean[cells];
+		int top = 0;
+		for (int index = 0; index < cells; index++) {
+			if (view[index] > 0) {
+				work[top++] = index;
+				queued[index] = true;
+			}
+		}
+		int[] nbrs = new int[8], nbrs2 = new int[8];
+		while (top > 0) {
+			int index = work[--top];
+			queued[index] = false;
+			int n = grid.neighbors(index, nbrs);
+			int covered = 0, mines = 0;
+			for (int k = 0; k < n; k++) {
+				if (view[nbrs[k]] == Frontier.COVERED)
+					covered++;
+				else if (view[nbrs[k]] == Frontier.MINE)
+					mines++;
+			}
+			int missing = view[index] - mines;
+			if (covered == 0 || (missing != 0 && missing != covered))
+				continue;
+			int status = missing == 0 ? Frontier.SAFE : Frontier.MINE;
+			for (int k = 0; k < n; k++) {
+				int nb = nbrs[k];
+				if (view[nb] != Frontier.COVERED)
+					continue;
+				view[nb] = status;
+				// Recheck the numbers around the decided cell
+				int m = grid.neighbors(nb, nbrs2);
+				for (int j = 0; j < m; j++) {
+					if (view[nbrs2[j]] > 0 && !queued[nbrs2[j]]) {
+						queued[nbrs2[j]] = true;
+						work[top++] = nbrs2[j];
+					}
+				}
+			}
+		}
+	}
+
+	/*
+	 * Applies the subset rule once over the board: when the covered neighbours of
+	 * a number A all touch a nearby number B, B's other covered neighbours hold
+	 * exactly missing(B) - missing(A) mines, which decides them when that is zero
+	 * or all of them. Returns true if any cell was decided.
+	 */
+	private static boolean subsetRule(int[] view, Topology.Grid grid) {
+		boolean progress = false;
+		int[] nbrs = new int[8], candidates = new int[8], coveredA = new int[8], rest = new int[8];
+		for (int a = 0; a < view.length; a++) {
+			if (view[a] < 0)
+				continue;
+			int na = grid.neighbors(a, nbrs);
+			int ca = 0, minesA = 0;
+			for (int k = 0; k < na; k++) {
+				if (view[nbrs[k]] == Frontier.COVERED)
+					coveredA[ca++] = nbrs[k];
+				else if (view[nbrs[k]] == Frontier.MINE)
+					minesA++;
+			}
+			if (ca == 0)
+				continue;
+			int missingA = view[a] - minesA;
+
+			// A number touching every covered neighbour of A touches the first one
+			int nc = grid.neighbors(coveredA[0], candidates);
+			for (int j = 0; j < nc; j++) {
+				int b = candidates[j];
+				if (b == a || view[b] < 0)
+					continue;
+				int nb = grid.neighbors(b, nbrs);
+				if (!containsAll(nbrs, nb, coveredA, ca))
+					continue;
+				int minesB = 0, nr = 0;
+				for (int k = 0; k < nb; k++) {
+					int cell = nbrs[k];
+					if (view[cell] == Frontier.MINE)
+						minesB++;
+					else if (view[cell] == Frontier.COVERED && !contains(coveredA, ca, cell))
+						rest[nr++] = cell;
+				}
+				if (nr == 0)
+					continue;
+				int missingRest = view[b] - minesB - missingA;
+				if (missingRest != 0 && missingRest != nr)
+					continue;
+				for (int k = 0; k < nr; k++)
+					view[rest[k]] = missingRest == 0 ? Frontier.SAFE : Frontier.MINE;
+				progress = true;
+			}
+		}
+		return progress;
+	}
+
+	/* Returns true if each of the first count cells is among the first n entries of nbrs. */
+	private static boolean containsAll(int[] nbrs, int n, int[] cells, int count) {
+		for (int i = 0; i < count; i++) {
+			int k = 0;
+			while (k < n && nbrs[k] != cells[i])
+				k++;
+			if (k == n)
+				return false;
+		}
+		return true;
+	}
+
+	/* Returns true if cell is among the first count entries of cells. */
+	private static boolean contains(int[] cells, int count, int cell) {
+		for (int i = 0; i < count; i++) {
+			if (cells[i] == cell)
+				return true;
+		}
+		return false;
+	}
+}
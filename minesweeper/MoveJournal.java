@@ -0,0 +1,331 @@
+package mines;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/* Records the moves of a game so they can be undone, redone, replayed and saved. The
+journal keeps the seed of the board and an append-only list of moves, one int each:
+the row-major index of an opened cell, or its complement (~index) for a flag toggle.
+Undoing a move that branches off starts a new list from that point. To undo in time
+proportional to what a move changed, the board tells the journal every cell a move
+opens, and undo closes exactly those cells; no copy of the board is ever made. Those
+cells are kept for at most MAX_OPENED cells, so a fully opened board of 10^8 cells does
+not hold 400 MB of history: past that the journal forgets them all and keeps only the
+moves, and undoing an open made before that point replays the moves before it on the
+live board, in time proportional to the board rather than to the move.
+Replaying rebuilds the board from the seed and the moves alone, and runs at millions of
+moves per second. All moves on the board must go through the journal while it records.
+Mines placed on the first click are placed by the journal, around the recorded cell;
+undoing that click leaves them on the live board, so later moves keep the same board.
+save(), load() and replay(int) serve tools and tests; the games save boards with
+BoardFile, which keeps no moves. */
+public class MoveJournal {
+	private static final int MAGIC = 0x4D4A524E; // "MJRN"
+	private static final short VERSION = 1;
+	private static final int HEADER = 36; // Bytes before the moves in a saved journal
+	private static final int MAX_OPENED = 1 << 22; // Opened cells kept for undo, 16 MB
+
+	private final MinesLogic board; // The live game
+	private final int height, width, numMines;
+	private long seed; // Seed of the MineGenerator that places the mines
+	private final boolean safeFirst; // Whether the mines are placed around the first opened cell
+	private final boolean fresh; // Whether the board had no moves when recording started
+	private int safeIndex = -1; // The cell the mines were placed around, -1 until then
+	private boolean placed; // Whether the mines are on the live board
+
+	private int[] moves = new int[64]; // Cell index of an open, ~index of a flag toggle
+	private int size; // Number of recorded moves, including undone ones that can be redone
+	private int position; // Number of moves currently applied to the board
+	private int[] deltaEnd = new int[64]; // End in opened of the cells each applied move opened
+	private int[] opened = new int[256]; // Cells opened by the applied moves from firstKept on, in order
+	private int openedSize;
+	private int firstKept; // First move whose opened cells are kept; earlier opens are undone by replaying
+
+	/*
+	 * Starts recording the moves made on a board. board: The game; if it already
+	 * has moves, they can't be replayed or saved, and opens whose cells were
+	 * forgotten can't be undone. seed: The seed of the MineGenerator of the board.
+	 * minesToPlace: Mines the journal places around the first opened cell, 0 if the
+	 * mines are already placed.
+	 */
+	public static MoveJournal attach(MinesLogic board, long seed, int minesToPlace) {
+		MoveJournal journal = new MoveJournal(board, seed, minesToPlace);
+		board.setJournal(journal);
+		return journal;
+	}
+
+	private MoveJournal(MinesLogic board, long seed, int minesToPlace) {
+		this.board = board;
+		this.height = board.getHeight();
+		this.width = board.getWidth();
+		this.seed = seed;
+		this.safeFirst = minesToPlace > 0;
+		this.numMines = safeFirst ? minesToPlace : board.getNumMines();
+		this.placed = !safeFirst;
+		this.fresh = board.getFlagsPlaced() == 0
+				&& board.getRemainingSafeCells() == height * width - board.getNumMines();
+	}
+
+	/* Returns the board whose moves are recorded. */
+	public MinesLogic getBoard() {
+		return board;
+	}
+
+	/* Returns the seed of the MineGenerator of the board. */
+	public long getSeed() {
+		return seed;
+	}
+
+	/*
+	 * Changes the seed while the mines are not placed yet, for generators that
+	 * choose the board only at the first click.
+	 */
+	public void setSeed(long seed) {
+		if (placed)
+			throw new IllegalStateException("The mines are already placed");
+		this.seed = seed;
+	}
+
+	/* Returns the number of moves currently applied. */
+	public int getPosition() {
+		return position;
+	}
+
+	/* Returns the number of recorded moves, including the ones that can be redone. */
+	public int size() {
+		return size;
+	}
+
+	/*
+	 * Opens a cell and records the move, placing the mines first if they wait for
+	 * the first click. row, col: The position of the cell. Returns false if the
+	 * cell contains a mine; otherwise true.
+	 */
+	public boolean open(int row, int col) {
+		return record(index(row, col));
+	}
+
+	/* Toggles a flag on a cell and records the move. row, col: The position of the cell. */
+	public void toggleFlag(int row, int col) {
+		record(~index(row, col));
+	}
+
+	/*
+	 * Returns true if there is a move to undo: always after a move, unless it is an
+	 * open whose cells were forgotten on a journal that started in the middle of a
+	 * game.
+	 */
+	public boolean canUndo() {
+		return position > 0 && (fresh || position > firstKept || moves[position - 1] < 0);
+	}
+
+	/* Returns true if there is an undone move to redo. */
+	public boolean canRedo() {
+		return position < size;
+	}
+
+	/*
+	 * Takes back the last applied move, closing exactly the cells it opened, or
+	 * replaying the moves before it if they were forgotten. Returns false if there
+	 * was no move to undo.
+	 */
+	public boolean undo() {
+		if (!canUndo())
+			return false;
+		int move = moves[--position];
+		if (move < 0) {
+			board.toggleFlag(~move / width, ~move % width);// Opens nothing, so opened stays as it is
+		} else if (position >= firstKept) {
+			int from = position == firstKept ? 0 : deltaEnd[position - 1];
+			for (int k = openedSize - 1; k >= from; k--)
+				board.close(opened[k]);
+			openedSize = from;
+		} else {
+			rebuild();
+		}
+		firstKept = Math.min(firstKept, position);// Moves applied from here on keep their cells again
+		return true;
+	}
+
+	/* Applies the next undone move again. Returns false if there was none. */
+	public boolean redo() {
+		if (position == size)
+			return false;
+		apply(moves[position]);
+		endMove();
+		return true;
+	}
+
+	/*
+	 * Rebuilds the board after a number of moves on a new MinesLogic, without
+	 * touching the live game. count: How many of the recorded moves to apply.
+	 * Throws IllegalStateException if recording started after the first move.
+	 */
+	public MinesLogic replay(int count) {
+		if (!fresh)
+			throw new IllegalStateException("The journal started in the middle of a game");
+		if (count < 0 || count > size)
+			throw new IndexOutOfBoundsException("Move " + count + " of " + size);
+		MinesLogic copy = new MinesLogic(height, width, 0, board.getTopology());
+		boolean copyPlaced = !safeFirst;
+		if (copyPlaced)
+			new MineGenerator(seed).place(copy, numMines);
+		for (int k = 0; k < count; k++) {
+			int move = moves[k];
+			if (move < 0) {
+				copy.toggleFlag(~move / width, ~move % width);
+			} else {
+				if (!copyPlaced) {
+					new MineGenerator(seed).place(copy, numMines, safeIndex / width, safeIndex % width);
+					copyPlaced = true;
+				}
+				copy.open(move / width, move % width);
+			}
+		}
+		return copy;
+	}
+
+	/*
+	 * Writes the seed and the applied moves to a file. The format is big-endian:
+	 * magic "MJRN", version 1, a flags short (1 = mines placed on the first click,
+	 * the Topology code in the high byte), height, width, number of mines, seed, the cell the mines were placed around,
+	 * the number of moves, then one int per move. Throws IllegalStateException if
+	 * recording started after the first move.
+	 */
+	public void save(Path path) throws IOException {
+		if (!fresh)
+			throw new IllegalStateException("The journal started in the middle of a game");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+			out.writeInt(MAGIC);
+			out.writeShort(VERSION);
+			out.writeShort((safeFirst ? 1 : 0) | board.getTopology().getCode() << 8);
+			out.writeInt(height);
+			out.writeInt(width);
+			out.writeInt(numMines);
+			out.writeLong(seed);
+			out.writeInt(safeIndex);
+			out.writeInt(position);
+			for (int k = 0; k < position; k++)
+				out.writeInt(moves[k]);
+		}
+	}
+
+	/*
+	 * Reads a journal written by save() and replays it on a new board, with every
+	 * move undoable. path: The file to read. Throws IOException if the file is not
+	 * a valid journal.
+	 */
+	public static MoveJournal load(Path path) throws IOException {
+		long length = Files.size(path);
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+			if (length < HEADER || in.readInt() != MAGIC)
+				throw new IOException("Not a move journal: " + path);
+			if (in.readShort() != VERSION)
+				throw new IOException("Unsupported move journal version: " + path);
+			int flags = in.readUnsignedShort();
+			boolean safeFirst = (flags & 1) != 0;
+			if (flags >> 8 >= Topology.values().length)
+				throw new IOException("Unknown topology " + (flags >> 8) + " in move journal: " + path);
+			int height = in.readInt(), width = in.readInt(), numMines = in.readInt();
+			long seed = in.readLong();
+			int safeIndex = in.readInt(), count = in.readInt();
+			long cells = (long) height * width;
+			if (height <= 0 || width <= 0 || cells > Integer.MAX_VALUE - 8 || numMines < 0 || numMines >= cells)
+				throw new IOException("Bad board " + height + "x" + width + " with " + numMines + " mines: " + path);
+			if (safeIndex < -1 || safeIndex >= cells)
+				throw new IOException("Bad first click " + safeIndex + " in move journal: " + path);
+			if (count < 0 || count > (length - HEADER) / Integer.BYTES)
+				throw new IOException("Bad move count " + count + " in move journal: " + path);
+			int[] moves = new int[Math.max(count, 64)];
+			for (int k = 0; k < count; k++) {
+				moves[k] = in.readInt();
+				if ((moves[k] < 0 ? ~moves[k] : moves[k]) >= cells)
+					throw new IOException("Bad move " + moves[k] + " in move journal: " + path);
+			}
+			MinesLogic board = new MinesLogic(height, width, 0, Topology.fromCode(flags >> 8));
+			if (!safeFirst)
+				new MineGenerator(seed).place(board, numMines);
+			MoveJournal journal = attach(board, seed, safeFirst ? numMines : 0);
+			journal.safeIndex = safeIndex;
+			journal.moves = moves;
+			journal.size = count;
+			for (int k = 0; k < count; k++)
+				journal.redo();// Applies the move and records what it opened
+			return journal;
+		}
+	}
+
+	/*
+	 * Called by the board for every cell it opens. Past MAX_OPENED cells, forgets
+	 * the cells of every move so far, this one included.
+	 */
+	void opened(int index) {
+		if (firstKept > position)
+			return;// This move's cells are forgotten already
+		if (openedSize == MAX_OPENED) {
+			openedSize = 0;
+			firstKept = position + 1;
+			return;
+		}
+		if (openedSize == opened.length)
+			opened = Arrays.copyOf(opened, Math.min(opened.length * 2, MAX_OPENED));
+		opened[openedSize++] = index;
+	}
+
+	/*
+	 * Brings the live board back to the moves before position, for an open whose
+	 * cells were forgotten: closes everything and applies those moves again, without
+	 * keeping what they open.
+	 */
+	private void rebuild() {
+		board.setJournal(null);
+		board.closeAll();
+		for (int k = 0; k < position; k++)
+			apply(moves[k]);
+		board.setJournal(this);
+	}
+
+	/* Applies a new move, dropping the moves that were undone before it. */
+	private boolean record(int move) {
+		size = position;
+		if (size == moves.length)
+			moves = Arrays.copyOf(moves, size * 2);
+		moves[size++] = move;
+		boolean result = apply(move);
+		endMove();
+		return result;
+	}
+
+	/* Marks the end of the cells opened by the move just applied. */
+	private void endMove() {
+		if (position == deltaEnd.length)
+			deltaEnd = Arrays.copyOf(deltaEnd, position * 2);
+		deltaEnd[position++] = openedSize;
+	}
+
+	private boolean apply(int move) {
+		if (move < 0) {
+			board.toggleFlag(~move / width, ~move % width);
+			return true;
+		}
+		if (!placed) {// First click: place the mines around it
+			if (safeIndex < 0)
+				safeIndex = move;
+			new MineGenerator(seed).place(board, numMines, safeIndex / width, safeIndex % width);
+			placed = true;
+		}
+		return board.open(move / width, move % width);
+	}
+
+	private int index(int row, int col) {
+		if (row >= height || col >= width || row < 0 || col < 0)
+			throw new ArrayIndexOutOfBoundsException("Cell (" + row + ", " + col + ") is outside the board");
+		return row * width + col;
+	}
+}
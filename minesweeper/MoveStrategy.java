@@ -0,0 +1,34 @@
+package mines;
+
+import java.util.SplittableRandom;
+
+/* A way of playing Minesweeper, driven by the headless SimulationRunner. A strategy sees
+the board only through what a player sees (MinesLogic.get), chooses one cell to open at
+a time, and is told when a new game starts so it can drop what it remembers. Every
+simulation thread creates its own instance, so implementations may keep mutable state
+without synchronization. */
+public interface MoveStrategy {
+
+	/*
+	 * Called before every game, before the first move. board: The new board, with
+	 * no mines placed yet when the first click is kept safe.
+	 */
+	default void newGame(MinesLogic board) {
+	}
+
+	/*
+	 * Chooses the first cell to open; the mines are placed around it afterwards.
+	 * height, width: The board size. random: The random source of this game.
+	 * Returns the row-major index of the cell. Opens the centre by default.
+	 */
+	default int firstMove(int height, int width, SplittableRandom random) {
+		return (height / 2) * width + width / 2;
+	}
+
+	/*
+	 * Chooses the next cell to open. board: The game in progress, neither won nor
+	 * lost. random: The random source of this game, for reproducible guesses.
+	 * Returns the row-major index of a covered cell.
+	 */
+	int nextMove(MinesLogic board, SplittableRandom random);
+}
@@ -0,0 +1,187 @@
+package mines;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/* Generates boards that can be solved from the first click by logic alone, without a
+single guess. Candidate boards are generated and verified in parallel, one worker per
+core: each worker places mines with a fresh seed, opens the first click and lets the
+solver open every provably safe cell until the board is done or the solver is stuck.
+The first board that passes wins and the other workers are cancelled. If no board
+passes within the time budget, an ordinary first-click-safe board is returned instead.
+A result is identified by its seed: MineGenerator(seed).place(board, numMines, row, col)
+rebuilds exactly the verified board. */
+public class NoGuessGenerator {
+	private final int threads; // Number of workers
+	private final SplittableRandom seeds; // Source of candidate seeds, split per worker
+
+	/* Creates a generator with one worker per available core and random seeds. */
+	public NoGuessGenerator() {
+		this(Runtime.getRuntime().availableProcessors(), new SplittableRandom().nextLong());
+	}
+
+	/*
+	 * Creates a generator. threads: The number of workers. seed: Seeds the sequence
+	 * of candidate seeds.
+	 */
+	public NoGuessGenerator(int threads, long seed) {
+		this.threads = Math.max(1, threads);
+		this.seeds = new SplittableRandom(seed);
+	}
+
+	/* The outcome of a generation run, with statistics to size the generator. */
+	public static class Result {
+		private final long seed;
+		private final boolean noGuess;
+		private final long attempts, accepted, nanos;
+
+		Result(long seed, boolean noGuess, long attempts, long accepted, long nanos) {
+			this.seed = seed;
+			this.noGuess = noGuess;
+			this.attempts = attempts;
+			this.accepted = accepted;
+			this.nanos = nanos;
+		}
+
+		/* Returns the seed that rebuilds the board with MineGenerator. */
+		public long getSeed() {
+			return seed;
+		}
+
+		/* Returns true if the board was verified guess-free, false for the fallback board. */
+		public boolean isNoGuess() {
+			return noGuess;
+		}
+
+		/* Returns the number of candidate boards that were fully checked. */
+		public long getAttempts() {
+			return attempts;
+		}
+
+		/* Returns the share of checked boards that were solvable without guessing. */
+		public double getAcceptanceRate() {
+			return attempts == 0 ? 0 : (double) accepted / attempts;
+		}
+
+		/* Returns the number of candidate boards checked per second over all workers. */
+		public double getBoardsPerSecond() {
+			return nanos == 0 ? 0 : attempts * 1e9 / nanos;
+		}
+
+		/* Returns the wall-clock time of the run in nanoseconds. */
+		public long getNanos() {
+			return nanos;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("seed=%d noGuess=%b attempts=%d acceptance=%.3f boards/s=%.1f time=%.1fms", seed,
+					noGuess, attempts, getAcceptanceRate(), getBoardsPerSecond(), nanos / 1e6);
+		}
+	}
+
+	/*
+	 * Looks for a board that can be solved without guessing. height, width: The
+	 * board size. topology: Which cells are neighbours. numMines: The number of mines. safeRow, safeCol: The position of
+	 * the first click. budgetMillis: How long to search before falling back to an
+	 * ordinary board. Returns the seed of the board and the run statistics.
+	 * Throws CancellationException if the calling thread is interrupted.
+	 */
+	public Result generate(int height, int width, Topology topology, int numMines, int safeRow, int safeCol,
+			long budgetMillis) {
+		long start = System.nanoTime();
+		long deadline = start + budgetMillis * 1_000_000;
+		AtomicReference<Long> winner = new AtomicReference<>();
+		AtomicLong attempts = new AtomicLong(), accepted = new AtomicLong();
+		List<SplittableRandom> workerSeeds = new ArrayList<>();
+		synchronized (seeds) {
+			for (int t = 0; t < threads; t++)
+				workerSeeds.add(seeds.split());
+		}
+		long fallback = workerSeeds.get(0).split().nextLong();
+
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			CompletionService<Void> workers = new ExecutorCompletionService<>(pool);
+			for (SplittableRandom workerSeed : workerSeeds) {
+				workers.submit(() -> {
+					MinesSolver solver = new MinesSolver(null);// Each worker solves on its own thread
+					while (winner.get() == null && System.nanoTime() < deadline) {
+						long seed = workerSeed.nextLong();
+						try {
+							if (verify(solver, seed, height, width, topology, numMines, safeRow, safeCol)) {
+								accepted.incrementAndGet();
+								winner.compareAndSet(null, seed);
+							}
+						} catch (CancellationException e) {
+							return null;// Another worker won while this board was being built
+						}
+						attempts.incrementAndGet();
+					}
+					return null;
+				});
+			}
+			for (int done = 0; done < threads && winner.get() == null; done++)
+				awaitWorker(workers);// In the order they finish, so the winner is seen at once
+		} finally {
+			pool.shutdownNow();// Cancels the remaining workers
+		}
+		Long seed = winner.get();
+		long nanos = System.nanoTime() - start;
+		if (seed == null)
+			return new Result(fallback, false, attempts.get(), accepted.get(), nanos);
+		return new Result(seed, true, attempts.get(), accepted.get(), nanos);
+	}
+
+	/*
+	 * Waits for the next worker to finish. Throws CancellationException, with the
+	 * interrupt flag set again, if the calling thread is interrupted while it
+	 * waits, and rethrows what a worker threw.
+	 */
+	private static void awaitWorker(CompletionService<Void> workers) {
+		try {
+			workers.take().get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			CancellationException cancelled = new CancellationException("No-guess generation cancelled");
+			cancelled.initCause(e);
+			throw cancelled;
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException failure)
+				throw failure;
+			if (e.getCause() instanceof Error error)
+				throw error;
+			throw new IllegalStateException("No-guess worker failed", e.getCause());
+		}
+	}
+
+	/*
+	 * Builds the board of a seed and plays it with the solver only. Returns true if
+	 * the solver opened every safe cell.
+	 */
+	static boolean verify(MinesSolver solver, long seed, int height, int width, Topology topology, int numMines,
+			int safeRow, int safeCol) {
+		MinesLogic board = new MinesLogic(height, width, 0, topology);
+		new MineGenerator(seed).place(board, numMines, safeRow, safeCol);
+		board.open(safeRow, safeCol);
+		while (!board.isDone()) {
+			if (Thread.currentThread().isInterrupted())
+				throw new CancellationException();
+			int[] safe = solver.solve(board).getSafeCells();
+			if (safe.length == 0)
+				return false;// Stuck: the next move would be a guess
+			for (int cell : safe)
+				board.open(cell / width, cell % width);
+		}
+		return true;
+	}
+}
@@ -0,0 +1,396 @@
+package mines;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.IntConsumer;
+
+/* The empty regions of a board whose mines are placed: every connected group of cells
+without adjacent mines (neighbours along diagonals count as connected), together with
+the numbered cells bordering it. Opening any empty cell of a region opens exactly the
+cells of that region, so once the mines are placed the regions never change and a
+click on an empty cell can open its region in one pass over a precomputed list.
+
+The labelling is a union-find over the empty cells. The board is split into horizontal
+strips that are labelled in parallel, each strip only linking cells inside itself, and
+the seams between strips are then joined on the calling thread. Every region ends up
+rooted at its lowest index, so region numbers follow the row-major order of their first
+cell whatever the number of strips. The cells of each region are stored back to back
+(compressed sparse rows): region r owns cells[start[r]] to cells[start[r + 1] - 1], in
+row-major order when labelled on one thread and in no particular order otherwise. A
+numbered cell next to several regions is listed in each of them. The tables take 4 bytes per cell of the
+board plus 4 bytes per listed cell, and another 4 bytes per cell while labelling.
+
+Also gives the 3BV of the board (the least number of clicks that clears it): one click
+per region plus one per numbered cell that no region opens. */
+public class RegionLabels {
+	private static final int PARALLEL_CELLS = 1 << 18; // Smaller boards are labelled on the calling thread
+	private static final int MIN_STRIP_ROWS = 64; // Fewest rows per strip, so seams stay rare
+
+	private final int height, width;
+	private final int[] label; // Region of each empty cell, -1 for numbered cells and mines
+	private final int[] start; // Offset of the cells of each region in cells, plus the end
+	private final int[] cells; // Cells of all regions, region after region
+	private final int isolated; // Numbered cells that no region opens
+	private final long nanos; // Time taken to label the board
+
+	private RegionLabels(int height, int width, int[] label, int[] start, int[] cells, int isolated, long nanos) {
+		this.height = height;
+		this.width = width;
+		this.label = label;
+		this.start = start;
+		this.cells = cells;
+		this.isolated = isolated;
+		this.nanos = nanos;
+	}
+
+	/* Labels the regions of a board whose mines are placed, on the common fork-join pool. */
+	public static RegionLabels compute(MinesLogic board) {
+		return compute(board, ForkJoinPool.commonPool());
+	}
+
+	/*
+	 * Labels the regions of a board whose mines are placed. board: The board.
+	 * pool: Labels the strips in parallel, or null to label on the calling thread.
+	 * Small boards are always labelled on the calling thread.
+	 */
+	public static RegionLabels compute(MinesLogic board, ForkJoinPool pool) {
+		long begin = System.nanoTime();
+		int height = board.getHeight(), width = board.getWidth(), size = height * width;
+		int strips = 1;
+		if (pool != null && size >= PARALLEL_CELLS)
+			strips = Math.max(1, Math.min(pool.getParallelism() * 4, height / MIN_STRIP_ROWS));
+		int[] rowOf = new int[strips + 1]; // First row of each strip
+		for (int s = 0; s <= strips; s++)
+			rowOf[s] = (int) ((long) height * s / strips);
+		Pass pass = strips == 1 ? Pass.SEQUENTIAL : new Pass(pool, strips);
+
+		// Link the empty cells of each strip to their empty neighbours above and to the left
+		int[] parent = new int[size];
+		pass.run(s -> {
+			for (int row = rowOf[s]; row < rowOf[s + 1]; row++) {
+				for (int col = 0, i = row * width; col < width; col++, i++) {
+					if (!isEmpty(board, i)) {
+						parent[i] = -1;
+						continue;
+					}
+					parent[i] = i;
+					boolean left = col > 0 && parent[i - 1] >= 0;
+					if (left)
+						union(parent, i - 1, i);
+					if (row == rowOf[s])
+						continue;// Rows above the strip belong to another thread
+					// The left cell is already joined to the cells above it and above-left
+					int above = i - width;
+					if (!left && col > 0 && parent[above - 1] >= 0)
+						union(parent, above - 1, i);
+					if (!left && parent[above] >= 0)
+						union(parent, above, i);
+					else if (col + 1 < width && parent[above + 1] >= 0)
+						union(parent, above + 1, i);
+				}
+			}
+		});
+		// Join the regions across the seams between strips
+		for (int s = 1; s < strips; s++) {
+			int row = rowOf[s];
+			if (row == 0 || row == rowOf[s + 1])
+				continue;
+			for (int col = 0, i = row * width; col < width; col++, i++) {
+				if (parent[i] < 0)
+					continue;
+				for (int n = Math.max(col - 1, 0); n <= Math.min(col + 1, width - 1); n++) {
+					int above = i - width - col + n;
+					if (parent[above] >= 0)
+						union(parent, above, i);
+				}
+			}
+		}
+
+		// Point every cell straight at its root; roots never move from here on
+		int[] roots = new int[strips];
+		pass.run(s -> {
+			int count = 0;
+			for (int i = rowOf[s] * width, end = rowOf[s + 1] * width; i < end; i++) {
+				if (parent[i] >= 0) {
+					int root = rootOf(parent, i);
+					parent[i] = root;// Only this strip writes its cells; readers see an ancestor either way
+					if (root == i)
+						count++;
+				}
+			}
+			roots[s] = count;
+		});
+		// Number the roots in row-major order, then give every cell the number of its root
+		int[] label = new int[size];
+		int[] firstRegion = new int[strips + 1];
+		for (int s = 0; s < strips; s++)
+			firstRegion[s + 1] = firstRegion[s] + roots[s];
+		int regions = firstRegion[strips];
+		pass.run(s -> {
+			int next = firstRegion[s];
+			for (int i = rowOf[s] * width, end = rowOf[s + 1] * width; i < end; i++)
+				label[i] = parent[i] == i ? next++ : -1;
+		});
+		pass.run(s -> {
+			for (int i = rowOf[s] * width, end = rowOf[s + 1] * width; i < end; i++) {
+				if (parent[i] >= 0 && parent[i] != i)
+					label[i] = label[parent[i]];
+			}
+		});
+
+		// Size each region: its empty cells and the numbered cells next to them
+		AtomicIntegerArray sizes = new AtomicIntegerArray(regions);
+		int[] isolated = new int[strips];
+		pass.run(s -> {
+			Tally tally = new Tally(sizes);
+			int[] seen = new int[8];
+			for (int row = rowOf[s]; row < rowOf[s + 1]; row++) {
+				for (int col = 0, i = row * width; col < width; col++, i++) {
+					if (label[i] >= 0) {
+						tally.add(label[i]);
+					} else if (!board.isMine(i)) {
+						int n = borderOf(label, height, width, row, col, seen);
+						for (int k = 0; k < n; k++)
+							tally.add(seen[k]);
+						if (n == 0)
+							isolated[s]++;
+						parent[i] = n == 1 ? seen[0] : n == 0 ? -1 : -2;// Saves the listing pass a second look
+					}
+				}
+			}
+			tally.flush();
+		});
+		int[] start = new int[regions + 1];
+		for (int r = 0; r < regions; r++)
+			start[r + 1] = start[r] + sizes.get(r);
+
+		// List the cells of every region, each strip claiming the next free slot of the region
+		int[] cells = new int[start[regions]];
+		int[] next = Arrays.copyOf(start, regions); // Next free slot of each region, on one thread
+		AtomicIntegerArray fill = strips == 1 ? null : new AtomicIntegerArray(next); // The same, shared by the strips
+		pass.run(s -> {
+			int[] seen = new int[8];
+			for (int row = rowOf[s]; row < rowOf[s + 1]; row++) {
+				for (int col = 0, i = row * width; col < width; col++, i++) {
+					int region = label[i] >= 0 ? label[i] : parent[i]; // Region of a border cell next to only one
+					if (region >= 0) {
+						cells[fill == null ? next[region]++ : fill.getAndIncrement(region)] = i;
+					} else if (region == -2) {
+						int n = borderOf(label, height, width, row, col, seen);
+						for (int k = 0; k < n; k++)
+							cells[fill == null ? next[seen[k]]++ : fill.getAndIncrement(seen[k])] = i;
+					}
+				}
+			}
+		});
+		int total = 0;
+		for (int count : isolated)
+			total += count;
+		return new RegionLabels(height, width, label, start, cells, total, System.nanoTime() - begin);
+	}
+
+	/* Returns the number of regions. */
+	public int getRegionCount() {
+		return start.length - 1;
+	}
+
+	/*
+	 * Returns the region of an empty cell, or -1 for a numbered cell or a mine.
+	 * index: The row-major index of the cell.
+	 */
+	public int getRegion(int index) {
+		return label[index];
+	}
+
+	/* Returns the region of the empty cell at a position, or -1 for a numbered cell or a mine. */
+	public int getRegion(int row, int col) {
+		return label[row * width + col];
+	}
+
+	/* Returns the offset of the first cell of a region in the cell list. */
+	public int getStart(int region) {
+		return start[region];
+	}
+
+	/* Returns the offset just past the last cell of a region in the cell list. */
+	public int getEnd(int region) {
+		return start[region + 1];
+	}
+
+	/* Returns the row-major index of the cell at an offset in the cell list. */
+	public int getCell(int offset) {
+		return cells[offset];
+	}
+
+	/* Returns the number of cells a click in a region opens, border included. */
+	public int getRegionSize(int region) {
+		return start[region + 1] - start[region];
+	}
+
+	/* Returns the size of the largest region, 0 if there is none. */
+	public int getLargestRegion() {
+		int largest = 0;
+		for (int r = 0; r + 1 < start.length; r++)
+			largest = Math.max(largest, start[r + 1] - start[r]);
+		return largest;
+	}
+
+	/* Returns the number of numbered cells that no region opens, each needing its own click. */
+	public int getIsolatedCells() {
+		return isolated;
+	}
+
+	/*
+	 * Returns the 3BV of the board: the number of regions plus the numbered cells
+	 * that no region opens, which is the least number of clicks that clears it.
+	 */
+	public int getThreeBV() {
+		return getRegionCount() + isolated;
+	}
+
+	/* Returns the time taken to label the board, in nanoseconds. */
+	public long getNanos() {
+		return nanos;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("regions=%d largest=%d isolated=%d 3BV=%d time=%.3fms", getRegionCount(),
+				getLargestRegion(), isolated, getThreeBV(), nanos / 1e6);
+	}
+
+	private static boolean isEmpty(MinesLogic board, int index) {
+		return !board.isMine(index) && board.adjacentMines(index) == 0;
+	}
+
+	/*
+	 * Stores the distinct regions next to a numbered cell in out and returns how
+	 * many there are. label: The region of every cell. out: At least 8 entries.
+	 */
+	private static int borderOf(int[] label, int height, int width, int row, int col, int[] out) {
+		if (row > 0 && row < height - 1 && col > 0 && col < width - 1) {// No bounds to check
+			int up = (row - 1) * width + col, at = up + width, down = at + width;
+			int n = addRegion(out, 0, label[up - 1]);
+			n = addRegion(out, n, label[up]);
+			n = addRegion(out, n, label[up + 1]);
+			n = addRegion(out, n, label[at - 1]);
+			n = addRegion(out, n, label[at + 1]);
+			n = addRegion(out, n, label[down - 1]);
+			n = addRegion(out, n, label[down]);
+			return addRegion(out, n, label[down + 1]);
+		}
+		int n = 0;
+		for (int r = Math.max(row - 1, 0); r <= Math.min(row + 1, height - 1); r++) {
+			for (int c = Math.max(col - 1, 0); c <= Math.min(col + 1, width - 1); c++) {
+				if (r != row || c != col)
+					n = addRegion(out, n, label[r * width + c]);
+			}
+		}
+		return n;
+	}
+
+	/* Adds a region to the first n entries of out unless it is -1 or already there. Returns the new count. */
+	private static int addRegion(int[] out, int n, int region) {
+		if (region < 0)
+			return n;
+		for (int k = 0; k < n; k++) {
+			if (out[k] == region)
+				return n;
+		}
+		out[n] = region;
+		return n + 1;
+	}
+
+	/* Returns the root of a cell without changing the forest, so strips may share it. */
+	private static int rootOf(int[] parent, int i) {
+		while (parent[i] != i)
+			i = parent[i];
+		return i;
+	}
+
+	/* Returns the root of a cell, halving the path on the way up. */
+	private static int find(int[] parent, int i) {
+		while (parent[i] != i) {
+			parent[i] = parent[parent[i]];
+			i = parent[i];
+		}
+		return i;
+	}
+
+	/* Joins the sets of two cells, the lower root becoming the root of both. */
+	private static void union(int[] parent, int a, int b) {
+		int ra = find(parent, a), rb = find(parent, b);
+		if (ra < rb)
+			parent[rb] = ra;
+		else if (rb < ra)
+			parent[ra] = rb;
+	}
+
+	/*
+	 * Adds up the cells of the regions met by one strip in a small direct-mapped
+	 * table, touching the shared counters only when a slot is reused. Regions
+	 * close together on the board have close numbers, so most additions stay
+	 * local and a region that spans every strip is not fought over cell by cell.
+	 */
+	private static final class Tally {
+		private static final int SLOTS = 4096; // Power of two
+		private final AtomicIntegerArray sizes;
+		private final int[] region = new int[SLOTS], count = new int[SLOTS];
+
+		Tally(AtomicIntegerArray sizes) {
+			this.sizes = sizes;
+			Arrays.fill(region, -1);
+		}
+
+		void add(int r) {
+			int slot = r & (SLOTS - 1);
+			if (region[slot] != r) {
+				if (count[slot] > 0)
+					sizes.getAndAdd(region[slot], count[slot]);
+				region[slot] = r;
+				count[slot] = 0;
+			}
+			count[slot]++;
+		}
+
+		void flush() {
+			for (int slot = 0; slot < SLOTS; slot++) {
+				if (count[slot] > 0)
+					sizes.getAndAdd(region[slot], count[slot]);
+				count[slot] = 0;
+			}
+		}
+	}
+
+	/* Runs a step for every strip, on the pool or on the calling thread. */
+	private static final class Pass {
+		static final Pass SEQUENTIAL = new Pass(null, 1);
+
+		private final ForkJoinPool pool;
+		private final int strips;
+
+		Pass(ForkJoinPool pool, int strips) {
+			this.pool = pool;
+			this.strips = strips;
+		}
+
+		void run(IntConsumer step) {
+			if (pool == null) {
+				for (int s = 0; s < strips; s++)
+					step.accept(s);
+				return;
+			}
+			List<ForkJoinTask<?>> tasks = new ArrayList<>();
+			for (int s = 0; s < strips; s++) {
+				int strip = s;
+				tasks.add(pool.submit(() -> step.accept(strip)));
+			}
+			for (ForkJoinTask<?> task : tasks)
+				task.join();
+		}
+	}
+}
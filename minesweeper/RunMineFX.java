@@ -1,12 +1,9 @@
 package mines;
 
-import java.io.File;
-
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
-import javafx.scene.image.Image;
 import javafx.stage.Stage;
 
 /* Represents the entry point for the Minesweeper JavaFX application. 
@@ -22,13 +19,9 @@ public class RunMineFX extends Application {
 		FXMLLoader loader = new FXMLLoader(getClass().getResource("Mines.fxml"));
 		Parent root = loader.load();// Load the FXML file into a Parent object
 
-		// Image for icon
-		File file2 = new File("src/graphics/spike.png"); // Path relative to project folder
-		Image spike = new Image(file2.toURI().toString());
-
 		// Set the title of the application window
 		stage.setTitle("The Amazing Mines Sweeper");
-		stage.getIcons().add(spike);
+		stage.getIcons().add(ImageCache.get(ImageCache.MINE));// Image for icon, shared with the board
 		stage.setResizable(false);
 		// Get the controller from the FXMLLoader
 		Controller controller = loader.getController();
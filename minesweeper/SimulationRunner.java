@@ -0,0 +1,274 @@
+package mines;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/* Plays large numbers of games headlessly with a MoveStrategy and reports how well it
+plays: win rate, clicks per game, 3BV/s (the board's 3BV, the least number of clicks
+that clears it, per second of play on won games) and the latency of every move.
+Uses MinesLogic directly and never touches JavaFX, so it starts without it:
+
+    java -cp <classes> mines.SimulationRunner --strategy solver --games 1000000
+
+Options: --rows, --cols, --mines (expert 16x30 with 99 mines by default), --games,
+--strategy (random, solver, probability or the class name of a MoveStrategy with a
+no-argument constructor), --threads (one per core by default) and --seed.
+Game i always gets the same board and random choices for the same seed, whatever the
+number of threads. Every thread plays its own share of the games with its own strategy,
+board and statistics, which are only added together at the end, so threads share no
+mutable state and throughput grows with the number of cores. */
+public class SimulationRunner {
+	private static final long GOLDEN = 0x9E3779B97F4A7C15L; // Spreads game numbers over the seed space
+
+	private int rows = 16, cols = 30, mines = 99;
+	private long games = 100_000;
+	private String strategy = "solver";
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private long seed = 1;
+
+	public static void main(String[] args) throws Exception {
+		SimulationRunner runner = new SimulationRunner();
+		for (int i = 0; i < args.length; i += 2) {
+			if (i + 1 == args.length)
+				throw new IllegalArgumentException("Missing value for " + args[i]);
+			String value = args[i + 1];
+			switch (args[i]) {
+			case "--rows" -> runner.rows = Integer.parseInt(value);
+			case "--cols" -> runner.cols = Integer.parseInt(value);
+			case "--mines" -> runner.mines = Integer.parseInt(value);
+			case "--games" -> runner.games = Long.parseLong(value);
+			case "--strategy" -> runner.strategy = value;
+			case "--threads" -> runner.threads = Integer.parseInt(value);
+			case "--seed" -> runner.seed = Long.parseLong(value);
+			default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+			}
+		}
+		newStrategy(runner.strategy);// Fail before starting the threads if the name is wrong
+		long start = System.nanoTime();
+		Stats stats = runner.run();
+		System.out.println(runner.report(stats, System.nanoTime() - start));
+		if (Metrics.ENABLED)
+			System.out.print(Metrics.dump(false));
+	}
+
+	/*
+	 * Plays all the games, each thread a contiguous range of them. Returns the
+	 * statistics of all threads added together.
+	 */
+	Stats run() throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<Stats>> parts = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				long from = games * t / threads, to = games * (t + 1) / threads;
+				parts.add(pool.submit(() -> {
+					MoveStrategy player = newStrategy(strategy);
+					Stats stats = new Stats();
+					for (long game = from; game < to; game++)
+						play(game, player, stats);
+					return stats;
+				}));
+			}
+			Stats total = new Stats();
+			for (Future<Stats> part : parts)
+				total.add(part.get());
+			return total;
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/*
+	 * Plays one game to the end. game: The number of the game, which determines
+	 * its board and random choices. player: The strategy of this thread. stats:
+	 * Receives the outcome.
+	 */
+	private void play(long game, MoveStrategy player, Stats stats) {
+		SplittableRandom random = new SplittableRandom(seed + game * GOLDEN);
+		long boardSeed = random.nextLong();
+		MinesLogic board = new MinesLogic(rows, cols, 0);
+		player.newGame(board);
+		int move = player.firstMove(rows, cols, random);
+		// Labelled on this thread, which is already one of the simulation's workers, for the 3BV
+		new MineGenerator(boardSeed, Integer.MAX_VALUE).place(board, mines, move / cols, move % cols);
+		int bv = board.getRegionLabels().getThreeBV();
+
+		long start = System.nanoTime(), now = start;
+		int clicks = 0;
+		boolean alive = true;
+		while (true) {
+			long before = now;
+			alive = board.open(move / cols, move % cols);
+			clicks++;
+			now = System.nanoTime();
+			stats.moves.record(now - before);// Choosing and making the move
+			if (!alive || board.isDone())
+				break;
+			move = player.nextMove(board, random);
+		}
+		stats.games++;
+		stats.clicks += clicks;
+		if (alive) {
+			stats.wins++;
+			stats.winClicks += clicks;
+			stats.winBV += bv;
+			stats.winNanos += now - start;
+		}
+	}
+
+	/* Formats the statistics of a run. nanos: The wall-clock time of the run. */
+	String report(Stats stats, long nanos) {
+		StringBuilder out = new StringBuilder();
+		out.append(String.format("strategy=%s board=%dx%d/%d games=%d threads=%d seed=%d%n", strategy, rows, cols,
+				mines, stats.games, threads, seed));
+		out.append(String.format("wins=%d (%.2f%%) clicks/game=%.2f clicks/win=%.2f%n", stats.wins,
+				100.0 * stats.wins / Math.max(1, stats.games), (double) stats.clicks / Math.max(1, stats.games),
+				(double) stats.winClicks / Math.max(1, stats.wins)));
+		out.append(String.format("won games: 3BV/s=%.1f 3BV/click=%.3f%n",
+				stats.winNanos == 0 ? 0 : stats.winBV * 1e9 / stats.winNanos,
+				(double) stats.winBV / Math.max(1, stats.winClicks)));
+		out.append(String.format("throughput=%.0f games/s in %.2fs%n", stats.games * 1e9 / nanos, nanos / 1e9));
+		out.append("move latency: ").append(stats.moves);
+		return out.toString();
+	}
+
+	/* The outcome of the games played by one thread, or of all of them. */
+	static final class Stats {
+		long games, wins, clicks, winClicks, winBV, winNanos;
+		final LatencyHistogram moves = new LatencyHistogram();
+
+		void add(Stats other) {
+			games += other.games;
+			wins += other.wins;
+			clicks += other.clicks;
+			winClicks += other.winClicks;
+			winBV += other.winBV;
+			winNanos += other.winNanos;
+			moves.add(other.moves);
+		}
+	}
+
+	/*
+	 * Creates a strategy by name: random, solver, probability, or the class name
+	 * of a MoveStrategy with a no-argument constructor.
+	 */
+	static MoveStrategy newStrategy(String name) throws ReflectiveOperationException {
+		return switch (name) {
+		case "random" -> new RandomStrategy();
+		case "solver" -> new SolverStrategy();
+		case "probability" -> new ProbabilityStrategy();
+		default -> Class.forName(name).asSubclass(MoveStrategy.class).getDeclaredConstructor().newInstance();
+		};
+	}
+
+	/*
+	 * Picks a random covered cell that is not known to be a mine. knownMine: Cells
+	 * proved to be mines, or null.
+	 */
+	static int randomCovered(MinesLogic board, SplittableRandom random, boolean[] knownMine) {
+		int cells = board.getHeight() * board.getWidth();
+		for (int tries = 0; tries < 64; tries++) {// Quick while most of the board is covered
+			int index = random.nextInt(cells);
+			if (!board.isOpen(index) && (knownMine == null || !knownMine[index]))
+				return index;
+		}
+		int from = random.nextInt(cells);
+		int fallback = -1;
+		for (int k = 0; k < cells; k++) {
+			int index = (from + k) % cells;
+			if (!board.isOpen(index)) {
+				if (knownMine == null || !knownMine[index])
+					return index;
+				fallback = index;
+			}
+		}
+		return fallback;// Only known mines are left
+	}
+
+	/* Opens random covered cells. The baseline every strategy should beat. */
+	static final class RandomStrategy implements MoveStrategy {
+		@Override
+		public int nextMove(MinesLogic board, SplittableRandom random) {
+			return randomCovered(board, random, null);
+		}
+	}
+
+	/*
+	 * Opens every cell the solver proves safe, and guesses a random cell that is
+	 * not a known mine when it is stuck.
+	 */
+	static final class SolverStrategy implements MoveStrategy {
+		private final MinesSolver solver = new MinesSolver(null); // This thread is the only worker
+		private int[] queue = new int[0]; // Cells proved safe, not all opened yet
+		private int next;
+		private boolean[] knownMine;
+
+		@Override
+		public void newGame(MinesLogic board) {
+			queue = new int[0];
+			next = 0;
+			knownMine = new boolean[board.getHeight() * board.getWidth()];
+		}
+
+		@Override
+		public int nextMove(MinesLogic board, SplittableRandom random) {
+			while (next < queue.length) {
+				int cell = queue[next++];
+				if (!board.isOpen(cell))
+					return cell;// Earlier openings may have revealed it already
+			}
+			MinesSolver.Result result = solver.solve(board);
+			for (int cell : result.getMineCells())
+				knownMine[cell] = true;
+			queue = result.getSafeCells();
+			next = 0;
+			if (queue.length > 0)
+				return queue[next++];
+			return randomCovered(board, random, knownMine);
+		}
+	}
+
+	/*
+	 * Opens the cells with no chance of a mine, and otherwise the cell with the
+	 * lowest exact mine probability.
+	 */
+	static final class ProbabilityStrategy implements MoveStrategy {
+		private final MineProbabilities probabilities = new MineProbabilities(null); // Enumerates on this thread
+		private int[] queue = new int[0]; // Cells with no chance of a mine
+		private int next;
+
+		@Override
+		public void newGame(MinesLogic board) {
+			queue = new int[0];
+			next = 0;
+		}
+
+		@Override
+		public int nextMove(MinesLogic board, SplittableRandom random) {
+			while (next < queue.length) {
+				int cell = queue[next++];
+				if (!board.isOpen(cell))
+					return cell;
+			}
+			double[] p = probabilities.compute(board);
+			int safe = 0, best = -1;
+			for (int i = 0; i < p.length; i++) {
+				if (p[i] == 0)
+					safe++;
+				if (!Double.isNaN(p[i]) && (best < 0 || p[i] < p[best]))
+					best = i;
+			}
+			queue = new int[safe];
+			next = 0;
+			for (int i = 0, k = 0; i < p.length && k < safe; i++) {
+				if (p[i] == 0)
+					queue[k++] = i;
+			}
+			return best;
+		}
+	}
+}
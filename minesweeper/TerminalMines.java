@@ -0,0 +1,499 @@
+package mines;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/* Plays Minesweeper in a text terminal, for headless machines reached over SSH; needs
+no JavaFX. The board is shown through a viewport the size of the terminal, so boards
+far larger than the screen can be played, and the viewport scrolls to follow the
+cursor. Every frame is compared cell by cell with the one on the screen and only the
+cells that differ are redrawn, with ANSI cursor moves, in a single write, so a move
+costs a few bytes of output whatever the size of the board.
+
+    java -cp <classes> mines.TerminalMines --rows 16 --cols 30 --mines 99
+
+Options: --rows, --cols, --mines (expert by default), --seed, and --size ROWSxCOLS to
+set the terminal size when stty cannot report it. --infinite DENSITY plays an endless
+ChunkedBoard with that share of mines instead, starting at the always safe (0, 0); a
+large empty region is revealed a step at a time between keys. --file FILE resumes a game
+saved with BoardFile, played in place on a private mapping of the file so even boards
+larger than the heap resume at once; s writes it back to FILE. Keys: arrows or h j k l move the
+cursor, H J K L or page up/down scroll a screen at a time, space or o opens, f flags,
+n starts a new game (not with --file), s saves, r redraws the whole screen after a resize, q quits. The terminal
+settings and the main screen are restored on the way out, by a shutdown hook when the
+game is ended with ctrl-C. */
+public class TerminalMines {
+	private static final String ESC = "\u001b[";
+	private static final int CELL_WIDTH = 2; // Columns of the terminal per cell, so cells look square
+	private static final int CURSOR = 1 << 4; // Marks the cell under the cursor in a frame
+	// ANSI style of each CellState code
+	private static final String[] STYLES = { "0", "34;1", "32;1", "31;1", "35;1", "33", "36", "37;1", "90", "0",
+			"30;43", "41;1" };
+	private static final String SYMBOLS = " 12345678.F*"; // Character of each CellState code
+	private static final int ESCAPE_WAIT = 25; // Milliseconds to wait for the rest of an escape sequence
+	private static final int FLOOD_STEP = 1 << 16; // Cells of an endless board revealed per frame
+	private static final int FLOOD_STEPS = 64; // Frames revealed after a key, as a region may never end
+
+	private final InputStream in;
+	private final OutputStream out;
+	private final int boardRows, boardCols, numMines;
+	private final double density; // Share of mines of the endless board, or -1 to play a MinesLogic board
+	private final int firstRow, firstCol, lastRow, lastCol; // Bounds of the board, all ints when endless
+	private long seed;
+	private Path file; // The save resumed with --file, or null
+
+	private MinesLogic board;
+	private ChunkedBoard endless; // The board instead of board when density is set
+	private MappedBoard mapped; // The board instead of board when a save is played in place
+	private String note = ""; // Shown after the status until the next key
+	private boolean placed, over;
+	private int cursorRow, cursorCol; // Cursor position on the board
+	private int top, left; // Board position of the top-left cell of the viewport
+	private int viewRows, viewCols; // Size of the viewport in cells
+	private int screenRows, screenCols; // Size of the terminal
+	private byte[] cells = new byte[0]; // The viewport read from the board for this frame
+	private int[] shown = new int[0]; // What the screen shows in each viewport cell, -1 if unknown
+	private String status = ""; // The status line on the screen
+	private final StringBuilder frame = new StringBuilder(); // Output of the frame being drawn
+	private boolean alternate; // Whether the alternate screen is shown; guarded by this
+
+	TerminalMines(InputStream in, OutputStream out, int rows, int cols, int mines, long seed) {
+		this(in, out, rows, cols, mines, -1, seed);
+	}
+
+	/*
+	 * Creates a game of an endless board with the given share of mines, or of a
+	 * rows x cols board with the given number of mines if density is -1.
+	 */
+	TerminalMines(InputStream in, OutputStream out, int rows, int cols, int mines, double density, long seed) {
+		this.in = in;
+		this.out = out;
+		this.boardRows = rows;
+		this.boardCols = cols;
+		this.numMines = mines;
+		this.density = density;
+		this.seed = seed;
+		boolean bounded = density < 0;
+		firstRow = bounded ? 0 : Integer.MIN_VALUE;
+		firstCol = bounded ? 0 : Integer.MIN_VALUE;
+		lastRow = bounded ? rows - 1 : Integer.MAX_VALUE;
+		lastCol = bounded ? cols - 1 : Integer.MAX_VALUE;
+	}
+
+	/*
+	 * Creates a game that resumes a save: played in place if its mines are placed,
+	 * otherwise copied into a MinesLogic board that places them on the first open.
+	 * saved: The save, mapped with BoardFile.resume. file: Where s writes it.
+	 */
+	TerminalMines(InputStream in, OutputStream out, MappedBoard saved, Path file) throws IOException {
+		this(in, out, saved.getHeight(), saved.getWidth(),
+				saved.isPlayable() ? saved.getNumMines() : saved.getMinesToPlace(), -1, saved.getSeed());
+		this.file = file;
+		if (saved.isPlayable()) {
+			mapped = saved;
+		} else {
+			board = saved.toMinesLogic();
+			saved.close();
+		}
+		cursorRow = boardRows / 2;
+		cursorCol = boardCols / 2;
+	}
+
+	public static void main(String[] args) throws IOException {
+		int rows = 16, cols = 30, mines = 99;
+		double density = -1;
+		long seed = System.nanoTime();
+		int[] size = null;
+		Path file = null;
+		for (int i = 0; i < args.length; i += 2) {
+			if (i + 1 == args.length)
+				throw new IllegalArgumentException("Missing value for " + args[i]);
+			String value = args[i + 1];
+			switch (args[i]) {
+			case "--rows" -> rows = Integer.parseInt(value);
+			case "--cols" -> cols = Integer.parseInt(value);
+			case "--mines" -> mines = Integer.parseInt(value);
+			case "--seed" -> seed = Long.parseLong(value);
+			case "--infinite" -> density = Double.parseDouble(value);
+			case "--file" -> file = Path.of(value);
+			case "--size" -> {
+				String[] parts = value.split("x");
+				size = new int[] { Integer.parseInt(parts[0]), Integer.parseInt(parts[1]) };
+			}
+			default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+			}
+		}
+		if (rows <= 0 || cols <= 0 || mines < 0 || mines >= (long) rows * cols)
+			throw new IllegalArgumentException("Bad board: " + rows + "x" + cols + " with " + mines + " mines");
+		if (density != -1 && !(density >= 0 && density < 1))
+			throw new IllegalArgumentException("Density must be in [0, 1): " + density);
+		InputStream keys = new BufferedInputStream(System.in);
+		OutputStream screen = new FileOutputStream(FileDescriptor.out);
+		TerminalMines game = file != null ? new TerminalMines(keys, screen, BoardFile.resume(file), file)
+				: new TerminalMines(keys, screen, rows, cols, mines, density, seed);
+		String saved = stty("-g");// Restored on the way out
+		if (saved != null)
+			stty("-icanon -echo min 1");
+		// Ctrl-C ends the JVM without running finally blocks, but it runs shutdown hooks
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			try {
+				game.leaveScreen();
+			} catch (IOException e) {
+				// The terminal is gone, nothing to restore
+			}
+			if (saved != null)
+				stty(saved);
+		}, "terminal-restore"));
+		if (size == null)
+			size = terminalSize();
+		try {
+			game.play(size[0], size[1]);
+		} finally {
+			if (saved != null)
+				stty(saved);
+		}
+	}
+
+	/* Plays until q or the end of the input. rows, cols: The terminal size. */
+	void play(int rows, int cols) throws IOException {
+		synchronized (this) {
+			write(ESC + "?1049h" + ESC + "?25l");// Alternate screen, hidden cursor
+			alternate = true;
+		}
+		try {
+			if (file == null)
+				newGame();
+			resize(rows, cols);
+			render();
+			int key;
+			while ((key = nextKey()) != 'q') {
+				if (key == -1)
+					break;
+				handle(key);
+				while (in.available() > 0 && key != 'q') {// Coalesce queued keys into one frame
+					key = readKey();
+					if (key != 'q')
+						handle(key);
+				}
+				if (key == 'q')
+					break;
+				render();
+			}
+		} finally {
+			leaveScreen();
+			if (mapped != null)
+				mapped.close();
+		}
+	}
+
+	/*
+	 * Waits for the next key, revealing a step of a pending empty region of an
+	 * endless board and drawing it each time no key is waiting, up to FLOOD_STEPS
+	 * times; the next key carries on.
+	 */
+	private int nextKey() throws IOException {
+		for (int step = 0; step < FLOOD_STEPS && endless != null && endless.isRevealing()
+				&& in.available() == 0; step++) {
+			endless.continueReveal();
+			render();
+		}
+		return readKey();
+	}
+
+	/* Shows the cursor and the main screen again, if the alternate screen is shown. */
+	synchronized void leaveScreen() throws IOException {
+		if (alternate) {
+			alternate = false;
+			write(ESC + "0m" + ESC + "?25h" + ESC + "?1049l");
+		}
+	}
+
+	private void newGame() {
+		placed = over = false;
+		if (density < 0) {
+			board = new MinesLogic(boardRows, boardCols, 0);
+			cursorRow = boardRows / 2;
+			cursorCol = boardCols / 2;
+		} else {
+			endless = new ChunkedBoard(seed, density, FLOOD_STEP, 1024);
+			cursorRow = cursorCol = 0;
+		}
+		status = "";
+		centre();
+	}
+
+	/* Scrolls the viewport so the cursor is in its middle. */
+	private void centre() {
+		top = clamp((long) cursorRow - viewRows / 2, firstRow, lastRow);
+		left = clamp((long) cursorCol - viewCols / 2, firstCol, lastCol);
+		follow();
+	}
+
+	/* Sizes the viewport for a terminal and forgets what the screen shows. */
+	private void resize(int rows, int cols) {
+		screenRows = Math.max(rows, 2);
+		screenCols = Math.max(cols, CELL_WIDTH);
+		viewRows = (int) Math.min(screenRows - 1, (long) lastRow - firstRow + 1);// The last line is the status line
+		viewCols = (int) Math.min(screenCols / CELL_WIDTH, (long) lastCol - firstCol + 1);
+		cells = new byte[viewRows * viewCols];
+		shown = new int[viewRows * viewCols];
+		Arrays.fill(shown, -1);
+		status = "";
+		frame.append(ESC).append("0m").append(ESC).append("2J");
+		centre();
+	}
+
+	/* Acts on one key. */
+	private void handle(int key) throws IOException {
+		note = "";
+		switch (key) {
+		case 'k', 'A' -> moveCursor(-1, 0);
+		case 'j', 'B' -> moveCursor(1, 0);
+		case 'l', 'C' -> moveCursor(0, 1);
+		case 'h', 'D' -> moveCursor(0, -1);
+		case 'K', 'P' -> moveCursor(-viewRows, 0);
+		case 'J', 'N' -> moveCursor(viewRows, 0);
+		case 'L' -> moveCursor(0, viewCols);
+		case 'H' -> moveCursor(0, -viewCols);
+		case ' ', 'o' -> open();
+		case 'f' -> {
+			if (over)
+				break;
+			if (endless != null)
+				endless.toggleFlag(cursorRow, cursorCol);
+			else if (mapped != null)
+				mapped.toggleFlag(cursorRow, cursorCol);
+			else
+				board.toggleFlag(cursorRow, cursorCol);
+		}
+		case 's' -> save();
+		case 'n' -> {
+			if (file != null)
+				break;
+			seed++;
+			newGame();
+			Arrays.fill(shown, -1);
+		}
+		case 'r' -> {
+			int[] size = terminalSize();
+			resize(size[0], size[1]);
+		}
+		default -> {
+		}
+		}
+	}
+
+	private void moveCursor(int rows, int cols) {
+		cursorRow = clamp((long) cursorRow + rows, firstRow, lastRow);
+		cursorCol = clamp((long) cursorCol + cols, firstCol, lastCol);
+		follow();
+	}
+
+	private static int clamp(long value, int min, int max) {
+		return (int) Math.max(min, Math.min(max, value));
+	}
+
+	/* Scrolls the viewport just enough to keep the cursor in it. */
+	private void follow() {
+		if (cursorRow < top)
+			top = cursorRow;
+		else if (cursorRow >= top + viewRows)
+			top = cursorRow - viewRows + 1;
+		if (cursorCol < left)
+			left = cursorCol;
+		else if (cursorCol >= left + viewCols)
+			left = cursorCol - viewCols + 1;
+		top = clamp(top, firstRow, lastRow - viewRows + 1);
+		left = clamp(left, firstCol, lastCol - viewCols + 1);
+	}
+
+	private void open() {
+		if (over)
+			return;
+		if (endless != null) {
+			if (!endless.open(cursorRow, cursorCol)) {
+				over = true;
+				endless.setShowAll(true);
+			}
+			return;
+		}
+		if (mapped != null) {
+			if (!mapped.open(cursorRow, cursorCol)) {
+				over = true;
+				mapped.setShowAll(true);
+			} else if (mapped.isDone()) {
+				over = true;
+			}
+			return;
+		}
+		if (!placed) {// The first open is always safe
+			new MineGenerator(seed).place(board, numMines, cursorRow, cursorCol);
+			placed = true;
+		}
+		if (!board.open(cursorRow, cursorCol)) {
+			over = true;
+			board.setShowAll(true);
+		} else if (board.isDone()) {
+			over = true;
+		}
+	}
+
+	/* Writes the game back to the file it was resumed from, if any. */
+	private void save() {
+		if (file == null)
+			return;
+		try {
+			if (mapped != null)
+				BoardFile.save(mapped, file);
+			else
+				BoardFile.save(board, seed, placed ? 0 : numMines, file);
+			note = "  saved";
+		} catch (IOException e) {
+			note = "  save failed: " + e.getMessage();
+		}
+	}
+
+	/*
+	 * Draws the frame: reads the viewport from the board, redraws the cells that
+	 * differ from the screen and the status line if it changed, and writes it all
+	 * at once.
+	 */
+	private void render() throws IOException {
+		if (endless != null)
+			endless.readRegion(top, left, viewRows, viewCols, cells, 0);
+		else if (mapped != null)
+			mapped.readRegion(top, left, viewRows, viewCols, cells, 0);
+		else
+			board.readRegion(top, left, viewRows, viewCols, cells, 0);
+		int style = -1; // The style last sent, to skip repeating it
+		for (int r = 0; r < viewRows; r++) {
+			int next = -1; // Screen column the terminal cursor is at after the last cell drawn
+			for (int c = 0; c < viewCols; c++) {
+				int k = r * viewCols + c;
+				int cell = cells[k];
+				int want = cell | (top + r == cursorRow && left + c == cursorCol ? CURSOR : 0);
+				if (want == shown[k])
+					continue;
+				shown[k] = want;
+				int column = c * CELL_WIDTH + 1;
+				if (column != next)
+					frame.append(ESC).append(r + 1).append(';').append(column).append('H');
+				if (want != style) {
+					frame.append(ESC).append("0;").append(STYLES[cell]);
+					if ((want & CURSOR) != 0)
+						frame.append(";7");// Reverse video under the cursor
+					frame.append('m');
+					style = want;
+				}
+				frame.append(' ').append(SYMBOLS.charAt(cell));
+				next = column + CELL_WIDTH;
+			}
+		}
+		String line = statusLine();
+		if (!line.equals(status)) {
+			status = line;
+			frame.append(ESC).append("0m").append(ESC).append(screenRows).append(";1H").append(ESC).append('K')
+					.append(line, 0, Math.min(line.length(), screenCols));
+		}
+		if (frame.length() > 0) {
+			write(frame.toString());
+			frame.setLength(0);
+		}
+	}
+
+	private String statusLine() {
+		if (endless != null) {
+			String state = over ? "  BOOM! n: new game" : endless.isRevealing() ? "  revealing..." : "";
+			return String.format("Opened %d  Flags %d  (%d, %d) of an endless board, %.0f%% mines%s",
+					endless.getOpenCount(), endless.getFlagsPlaced(), cursorRow, cursorCol, density * 100, state);
+		}
+		String again = file != null ? "" : " n: new game";
+		if (mapped != null) {
+			String state = !over ? "" : mapped.isDone() ? "  YOU WON!" + again : "  BOOM!" + again;
+			return String.format("Mines %d  Flags %d  Left %d  (%d, %d) of %dx%d%s%s", mapped.getNumMines(),
+					mapped.getFlagsPlaced(), mapped.getRemainingSafeCells(), cursorRow, cursorCol, boardRows,
+					boardCols, state, note);
+		}
+		int mines = placed ? board.getNumMines() : numMines;
+		String state = !over ? "" : board.isDone() ? "  YOU WON!" + again : "  BOOM!" + again;
+		return String.format("Mines %d  Flags %d  Left %d  (%d, %d) of %dx%d%s%s", mines, board.getFlagsPlaced(),
+				placed ? board.getRemainingSafeCells() : (long) boardRows * boardCols - numMines, cursorRow, cursorCol,
+				boardRows, boardCols, state, note);
+	}
+
+	/*
+	 * Reads one key, turning the escape sequences of the arrow keys into A, B, C
+	 * and D and those of page up and down into P and N. An Escape key that nothing
+	 * follows within ESCAPE_WAIT is returned as itself. Returns -1 at the end of
+	 * the input.
+	 */
+	private int readKey() throws IOException {
+		int b = in.read();
+		if (b != 0x1b)
+			return b;
+		// A terminal sends a whole sequence at once, a person pressing Escape sends just it
+		for (int waited = 0; in.available() == 0; waited++) {
+			if (waited == ESCAPE_WAIT)
+				return b;
+			try {
+				Thread.sleep(1);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return b;
+			}
+		}
+		if (in.read() != '[')
+			return 0;
+		int code = in.read();
+		if (code == '5' || code == '6') {
+			in.read();// The closing ~
+			return code == '5' ? 'P' : 'N';
+		}
+		return code;
+	}
+
+	private void write(String s) throws IOException {
+		out.write(s.getBytes(StandardCharsets.UTF_8));
+		out.flush();
+	}
+
+	/* Returns the terminal size as rows and columns, 24x80 if stty cannot tell. */
+	private static int[] terminalSize() {
+		String size = stty("size");
+		if (size != null) {
+			String[] parts = size.trim().split("\\s+");
+			if (parts.length == 2)
+				return new int[] { Integer.parseInt(parts[0]), Integer.parseInt(parts[1]) };
+		}
+		return new int[] { 24, 80 };
+	}
+
+	/*
+	 * Runs stty on the controlling terminal. Returns its output, or null if there
+	 * is no terminal or stty failed.
+	 */
+	private static String stty(String args) {
+		File tty = new File("/dev/tty");
+		if (!tty.exists())
+			return null;
+		try {
+			Process process = new ProcessBuilder("sh", "-c", "stty " + args).redirectInput(tty)
+					.redirectError(ProcessBuilder.Redirect.DISCARD).start();
+			String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+			return process.waitFor() == 0 ? output.trim() : null;
+		} catch (IOException e) {
+			return null;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		}
+	}
+}
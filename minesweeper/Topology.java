@@ -0,0 +1,209 @@
+package mines;
+
+/* Which cells count as neighbours: the cells whose mines a number counts, that an empty
+cell opens, and that the solver reasons about. A topology is a table of row and column
+offsets, one per row parity so hexagonal rows can be shifted against each other, and
+may wrap around the edges of the board. bind() turns the offsets into index deltas for
+one board size, so a cell away from the edges finds its neighbours with one addition
+each and no bounds checks; only cells within reach of an edge take the slower path.
+Numbers are kept in four bits and CellState codes above 8 mean something else, so a
+neighbourhood has at most eight cells. The order of the constants is their code in
+saved games, so new ones go at the end. */
+public enum Topology {
+	/* The classic board: the eight cells around a cell. */
+	SQUARE("Square", false, false, Offsets.SQUARE, Offsets.SQUARE),
+	/* The square board wrapped around both edges, so every cell has eight neighbours. */
+	TORUS("Torus", true, false, Offsets.SQUARE, Offsets.SQUARE),
+	/* Hexagonal cells in rows, every odd row shifted half a cell right. */
+	HEX("Hexagonal", false, true, Offsets.HEX_EVEN, Offsets.HEX_ODD),
+	/* The hexagonal board wrapped around both edges; needs an even number of rows. */
+	HEX_TORUS("Hexagonal torus", true, true, Offsets.HEX_EVEN, Offsets.HEX_ODD),
+	/* The four cells in a straight line next to a cell. */
+	CROSS("Cross, radius 1", false, false, Offsets.CROSS_1, Offsets.CROSS_1),
+	/* The eight cells in a straight line up to two cells away. */
+	WIDE_CROSS("Cross, radius 2", false, false, Offsets.CROSS_2, Offsets.CROSS_2);
+
+	/* Row and column offset pairs of the neighbours, shared by the constants. */
+	private static final class Offsets {
+		static final int[] SQUARE = { -1, -1, -1, 0, -1, 1, 0, -1, 0, 1, 1, -1, 1, 0, 1, 1 };
+		// Odd rows are shifted half a cell to the right, so they touch the cell above-right
+		static final int[] HEX_EVEN = { -1, -1, -1, 0, 0, -1, 0, 1, 1, -1, 1, 0 };
+		static final int[] HEX_ODD = { -1, 0, -1, 1, 0, -1, 0, 1, 1, 0, 1, 1 };
+		static final int[] CROSS_1 = { -1, 0, 0, -1, 0, 1, 1, 0 };
+		static final int[] CROSS_2 = { -2, 0, -1, 0, 0, -2, 0, -1, 0, 1, 0, 2, 1, 0, 2, 0 };
+	}
+
+	private static final Topology[] VALUES = values(); // By code
+
+	private final String label;
+	private final boolean wrap; // Whether neighbours past an edge come from the opposite edge
+	private final boolean hex; // Whether odd rows are drawn shifted half a cell
+	private final int[][] offsets; // Row and column offset pairs of the neighbours, for even and odd rows
+	private final int reach; // Largest offset in any direction
+
+	Topology(String label, boolean wrap, boolean hex, int[] even, int[] odd) {
+		this.label = label;
+		this.wrap = wrap;
+		this.hex = hex;
+		this.offsets = new int[][] { even, odd };
+		int reach = 0;
+		for (int d : even)
+			reach = Math.max(reach, Math.abs(d));
+		this.reach = reach;
+	}
+
+	/*
+	 * Returns the neighbourhood of the cells in a straight line up to radius cells
+	 * away horizontally and vertically. radius: 1 or 2; larger crosses would have
+	 * more than eight neighbours.
+	 */
+	public static Topology cross(int radius) {
+		return switch (radius) {
+		case 1 -> CROSS;
+		case 2 -> WIDE_CROSS;
+		default -> throw new IllegalArgumentException("Cross radius must be 1 or 2: " + radius);
+		};
+	}
+
+	/*
+	 * Returns the topology stored under a code. code: As returned by getCode().
+	 * Throws IllegalArgumentException for an unknown code.
+	 */
+	public static Topology fromCode(int code) {
+		if (code < 0 || code >= VALUES.length)
+			throw new IllegalArgumentException("Unknown topology " + code);
+		return VALUES[code];
+	}
+
+	/* Returns the number that identifies the topology in saved games. */
+	public int getCode() {
+		return ordinal();
+	}
+
+	/* Returns the name of the topology as shown in the game's menu. */
+	public String getName() {
+		return label;
+	}
+
+	/* Returns true if the board wraps around its edges. */
+	public boolean isWrapped() {
+		return wrap;
+	}
+
+	/* Returns true if odd rows are shifted half a cell right, as hexagonal cells are drawn. */
+	public boolean isHex() {
+		return hex;
+	}
+
+	/*
+	 * Returns true for the classic square board, which MinesLogic and RegionLabels
+	 * handle with row-by-row algorithms of their own.
+	 */
+	public boolean isSquare() {
+		return this == SQUARE;
+	}
+
+	/* Returns the largest number of neighbours a cell can have. */
+	public int maxNeighbors() {
+		return offsets[0].length / 2;
+	}
+
+	/*
+	 * Binds the topology to a board size. height, width: The board size. Throws
+	 * IllegalArgumentException if a wrapped board is too small to wrap without
+	 * counting a cell twice, or a hexagonal torus has an odd number of rows.
+	 */
+	public Grid bind(int height, int width) {
+		if (wrap && (height < 2 * reach + 1 || width < 2 * reach + 1))
+			throw new IllegalArgumentException(
+					label + " needs at least " + (2 * reach + 1) + " rows and columns: " + height + "x" + width);
+		if (wrap && hex && height % 2 != 0)
+			throw new IllegalArgumentException(label + " needs an even number of rows: " + height);
+		return new Grid(this, height, width);
+	}
+
+	@Override
+	public String toString() {
+		return label;
+	}
+
+	/* A topology bound to a board size, which lists the neighbours of cells by index. */
+	public static final class Grid {
+		private final Topology topology;
+		private final int height, width;
+		private final int reach;
+		private final int[][] deltas; // Index offsets of the neighbours, for even and odd rows
+
+		private Grid(Topology topology, int height, int width) {
+			this.topology = topology;
+			this.height = height;
+			this.width = width;
+			this.reach = topology.reach;
+			deltas = new int[2][];
+			for (int parity = 0; parity < 2; parity++) {
+				int[] o = topology.offsets[parity];
+				deltas[parity] = new int[o.length / 2];
+				for (int k = 0; k < deltas[parity].length; k++)
+					deltas[parity][k] = o[2 * k] * width + o[2 * k + 1];
+			}
+		}
+
+		public Topology getTopology() {
+			return topology;
+		}
+
+		/*
+		 * Returns true if every neighbour of a cell is on the board without
+		 * wrapping, so index + deltas(row)[k] are its neighbours. row, col: The
+		 * position of the cell.
+		 */
+		boolean isInterior(int row, int col) {
+			return row >= reach && row < height - reach && col >= reach && col < width - reach;
+		}
+
+		/*
+		 * Returns the index offsets of the neighbours of the cells of a row that are
+		 * in the interior. Shared, not to be modified. row: The row index.
+		 */
+		int[] deltas(int row) {
+			return deltas[row & 1];
+		}
+
+		/*
+		 * Lists the neighbours of a cell. row, col: The position of the cell. out:
+		 * Receives the neighbour indices, at least maxNeighbors() entries. Returns
+		 * the number of neighbours.
+		 */
+		public int neighbors(int row, int col, int[] out) {
+			int index = row * width + col;
+			int[] d = deltas[row & 1];
+			if (isInterior(row, col)) {
+				for (int k = 0; k < d.length; k++)
+					out[k] = index + d[k];
+				return d.length;
+			}
+			int[] o = topology.offsets[row & 1];
+			int n = 0;
+			for (int k = 0; k < o.length; k += 2) {
+				int r = row + o[k], c = col + o[k + 1];
+				if (topology.wrap) {
+					r = Math.floorMod(r, height);
+					c = Math.floorMod(c, width);
+				} else if (r < 0 || c < 0 || r >= height || c >= width) {
+					continue;
+				}
+				out[n++] = r * width + c;
+			}
+			return n;
+		}
+
+		/*
+		 * Lists the neighbours of a cell. index: The row-major index of the cell.
+		 * out: Receives the neighbour indices. Returns the number of neighbours.
+		 */
+		public int neighbors(int index, int[] out) {
+			int row = index / width;
+			return neighbors(row, index - row * width, out);
+		}
+	}
+}
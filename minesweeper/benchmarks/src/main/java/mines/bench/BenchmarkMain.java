@@ -0,0 +1,41 @@
+package mines.bench;
+
+import java.io.File;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/* Runs the benchmarks with the usual JMH command line, adding two defaults: the GC
+profiler, which reports allocation rates next to the timings, and JSON results in
+results/<timestamp>.json, so runs can be compared with each other. Any -prof, -rf or
+-rff option given on the command line replaces the matching default. */
+public class BenchmarkMain {
+	private static final DateTimeFormatter STAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+	public static void main(String[] args) throws Exception {
+		CommandLineOptions cli = new CommandLineOptions(args);
+		if (cli.shouldHelp() || cli.shouldList() || cli.shouldListWithParams() || cli.shouldListProfilers()
+				|| cli.shouldListResultFormats()) {
+			org.openjdk.jmh.Main.main(args);// Nothing to run, let JMH answer
+			return;
+		}
+		ChainedOptionsBuilder options = new OptionsBuilder().parent(cli);
+		if (cli.getProfilers().isEmpty())
+			options.addProfiler(GCProfiler.class);
+		if (!cli.getResultFormat().hasValue())
+			options.resultFormat(ResultFormatType.JSON);
+		if (!cli.getResult().hasValue()) {
+			File dir = new File("results");
+			dir.mkdirs();
+			String ext = cli.getResultFormat().orElse(ResultFormatType.JSON).toString().toLowerCase();
+			options.result(new File(dir, LocalDateTime.now().format(STAMP) + "." + ext).getPath());
+		}
+		new Runner(options.build()).run();
+	}
+}
@@ -0,0 +1,95 @@
+package mines.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import mines.ChunkedBoard;
+
+/* The endless ChunkedBoard: a flood of floodLimit cells from the safe start of an
+empty board, which builds every chunk it crosses, single opens scattered far apart,
+each of which builds a chunk and pushes older ones out of the cache, and reading a
+terminal-sized viewport of chunks already built. The opens start every invocation from
+a new board, built outside the timed part. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChunkedBoardBenchmark {
+	private static final int SCATTERED = 256; // Far apart cells opened per invocation
+	private static final int VIEW_ROWS = 60, VIEW_COLS = 120; // A large terminal, as TerminalMines reads it
+
+	/* A board without mines, so an open floods until the limit. */
+	@State(Scope.Thread)
+	public static class Empty {
+		@Param({ "4096", "262144" })
+		int floodLimit; // Most cells one open reveals
+
+		ChunkedBoard board;
+
+		@Setup(Level.Invocation)
+		public void setup() {
+			board = new ChunkedBoard(MinesLogicBenchmark.SEED, 0, floodLimit, 1024);
+		}
+	}
+
+	/* A board with mines, as played. */
+	@State(Scope.Thread)
+	public static class Mined {
+		@Param({ "0.12", "0.20" })
+		double density; // Share of the cells that hold a mine
+
+		ChunkedBoard board;
+
+		@Setup(Level.Invocation)
+		public void setup() {
+			board = new ChunkedBoard(MinesLogicBenchmark.SEED, density);
+		}
+	}
+
+	/* A board opened at the start, whose viewport chunks are built. */
+	@State(Scope.Thread)
+	public static class Opened {
+		ChunkedBoard board;
+		final byte[] view = new byte[VIEW_ROWS * VIEW_COLS];
+
+		@Setup(Level.Trial)
+		public void setup() {
+			board = new ChunkedBoard(MinesLogicBenchmark.SEED, 0.15);
+			board.open(0, 0);
+		}
+	}
+
+	@Benchmark
+	public ChunkedBoard openFlood(Empty state) {
+		state.board.open(0, 0);
+		return state.board;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SCATTERED)
+	public ChunkedBoard openScattered(Mined state) {
+		for (int i = 1; i <= SCATTERED; i++)
+			state.board.open(i * 1_000_003, i * -999_983);// Different chunks, far from each other
+		return state.board;
+	}
+
+	@Benchmark
+	public byte[] readViewport(Opened state) {
+		state.board.readRegion(-VIEW_ROWS / 2, -VIEW_COLS / 2, VIEW_ROWS, VIEW_COLS, state.view, 0);
+		return state.view;
+	}
+}
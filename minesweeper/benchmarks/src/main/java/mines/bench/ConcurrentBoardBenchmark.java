@@ -0,0 +1,134 @@
+package mines.bench;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import mines.ConcurrentBoard;
+import mines.MinesLogic;
+
+/* Contention on a ConcurrentBoard shared by all benchmark threads. Every thread opens
+and flags random cells, either in its own band of rows (far apart, so the threads
+should not slow each other down) or anywhere on the board (so they meet). The spectate
+group adds a reader taking snapshots next to the writers. Every iteration is one
+timed batch of MOVES moves per thread on a freshly built board, so a board gets at most
+MOVES moves from each thread and never fills up with opened cells; the score is the
+time one thread takes for its batch, which stays the same as threads are added if
+they do not slow each other down.
+
+JMH runs every benchmark with one thread count at a time (-t); main() runs the writer
+benchmarks from 1 thread up to one per core, so the time per batch at each thread count
+can be compared (the spectate group sets its own threads):
+
+    java -cp benchmarks.jar mines.bench.ConcurrentBoardBenchmark */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 10, batchSize = ConcurrentBoardBenchmark.MOVES)
+@Measurement(iterations = 20, batchSize = ConcurrentBoardBenchmark.MOVES)
+@Fork(1)
+public class ConcurrentBoardBenchmark {
+	static final int MOVES = 4096; // Moves per thread on one board, well below its number of cells
+
+	/* The board shared by every thread. */
+	@State(Scope.Benchmark)
+	public static class Shared {
+		@Param({ "1024" })
+		int side; // Rows and columns of the board
+
+		@Param({ "0.16" })
+		double density; // Share of the cells that hold a mine
+
+		ConcurrentBoard board;
+
+		@Setup(Level.Iteration)
+		public void setup() {
+			MinesLogic base = MinesLogicBenchmark.newBoard(side, density);
+			board = new ConcurrentBoard(base);
+		}
+	}
+
+	/* The random moves and the band of rows of one thread. */
+	@State(Scope.Thread)
+	public static class Player {
+		SplittableRandom random;
+		int firstRow, rows; // The band of rows of this thread
+
+		@Setup(Level.Trial)
+		public void setup(Shared shared, ThreadParams thread) {
+			random = new SplittableRandom(MinesLogicBenchmark.SEED + thread.getThreadIndex());
+			int count = thread.getThreadCount();
+			firstRow = shared.side * thread.getThreadIndex() / count;
+			rows = Math.max(1, shared.side * (thread.getThreadIndex() + 1) / count - firstRow);
+		}
+	}
+
+	/* The last snapshot of the reader, whose unchanged bands the next one shares. */
+	@State(Scope.Thread)
+	public static class Spectator {
+		ConcurrentBoard.Snapshot last;
+
+		@Setup(Level.Iteration)
+		public void setup() {
+			last = null;// The board is new
+		}
+	}
+
+	@Benchmark
+	public boolean openFarApart(Shared shared, Player player) {
+		return shared.board.open(player.firstRow + player.random.nextInt(player.rows),
+				player.random.nextInt(shared.side));
+	}
+
+	@Benchmark
+	public boolean openAnywhere(Shared shared, Player player) {
+		return shared.board.open(player.random.nextInt(shared.side), player.random.nextInt(shared.side));
+	}
+
+	@Benchmark
+	public void toggleFlagFarApart(Shared shared, Player player) {
+		shared.board.toggleFlag(player.firstRow + player.random.nextInt(player.rows),
+				player.random.nextInt(shared.side));
+	}
+
+	@Benchmark
+	@Group("spectate")
+	@GroupThreads(3)
+	public boolean spectateWriter(Shared shared, Player player) {
+		return shared.board.open(player.random.nextInt(shared.side), player.random.nextInt(shared.side));
+	}
+
+	@Benchmark
+	@Group("spectate")
+	@GroupThreads(1)
+	public ConcurrentBoard.Snapshot spectateReader(Shared shared, Spectator spectator) {
+		return spectator.last = shared.board.snapshot(spectator.last);
+	}
+
+	/* Runs the writer benchmarks with 1, 2, 4, ... threads up to one per core. */
+	public static void main(String[] args) throws Exception {
+		int cores = Runtime.getRuntime().availableProcessors();
+		for (int threads = 1;; threads = Math.min(threads * 2, cores)) {
+			new Runner(new OptionsBuilder().include(ConcurrentBoardBenchmark.class.getSimpleName() + ".*FarApart|"
+					+ ConcurrentBoardBenchmark.class.getSimpleName() + ".openAnywhere").threads(threads).build()).run();
+			if (threads == cores)
+				break;
+		}
+	}
+}
@@ -0,0 +1,66 @@
+package mines.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import mines.MineGenerator;
+import mines.MinesLogic;
+
+/* Mine placement on an empty board, the work Controller.placeRandomMines used to do.
+1% density takes the sparse path of MineGenerator, the others the dense path. The
+empty board is built outside the timed part, but the GC profiler counts it too.
+placeAndLabel adds the region labelling that open() can use, which callers opt into. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MineGeneratorBenchmark {
+	@Param({ "16", "256", "2048" })
+	int side; // Rows and columns of the board
+
+	@Param({ "0.01", "0.12", "0.20" })
+	double density; // Share of the cells that hold a mine
+
+	private final MineGenerator generator = new MineGenerator(MinesLogicBenchmark.SEED);
+	private MinesLogic board; // Empty board, built before every invocation
+	private int numMines;
+
+	@Setup(Level.Invocation)
+	public void setup() {
+		board = new MinesLogic(side, side, 0);
+		numMines = (int) (density * side * side);
+	}
+
+	@Benchmark
+	public MinesLogic place() {
+		generator.place(board, numMines);
+		return board;
+	}
+
+	@Benchmark
+	public MinesLogic placeSafeFirst() {
+		generator.place(board, numMines, side / 2, side / 2);
+		return board;
+	}
+
+	@Benchmark
+	public MinesLogic placeAndLabel() {
+		generator.place(board, numMines);
+		board.labelRegions(null);
+		return board;
+	}
+}
@@ -0,0 +1,127 @@
+package mines.bench;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import mines.MineGenerator;
+import mines.MinesLogic;
+
+/* The single-cell operations and whole-board reads of MinesLogic, on a square board
+with mines placed and nothing opened yet. Operations that change the board undo
+themselves (a mine is added and removed, a flag toggled twice over the cycle), so
+every call sees the same board. Cells are taken from a fixed random sample. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MinesLogicBenchmark {
+	static final long SEED = 42; // Every run benchmarks the same boards
+	private static final int SAMPLE = 1024; // Cells in the sample, a power of two
+	private static final int MASK = SAMPLE - 1;
+
+	@Param({ "16", "256", "2048" })
+	int side; // Rows and columns of the board
+
+	@Param({ "0.12", "0.20" })
+	double density; // Share of the cells that hold a mine
+
+	private MinesLogic board; // The board under test
+	private int[] rows, cols; // Sample of cells without a mine
+	private int next; // Position in the sample
+	private byte[] row; // Receives the codes of one row
+
+	@Setup
+	public void setup() {
+		board = newBoard(side, density);
+		row = new byte[side];
+		rows = new int[SAMPLE];
+		cols = new int[SAMPLE];
+		SplittableRandom rand = new SplittableRandom(SEED);
+		for (int i = 0; i < SAMPLE; i++) {
+			do {
+				rows[i] = rand.nextInt(side);
+				cols[i] = rand.nextInt(side);
+			} while (isMine(board, rows[i], cols[i]));
+		}
+	}
+
+	/*
+	 * Builds a board with mines at the given density, always the same for the same
+	 * arguments.
+	 */
+	static MinesLogic newBoard(int side, double density) {
+		MinesLogic board = new MinesLogic(side, side, 0);
+		new MineGenerator(SEED).place(board, (int) (density * side * side));
+		return board;
+	}
+
+	/* Returns true if a cell holds a mine, without changing what the board shows. */
+	static boolean isMine(MinesLogic board, int row, int col) {
+		board.setShowAll(true);
+		boolean mine = board.get(row, col).equals("X");
+		board.setShowAll(false);
+		return mine;
+	}
+
+	@Benchmark
+	public MinesLogic construct() {
+		return new MinesLogic(side, side, 0);
+	}
+
+	@Benchmark
+	public boolean addMine() {
+		int i = next++ & MASK;
+		boolean added = board.addMine(rows[i], cols[i]);
+		board.removeMine(rows[i], cols[i]);// Keep the board unchanged for the next call
+		return added;
+	}
+
+	@Benchmark
+	public MinesLogic toggleFlag() {
+		int i = next++ & MASK;
+		board.toggleFlag(rows[i], cols[i]);// Each cell is toggled back a full cycle later
+		return board;
+	}
+
+	@Benchmark
+	public boolean isDone() {
+		return board.isDone();
+	}
+
+	@Benchmark
+	public String get() {
+		int i = next++ & MASK;
+		return board.get(rows[i], cols[i]);
+	}
+
+	@Benchmark
+	public byte state() {
+		int i = next++ & MASK;
+		return board.state(rows[i], cols[i]);
+	}
+
+	@Benchmark
+	public byte[] readRow() {
+		board.readRow(rows[next++ & MASK], row, 0);
+		return row;
+	}
+
+	@Benchmark
+	public String toStringBoard() {
+		return board.toString();
+	}
+}
@@ -0,0 +1,104 @@
+package mines.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import mines.MineGenerator;
+import mines.MinesLogic;
+
+/* MinesLogic.open, which changes the board for good, so every invocation gets a fresh
+copy of the same board. Building it is not timed, but the GC profiler still counts
+its allocations. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OpenBenchmark {
+	private static final int SINGLE_CELLS = 256; // Numbered cells opened per invocation
+
+	/* A board whose mines were placed around the first click, so it opens a zero region. */
+	@State(Scope.Thread)
+	public static class FirstClick {
+		@Param({ "16", "256", "2048" })
+		int side; // Rows and columns of the board
+
+		@Param({ "0.0", "0.12", "0.20" })
+		double density; // Share of the cells that hold a mine; 0 opens the whole board
+
+		@Param({ "false", "true" })
+		boolean labelled; // Whether the regions are labelled, so the open reveals a cell list
+
+		MinesLogic board;
+
+		@Setup(Level.Invocation)
+		public void setup() {
+			board = new MinesLogic(side, side, 0);
+			new MineGenerator(MinesLogicBenchmark.SEED).place(board, (int) (density * side * side), side / 2,
+					side / 2);
+			if (labelled)
+				board.labelRegions(null);
+		}
+	}
+
+	/* A board and a sample of its numbered cells, each of which opens just itself. */
+	@State(Scope.Thread)
+	public static class Numbered {
+		@Param({ "16", "256", "2048" })
+		int side; // Rows and columns of the board
+
+		@Param({ "0.12", "0.20" })
+		double density; // Share of the cells that hold a mine
+
+		MinesLogic board;
+		int[] rows = new int[SINGLE_CELLS], cols = new int[SINGLE_CELLS]; // Cells to open
+
+		@Setup(Level.Trial)
+		public void sample() {
+			// The board is rebuilt from the same seed, so the sample stays valid
+			MinesLogic sample = MinesLogicBenchmark.newBoard(side, density);
+			int n = 0;
+			for (int i = 0; n < SINGLE_CELLS; i++) {
+				int r = (int) ((i * 0x9E3779B97F4A7C15L >>> 33) % side), c = i % side;
+				if (!MinesLogicBenchmark.isMine(sample, r, c) && sample.getAdjacentMines(r, c) > 0) {
+					rows[n] = r;
+					cols[n++] = c;
+				}
+			}
+		}
+
+		@Setup(Level.Invocation)
+		public void setup() {
+			board = MinesLogicBenchmark.newBoard(side, density);
+		}
+	}
+
+	@Benchmark
+	public boolean openZeroRegion(FirstClick state) {
+		return state.board.open(state.side / 2, state.side / 2);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SINGLE_CELLS)
+	public int openSingleCells(Numbered state) {
+		int opened = 0;
+		for (int i = 0; i < SINGLE_CELLS; i++) {
+			if (state.board.open(state.rows[i], state.cols[i]))
+				opened++;
+		}
+		return opened;
+	}
+}
@@ -0,0 +1,117 @@
+package mines.bench;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import mines.MineGenerator;
+import mines.MinesLogic;
+import mines.Topology;
+
+/* Neighbour iteration, counting and flood fill on every Topology. handSquareNeighbors
+walks the eight neighbours with the clamped loops MinesLogic used before topologies,
+as the baseline that gridNeighbors on the square board has to match. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TopologyBenchmark {
+	private static final int SAMPLE = 1024; // Cells in the sample, a power of two
+	private static final int MASK = SAMPLE - 1;
+
+	/* A board with mines and a sample of cells without one. */
+	@State(Scope.Thread)
+	public static class Board {
+		@Param({ "0", "1", "2", "4" })
+		int topology; // Topology code
+
+		@Param({ "256" })
+		int side; // Rows and columns of the board
+
+		MinesLogic board;
+		Topology.Grid grid;
+		int[] rows, cols; // Sample of cells without a mine
+		int[] around; // Receives the neighbours of one cell
+		int next; // Position in the sample
+
+		@Setup
+		public void setup() {
+			board = new MinesLogic(side, side, 0, Topology.fromCode(topology));
+			new MineGenerator(MinesLogicBenchmark.SEED).place(board, side * side / 6);
+			grid = board.getGrid();
+			around = new int[8];
+			rows = new int[SAMPLE];
+			cols = new int[SAMPLE];
+			SplittableRandom rand = new SplittableRandom(MinesLogicBenchmark.SEED);
+			for (int i = 0; i < SAMPLE; i++) {
+				do {
+					rows[i] = rand.nextInt(side);
+					cols[i] = rand.nextInt(side);
+				} while (MinesLogicBenchmark.isMine(board, rows[i], cols[i]));
+			}
+		}
+	}
+
+	/* An empty board but for one mine in a corner, so the first open floods it all. */
+	@State(Scope.Thread)
+	public static class Empty {
+		@Param({ "0", "1", "2", "4" })
+		int topology; // Topology code
+
+		@Param({ "512" })
+		int side; // Rows and columns of the board
+
+		MinesLogic board;
+
+		@Setup(Level.Invocation)
+		public void setup() {
+			board = new MinesLogic(side, side, 0, Topology.fromCode(topology));
+			board.addMine(side - 1, side - 1);
+		}
+	}
+
+	@Benchmark
+	public int gridNeighbors(Board b) {
+		int i = b.next++ & MASK;
+		return b.grid.neighbors(b.rows[i], b.cols[i], b.around);
+	}
+
+	@Benchmark
+	public int handSquareNeighbors(Board b) {
+		int i = b.next++ & MASK;
+		int row = b.rows[i], col = b.cols[i], side = b.side, n = 0;
+		for (int r = Math.max(row - 1, 0); r <= Math.min(row + 1, side - 1); r++) {
+			for (int c = Math.max(col - 1, 0); c <= Math.min(col + 1, side - 1); c++) {
+				if (r != row || c != col)
+					b.around[n++] = r * side + c;
+			}
+		}
+		return n;
+	}
+
+	@Benchmark
+	public boolean addMine(Board b) {
+		int i = b.next++ & MASK;
+		boolean added = b.board.addMine(b.rows[i], b.cols[i]);
+		b.board.removeMine(b.rows[i], b.cols[i]);// Keep the board unchanged for the next call
+		return added;
+	}
+
+	@Benchmark
+	public boolean floodEmpty(Empty e) {
+		return e.board.open(0, 0);
+	}
+}
@@ -0,0 +1,100 @@
+package mines;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+/* Saved games read back cell for cell, both mapped in place and loaded onto the heap,
+and resumed games played in place until they are saved again. */
+class BoardFileTest {
+	@TempDir
+	Path dir;
+
+	@ParameterizedTest
+	@CsvSource({ "1, 1", "3, 5", "9, 9", "16, 30", "101, 77", "1000, 999" })
+	void mapsAndLoadsWhatWasSaved(int height, int width) throws IOException {
+		Random random = new Random(3);
+		MinesLogic board = new MinesLogic(height, width, 0);
+		new MineGenerator(5).place(board, height * width / 6);
+		for (int move = 0; move < 20; move++) {
+			int row = random.nextInt(height), col = random.nextInt(width);
+			if (random.nextBoolean())
+				board.toggleFlag(row, col);
+			else
+				board.open(row, col);
+		}
+		Path file = dir.resolve("board.mines");
+		BoardFile.save(board, 5, 0, file);
+		assertEquals(BoardFile.HEADER + (height * width + 1) / 2, Files.size(file));
+		try (MappedBoard mapped = BoardFile.map(file)) {
+			assertEquals(5, mapped.getSeed());
+			assertEquals(board.getNumMines(), mapped.getNumMines());
+			assertEquals(board.getFlagsPlaced(), mapped.getFlagsPlaced());
+			for (int row = 0; row < height; row++) {
+				for (int col = 0; col < width; col++)
+					assertEquals(board.state(row, col), mapped.state(row, col), "cell " + row + ", " + col);
+			}
+		}
+		MinesLogic loaded = BoardFile.load(file);
+		assertEquals(board.toString(), loaded.toString());
+		assertEquals(board.getRemainingSafeCells(), loaded.getRemainingSafeCells());
+		assertEquals(board.getFlagsPlaced(), loaded.getFlagsPlaced());
+		assertTrue(loaded.checkCounts());
+		board.setShowAll(true);
+		loaded.setShowAll(true);
+		assertEquals(board.toString(), loaded.toString());
+	}
+
+	@ParameterizedTest
+	@CsvSource({ "9, 9", "101, 77", "300, 500" })
+	void playsResumedGamesInPlace(int height, int width) throws IOException {
+		Random random = new Random(7);
+		MinesLogic board = new MinesLogic(height, width, 0);
+		new MineGenerator(9).place(board, height * width / 7);
+		Path file = dir.resolve("board.mines");
+		BoardFile.save(board, 9, 0, file);
+		byte[] before = Files.readAllBytes(file);
+		try (MappedBoard resumed = BoardFile.resume(file)) {
+			assertTrue(resumed.isPlayable());
+			for (int move = 0; move < 60; move++) {
+				int row = random.nextInt(height), col = random.nextInt(width);
+				if (random.nextInt(3) == 0) {
+					board.toggleFlag(row, col);
+					resumed.toggleFlag(row, col);
+				} else if (!board.isMine(row * width + col)) {
+					assertEquals(board.open(row, col), resumed.open(row, col));
+				}
+				assertEquals(board.getRemainingSafeCells(), resumed.getRemainingSafeCells(), "after move " + move);
+				assertEquals(board.getFlagsPlaced(), resumed.getFlagsPlaced());
+			}
+			byte[] expected = new byte[height * width], read = new byte[height * width];
+			board.readRegion(0, 0, height, width, expected, 0);
+			resumed.readRegion(0, 0, height, width, read, 0);
+			assertArrayEquals(expected, read);
+			assertArrayEquals(before, Files.readAllBytes(file), "the file changed before save");
+			BoardFile.save(resumed, file);
+		}
+		MinesLogic loaded = BoardFile.load(file);
+		assertEquals(board.toString(), loaded.toString());
+		assertEquals(board.getRemainingSafeCells(), loaded.getRemainingSafeCells());
+		assertEquals(board.getFlagsPlaced(), loaded.getFlagsPlaced());
+	}
+
+	@Test
+	void rejectsWhatIsNotASave() throws IOException {
+		Path file = dir.resolve("not.mines");
+		Files.write(file, new byte[BoardFile.HEADER + 8]);
+		assertThrows(IOException.class, () -> BoardFile.load(file));
+	}
+}
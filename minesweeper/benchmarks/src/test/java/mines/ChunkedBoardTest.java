@@ -0,0 +1,65 @@
+package mines;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/* The endless board: a flood cut short by the flood limit must end as the whole
+flood would once continueReveal() has run, and chunks dropped from the cache must
+come back the same. */
+class ChunkedBoardTest {
+	private static final int SIDE = 400; // Rows and columns of the area compared around (0, 0)
+
+	@Test
+	void continuedFloodMatchesWholeFlood() {
+		for (double density : new double[] { 0.12, 0.15, 0.2 }) {
+			ChunkedBoard whole = new ChunkedBoard(1, density, Integer.MAX_VALUE, 1024);
+			ChunkedBoard stepped = new ChunkedBoard(1, density, 100, 1024);
+			assertTrue(whole.open(0, 0));
+			assertFalse(whole.isRevealing());
+			assertTrue(stepped.open(0, 0));
+			int steps = 0;
+			while (stepped.isRevealing()) {
+				assertTrue(stepped.continueReveal() <= 100 + 8);
+				steps++;
+			}
+			assertEquals(whole.getOpenCount(), stepped.getOpenCount(), "density " + density);
+			assertTrue(steps > 0 || whole.getOpenCount() <= 100, "density " + density);
+			assertArrayEquals(area(whole), area(stepped), "density " + density);
+			assertNoCoveredNextToEmpty(stepped);
+		}
+	}
+
+	@Test
+	void droppedChunksComeBackTheSame() {
+		ChunkedBoard cached = new ChunkedBoard(7, 0.15, 1 << 20, 1), roomy = new ChunkedBoard(7, 0.15, 1 << 20, 4096);
+		cached.setShowAll(true);
+		roomy.setShowAll(true);
+		assertArrayEquals(area(roomy), area(cached));
+		assertTrue(cached.getLoadedChunks() <= 1);
+	}
+
+	/* Reads the SIDE x SIDE cells around (0, 0). */
+	private static byte[] area(ChunkedBoard board) {
+		byte[] cells = new byte[SIDE * SIDE];
+		board.readRegion(-SIDE / 2, -SIDE / 2, SIDE, SIDE, cells, 0);
+		return cells;
+	}
+
+	/* Checks that every opened empty cell of the compared area has its neighbours opened. */
+	private static void assertNoCoveredNextToEmpty(ChunkedBoard board) {
+		for (int row = -SIDE / 2; row < SIDE / 2; row++) {
+			for (int col = -SIDE / 2; col < SIDE / 2; col++) {
+				if (board.state(row, col) != 0)
+					continue;
+				for (int r = row - 1; r <= row + 1; r++) {
+					for (int c = col - 1; c <= col + 1; c++)
+						assertFalse(CellState.isCovered(board.state(r, c)), "covered " + r + ", " + c);
+				}
+			}
+		}
+	}
+}
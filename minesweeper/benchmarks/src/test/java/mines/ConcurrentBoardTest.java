@@ -0,0 +1,87 @@
+package mines;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/* Threads opening cells of one shared board at once must leave the board a single
+thread would, and no snapshot taken meanwhile may show an opened empty cell next to
+a covered one, which would be half of a flood fill. */
+class ConcurrentBoardTest {
+	private static final int THREADS = 4;
+	private static final int MOVES = 3000; // Opens per thread
+
+	@ParameterizedTest
+	@ValueSource(ints = { 0, 1, 2, 3, 4, 5 })
+	void concurrentOpensMatchSequentialOnes(int game) throws InterruptedException {
+		int side = 200 + game * 10, mines = (int) (side * side * (game % 2 == 0 ? 0.05 : 0.15));
+		MinesLogic board = new MinesLogic(side, side, 0);
+		new MineGenerator(game).place(board, mines);
+		if (game % 3 != 0)
+			board.labelRegions(null);// Otherwise flood-filled
+		ConcurrentBoard shared = new ConcurrentBoard(board);
+		SplittableRandom random = new SplittableRandom(game);
+		int[][] moves = new int[THREADS][MOVES];
+		for (int[] thread : moves) {
+			for (int m = 0; m < MOVES; m++)
+				thread[m] = random.nextInt(side * side);
+		}
+		AtomicBoolean stop = new AtomicBoolean();
+		AtomicInteger halfFloods = new AtomicInteger();
+		Thread spectator = new Thread(() -> {
+			ConcurrentBoard.Snapshot previous = null;
+			while (!stop.get()) {
+				ConcurrentBoard.Snapshot snapshot = shared.snapshot(previous);
+				previous = snapshot;
+				halfFloods.addAndGet(halfFloods(snapshot, side));
+			}
+		});
+		spectator.start();
+		Thread[] players = new Thread[THREADS];
+		for (int t = 0; t < THREADS; t++) {
+			int[] own = moves[t];
+			players[t] = new Thread(() -> {
+				for (int cell : own)
+					shared.open(cell / side, cell % side);
+			});
+			players[t].start();
+		}
+		for (Thread player : players)
+			player.join();
+		stop.set(true);
+		spectator.join();
+		assertEquals(0, halfFloods.get(), "snapshots with half a flood fill");
+
+		for (int[] thread : moves) {
+			for (int cell : thread)
+				board.open(cell / side, cell % side);
+		}
+		for (int row = 0; row < side; row++) {
+			for (int col = 0; col < side; col++)
+				assertEquals(board.state(row, col), shared.state(row, col), "cell " + row + ", " + col);
+		}
+		assertEquals(side * side - board.getNumMines() - board.getRemainingSafeCells(), shared.getOpenCount());
+		assertEquals(shared.getOpenCount(), shared.snapshot().getOpenCount());
+	}
+
+	/* Counts the opened empty cells of a snapshot with a covered neighbour. */
+	private static int halfFloods(ConcurrentBoard.Snapshot snapshot, int side) {
+		int found = 0;
+		for (int row = 0; row < side; row++) {
+			for (int col = 0; col < side; col++) {
+				if (snapshot.state(row, col, false) != 0)
+					continue;
+				for (int r = Math.max(0, row - 1); r <= Math.min(side - 1, row + 1); r++) {
+					for (int c = Math.max(0, col - 1); c <= Math.min(side - 1, col + 1); c++)
+						found += CellState.isCovered(snapshot.state(r, c, false)) ? 1 : 0;
+				}
+			}
+		}
+		return found;
+	}
+}
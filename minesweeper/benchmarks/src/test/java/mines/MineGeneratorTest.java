@@ -0,0 +1,90 @@
+package mines;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/* Mine placement: the exact number of mines, free first-click areas, boards that
+depend on the seed only, every board equally likely, and small boards labelled so
+their empty regions open from the labels just as a flood opens them. */
+class MineGeneratorTest {
+	private static final int SIDE = 300;
+
+	@ParameterizedTest
+	@ValueSource(ints = { 0, 1, 900, 2812, 2813, 18000, 80000, SIDE * SIDE - 10, SIDE * SIDE - 9 })
+	void placesExactlyTheMinesAskedFor(int mines) {
+		MinesLogic board = new MinesLogic(SIDE, SIDE, 0);
+		assertEquals(mines, new MineGenerator(mines).place(board, mines, SIDE / 2, SIDE / 2));
+		assertEquals(mines, board.getNumMines());
+		int placed = 0;
+		for (int index = 0; index < SIDE * SIDE; index++)
+			placed += board.isMine(index) ? 1 : 0;
+		assertEquals(mines, placed);
+		assertTrue(board.checkCounts());
+		assertFalse(board.isMine(SIDE / 2 * SIDE + SIDE / 2), "first click");
+		if (mines <= SIDE * SIDE - 9) {
+			for (int row = SIDE / 2 - 1; row <= SIDE / 2 + 1; row++) {
+				for (int col = SIDE / 2 - 1; col <= SIDE / 2 + 1; col++)
+					assertFalse(board.isMine(row * SIDE + col), "around the first click");
+			}
+		}
+	}
+
+	@Test
+	void labelsSmallBoardsOnly() {
+		MinesLogic labelled = new MinesLogic(SIDE, SIDE, 0), flooded = new MinesLogic(SIDE, SIDE, 0);
+		new MineGenerator(8).place(labelled, 9000, 0, 0);
+		new MineGenerator(8, 0).place(flooded, 9000, 0, 0);
+		assertNotNull(labelled.getRegionLabels());
+		assertNull(flooded.getRegionLabels());
+		for (int index = 0; index < SIDE * SIDE; index += 97) {
+			if (!labelled.isMine(index)) {
+				labelled.open(index / SIDE, index % SIDE);
+				flooded.open(index / SIDE, index % SIDE);
+			}
+		}
+		assertEquals(flooded.toString(), labelled.toString());
+		assertEquals(flooded.getRemainingSafeCells(), labelled.getRemainingSafeCells());
+		MinesLogic large = new MinesLogic(1000, 1000, 0);
+		new MineGenerator(8).place(large, 1000);
+		assertNull(large.getRegionLabels());
+	}
+
+	@Test
+	void sameSeedSameBoard() {
+		for (int mines : new int[] { 500, 20000 }) {
+			MinesLogic first = new MinesLogic(SIDE, SIDE, 0), second = new MinesLogic(SIDE, SIDE, 0);
+			new MineGenerator(42).place(first, mines, 3, 4);
+			new MineGenerator(42).place(second, mines, 3, 4);
+			first.setShowAll(true);
+			second.setShowAll(true);
+			assertEquals(first.toString(), second.toString());
+		}
+	}
+
+	@Test
+	void everyBoardIsEquallyLikely() {
+		int runs = 70_000; // 1000 per board on average
+		Map<Integer, Integer> boards = new HashMap<>();
+		for (int seed = 0; seed < runs; seed++) {
+			MinesLogic board = new MinesLogic(2, 4, 0);
+			new MineGenerator(seed).place(board, 4);
+			int mask = 0;
+			for (int index = 0; index < 8; index++)
+				mask |= board.isMine(index) ? 1 << index : 0;
+			boards.merge(mask, 1, Integer::sum);
+		}
+		assertEquals(70, boards.size(), "boards of 2x4 with 4 mines");
+		for (int count : boards.values())
+			assertTrue(Math.abs(count - 1000) < 150, "board drawn " + count + " times out of about 1000");
+	}
+}
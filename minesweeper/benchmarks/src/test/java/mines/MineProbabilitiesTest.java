@@ -0,0 +1,84 @@
+package mines;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/* The exact mine probabilities, compared with brute force: on boards small enough,
+every placement of the mines is tried and the ones that agree with the visible
+numbers are counted, cell by cell. */
+class MineProbabilitiesTest {
+	private static final int BOARDS = 400; // Random boards of 3x3 to 5x5 cells
+	private static final double TOLERANCE = 1e-9;
+
+	@Test
+	void matchesEnumerationOfEveryPlacement() {
+		Random random = new Random(5);
+		MineProbabilities hints = new MineProbabilities();
+		for (int game = 0; game < BOARDS; game++) {
+			int height = 3 + random.nextInt(3), width = 3 + random.nextInt(3), cells = height * width;
+			int mines = 1 + random.nextInt(cells / 3);
+			MinesLogic board = new MinesLogic(height, width, 0);
+			new MineGenerator(game).place(board, mines);
+			for (int k = 0; k < 3; k++) {
+				int index = random.nextInt(cells);
+				if (!board.isMine(index))
+					board.open(index / width, index % width);
+			}
+			double[] probability = hints.compute(board);
+			double[] expected = bruteForce(board, mines);
+			for (int index = 0; index < cells; index++) {
+				byte state = board.state(index / width, index % width);
+				if (CellState.isCovered(state))
+					assertEquals(expected[index], probability[index], TOLERANCE, "cell " + index + " of\n" + board);
+				else
+					assertTrue(Double.isNaN(probability[index]), "opened cell " + index);
+			}
+		}
+	}
+
+	/*
+	 * Returns, for every cell, the share of the placements of the given number of
+	 * mines on covered cells that agree with every opened number.
+	 */
+	private static double[] bruteForce(MinesLogic board, int mines) {
+		int height = board.getHeight(), width = board.getWidth(), cells = height * width;
+		double[] count = new double[cells];
+		double total = 0;
+		for (int mask = 0; mask < 1 << cells; mask++) {
+			if (Integer.bitCount(mask) == mines && agrees(board, mask)) {
+				total++;
+				for (int index = 0; index < cells; index++)
+					count[index] += mask >> index & 1;
+			}
+		}
+		for (int index = 0; index < cells; index++)
+			count[index] /= total;
+		return count;
+	}
+
+	/* Returns true if a placement, one bit per cell, agrees with the opened cells of the board. */
+	private static boolean agrees(MinesLogic board, int mask) {
+		int height = board.getHeight(), width = board.getWidth();
+		for (int row = 0; row < height; row++) {
+			for (int col = 0; col < width; col++) {
+				byte state = board.state(row, col);
+				if (CellState.isCovered(state))
+					continue;
+				if ((mask >> (row * width + col) & 1) != 0)
+					return false;
+				int around = 0;
+				for (int r = Math.max(0, row - 1); r <= Math.min(height - 1, row + 1); r++) {
+					for (int c = Math.max(0, col - 1); c <= Math.min(width - 1, col + 1); c++)
+						around += mask >> (r * width + c) & 1;
+				}
+				if (around != state)
+					return false;
+			}
+		}
+		return true;
+	}
+}
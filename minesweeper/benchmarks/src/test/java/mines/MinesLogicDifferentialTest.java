@@ -0,0 +1,83 @@
+package mines;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+/* Plays the same random games on MinesLogic and on the original engine and compares
+everything a player can see after every move: the text of the board, the result of
+each open, the end of the game, the safe cells left and the primitive cell states. */
+class MinesLogicDifferentialTest {
+	private static final int MOVES = 40; // Moves per game
+
+	@ParameterizedTest
+	@CsvSource({ "3000, 12, 3", "500, 60, 12" })
+	void playsLikeTheOriginalEngine(int games, int maxSide, int cellsPerMine) {
+		Random random = new Random(1);
+		for (int game = 0; game < games; game++) {
+			int height = 1 + random.nextInt(maxSide), width = 1 + random.nextInt(maxSide);
+			int mines = random.nextInt(height * width / cellsPerMine + 1);
+			OriginalMinesLogic original = new OriginalMinesLogic(height, width, 0);
+			MinesLogic board = new MinesLogic(height, width, 0);
+			boolean[] mine = new boolean[height * width];
+			for (int i = 0; i < mines; i++) {
+				int row = random.nextInt(height), col = random.nextInt(width);
+				assertEquals(!mine[row * width + col], board.addMine(row, col), "addMine in game " + game);
+				if (!mine[row * width + col])
+					original.addMine(row, col);// Which counts a second mine on the same cell again
+				mine[row * width + col] = true;
+			}
+			for (int move = 0; move < MOVES; move++) {
+				int row = random.nextInt(height), col = random.nextInt(width);
+				if (random.nextInt(3) == 0) {
+					original.toggleFlag(row, col);
+					board.toggleFlag(row, col);
+				} else {
+					assertEquals(original.open(row, col), board.open(row, col), "open in game " + game);
+				}
+				if (random.nextInt(30) == 0) {
+					boolean showAll = random.nextBoolean();
+					original.setShowAll(showAll);
+					board.setShowAll(showAll);
+				}
+				String shown = board.toString();
+				assertEquals(original.toString(), shown, "board of game " + game);
+				assertEquals(original.isDone(), board.isDone(), "end of game " + game);
+				assertStatesMatchText(board, shown);
+			}
+			board.setShowAll(false);
+			String hidden = board.toString();
+			long covered = hidden.chars().filter(ch -> ch == '.' || ch == 'F').count();
+			assertEquals(covered - board.getNumMines(), board.getRemainingSafeCells(), "safe cells left in game " + game);
+		}
+	}
+
+	/* Checks state(), readRow() and a readRegion() inside the board against the text of the board. */
+	private static void assertStatesMatchText(MinesLogic board, String text) {
+		int height = board.getHeight(), width = board.getWidth();
+		byte[] rows = new byte[height * width];
+		for (int row = 0; row < height; row++) {
+			board.readRow(row, rows, row * width);
+			for (int col = 0; col < width; col++) {
+				byte state = board.state(row, col);
+				assertEquals(text.charAt(row * (width + 1) + col), CellState.toChar(state));
+				assertEquals(board.get(row, col), CellState.toText(state));
+			}
+		}
+		byte[] states = new byte[height * width];
+		for (int index = 0; index < states.length; index++)
+			states[index] = board.state(index / width, index % width);
+		assertArrayEquals(states, rows);
+		int rowCount = (height + 1) / 2, colCount = (width + 1) / 2, top = height / 4, left = width / 4;
+		byte[] region = new byte[rowCount * colCount];
+		board.readRegion(top, left, rowCount, colCount, region, 0);
+		for (int row = 0; row < rowCount; row++) {
+			for (int col = 0; col < colCount; col++)
+				assertEquals(states[(top + row) * width + left + col], region[row * colCount + col]);
+		}
+	}
+}
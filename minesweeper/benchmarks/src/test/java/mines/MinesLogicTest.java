@@ -0,0 +1,85 @@
+package mines;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/* The adjacent-mine counts MinesLogic keeps up to date as mines are added, removed
+and moved, checked against a full recount with checkCounts() on every topology. */
+class MinesLogicTest {
+	private static final int ROWS = 12, COLS = 14; // Fits every topology, wrapped ones included
+	private static final int STEPS = 2000; // Random mine changes per topology
+
+	@ParameterizedTest
+	@EnumSource(Topology.class)
+	void countsFollowAddRemoveAndMove(Topology topology) {
+		MinesLogic board = new MinesLogic(ROWS, COLS, 0, topology);
+		boolean[] mine = new boolean[ROWS * COLS]; // What the board should hold
+		int mines = 0;
+		SplittableRandom random = new SplittableRandom(topology.ordinal());
+		for (int step = 0; step < STEPS; step++) {
+			int from = random.nextInt(mine.length), to = random.nextInt(mine.length);
+			switch (random.nextInt(3)) {
+			case 0 -> {
+				assertEquals(!mine[from], board.addMine(from / COLS, from % COLS), "addMine " + from);
+				mines += mine[from] ? 0 : 1;
+				mine[from] = true;
+			}
+			case 1 -> {
+				assertEquals(mine[from], board.removeMine(from / COLS, from % COLS), "removeMine " + from);
+				mines -= mine[from] ? 1 : 0;
+				mine[from] = false;
+			}
+			default -> {
+				boolean moves = mine[from] && !mine[to];
+				assertEquals(moves, board.moveMine(from / COLS, from % COLS, to / COLS, to % COLS),
+						"moveMine " + from + " to " + to);
+				if (moves) {
+					mine[from] = false;
+					mine[to] = true;
+				}
+			}
+			}
+			assertTrue(board.checkCounts(), "counts after step " + step);
+			assertEquals(mines, board.getNumMines());
+		}
+	}
+
+	@ParameterizedTest
+	@EnumSource(Topology.class)
+	void openingKeepsCountsAndFloodsWholeRegions(Topology topology) {
+		MinesLogic board = new MinesLogic(ROWS, COLS, 0, topology);
+		new MineGenerator(7).place(board, ROWS * COLS / 8);
+		SplittableRandom random = new SplittableRandom(7);
+		int[] around = new int[topology.maxNeighbors()];
+		for (int step = 0; step < 40; step++) {
+			int index = random.nextInt(ROWS * COLS);
+			assertEquals(!board.isMine(index), board.open(index / COLS, index % COLS));
+			assertTrue(board.checkCounts(), "counts after opening " + index);
+			for (int cell = 0; cell < ROWS * COLS; cell++) {
+				if (!board.isOpen(cell) || board.adjacentMines(cell) != 0)
+					continue;
+				for (int k = 0, n = board.getGrid().neighbors(cell, around); k < n; k++)
+					assertTrue(board.isOpen(around[k]), "neighbour " + around[k] + " of opened empty cell " + cell);
+			}
+		}
+	}
+
+	@Test
+	void checkCountsNoticesStaleCounts() {
+		MinesLogic board = new MinesLogic(ROWS, COLS, 0);
+		board.markMine(5 * COLS + 5, 1);// Sets the mine bit only
+		assertFalse(board.checkCounts());
+		board.recountMines();
+		assertTrue(board.checkCounts());
+		assertEquals(8, board.getAdjacentMines(5, 6) + board.getAdjacentMines(4, 4) + board.getAdjacentMines(6, 5)
+				+ board.getAdjacentMines(5, 4) + board.getAdjacentMines(4, 5) + board.getAdjacentMines(4, 6)
+				+ board.getAdjacentMines(6, 4) + board.getAdjacentMines(6, 6));
+	}
+}
@@ -0,0 +1,39 @@
+package mines;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/* The solver never calls a mine safe or a safe cell a mine, checked by playing expert
+boards with its safe cells only until the board is done or the solver is stuck. */
+class MinesSolverTest {
+	private static final int GAMES = 300;
+	private static final int ROWS = 16, COLS = 30, MINES = 99; // Expert
+
+	@Test
+	void makesNoWrongDeduction() {
+		MinesSolver solver = new MinesSolver();
+		int solved = 0;
+		for (int game = 0; game < GAMES; game++) {
+			MinesLogic board = new MinesLogic(ROWS, COLS, 0);
+			new MineGenerator(game).place(board, MINES, ROWS / 2, COLS / 2);
+			board.open(ROWS / 2, COLS / 2);
+			while (!board.isDone()) {
+				MinesSolver.Result result = solver.solve(board);
+				for (int cell : result.getMineCells())
+					assertTrue(board.isMine(cell), "called mine in game " + game + ": " + cell);
+				int[] safe = result.getSafeCells();
+				for (int cell : safe)
+					assertFalse(board.isMine(cell), "called safe in game " + game + ": " + cell);
+				if (safe.length == 0)
+					break;// A guess would be needed
+				for (int cell : safe)
+					board.open(cell / COLS, cell % COLS);
+			}
+			if (board.isDone())
+				solved++;
+		}
+		assertTrue(solved > 0, "no expert board solved by logic alone");
+	}
+}
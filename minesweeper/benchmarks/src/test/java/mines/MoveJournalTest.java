@@ -0,0 +1,132 @@
+package mines;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/* Random games of opens, flags, undos and redos through a MoveJournal: after every
+step the live board must equal a replay of the applied moves, a saved and loaded
+journal must rebuild the same board, and undoing everything must give the start.
+Floods past the cells the journal keeps are undone by replaying, and corrupt files
+are refused with an IOException. */
+class MoveJournalTest {
+	private static final int GAMES = 300;
+	private static final int STEPS = 60; // Moves per game
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void undoRedoAndReplayAgree() throws IOException {
+		Random random = new Random(9);
+		for (int game = 0; game < GAMES; game++) {
+			int height = 1 + random.nextInt(20), width = 1 + random.nextInt(20);
+			int mines = random.nextInt(height * width / 4 + 1);
+			boolean safeFirst = random.nextBoolean();
+			MinesLogic board = new MinesLogic(height, width, 0);
+			if (!safeFirst)
+				new MineGenerator(game).place(board, mines);
+			MoveJournal journal = MoveJournal.attach(board, game, safeFirst ? mines : 0);
+			for (int step = 0; step < STEPS; step++) {
+				int move = random.nextInt(10);
+				if (move < 5)
+					journal.open(random.nextInt(height), random.nextInt(width));
+				else if (move < 7)
+					journal.toggleFlag(random.nextInt(height), random.nextInt(width));
+				else if (move < 9)
+					journal.undo();
+				else
+					journal.redo();
+				assertTrue(board.checkCounts(), "counts in game " + game);
+				MinesLogic replayed = journal.replay(journal.getPosition());
+				assertEquals(board.toString(), replayed.toString(), "replay of game " + game + " step " + step);
+				assertEquals(board.getFlagsPlaced(), replayed.getFlagsPlaced());
+				if (replayed.getNumMines() > 0)// The replay places first-click mines only once a cell is opened
+					assertEquals(snapshot(board), snapshot(replayed), "mines of game " + game + " step " + step);
+			}
+			Path file = dir.resolve("game" + game + ".mj");
+			journal.save(file);
+			MoveJournal loaded = MoveJournal.load(file);
+			assertEquals(snapshot(board), snapshot(loaded.getBoard()), "loaded game " + game);
+			while (loaded.undo())
+				;
+			assertEquals(loaded.replay(0).toString(), loaded.getBoard().toString(), "undone game " + game);
+		}
+	}
+
+	@Test
+	void undoesFloodsWhoseCellsWereForgotten() {
+		int size = 2100; // Over 4M cells, more than the journal keeps
+		MinesLogic board = new MinesLogic(size, size, 0);
+		new MineGenerator(4).place(board, 200);
+		MoveJournal journal = MoveJournal.attach(board, 4, 0);
+		Random random = new Random(4);
+		for (int move = 0; move < 12; move++) {
+			int row = random.nextInt(size), col = random.nextInt(size);
+			if (move % 3 == 2)
+				journal.toggleFlag(row, col);
+			else if (!board.isMine(row * size + col))
+				journal.open(row, col);
+		}
+		String end = board.toString();
+		while (journal.canUndo()) {
+			assertTrue(journal.undo());
+			assertEquals(journal.replay(journal.getPosition()).toString(), board.toString(),
+					"after undo to " + journal.getPosition());
+		}
+		assertEquals(0, journal.getPosition());
+		while (journal.redo())
+			;
+		assertEquals(end, board.toString());
+	}
+
+	@Test
+	void refusesCorruptJournals() throws IOException {
+		MinesLogic board = new MinesLogic(9, 9, 0);
+		MoveJournal journal = MoveJournal.attach(board, 1, 10);
+		journal.open(4, 4);
+		journal.toggleFlag(0, 0);
+		Path file = dir.resolve("game.mj");
+		journal.save(file);
+		byte[] good = Files.readAllBytes(file);
+		assertEquals(board.toString(), MoveJournal.load(file).getBoard().toString());
+		corrupt(file, good, 6, (short) 0xFF01);// Topology code 255
+		assertThrows(IOException.class, () -> MoveJournal.load(file));
+		corrupt(file, good, 32, Integer.MAX_VALUE);// More moves than the file holds
+		assertThrows(IOException.class, () -> MoveJournal.load(file));
+		corrupt(file, good, 32, -1);
+		assertThrows(IOException.class, () -> MoveJournal.load(file));
+		corrupt(file, good, 36, 81);// A cell off the board
+		assertThrows(IOException.class, () -> MoveJournal.load(file));
+		Files.write(file, new byte[10]);
+		assertThrows(IOException.class, () -> MoveJournal.load(file));
+	}
+
+	/* Writes a copy of a journal with a short or an int replaced at an offset. */
+	private static void corrupt(Path file, byte[] good, int offset, Number value) throws IOException {
+		ByteBuffer bytes = ByteBuffer.wrap(good.clone());
+		if (value instanceof Short s)
+			bytes.putShort(offset, s);
+		else
+			bytes.putInt(offset, value.intValue());
+		Files.write(file, bytes.array());
+	}
+
+	/* Returns the board as the player sees it followed by where its mines are. */
+	private static String snapshot(MinesLogic board) {
+		String seen = board.toString() + board.getRemainingSafeCells() + "/" + board.getNumMines();
+		board.setShowAll(true);
+		String all = board.toString();
+		board.setShowAll(false);
+		return seen + all;
+	}
+}
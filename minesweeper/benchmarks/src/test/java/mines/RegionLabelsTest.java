@@ -0,0 +1,38 @@
+package mines;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+/* Opening cells through the region labels must give the same board as the scanline
+flood fill, and labelling in parallel strips must find the same regions as labelling
+on one thread. */
+class RegionLabelsTest {
+	private static final int OPENS = 200;
+
+	@ParameterizedTest
+	@CsvSource({ "1, 1, 0", "1, 40, 3", "40, 1, 3", "30, 50, 100", "200, 300, 3000", "700, 500, 42000" })
+	void labelledOpensMatchFloodFill(int height, int width, int mines) {
+		MinesLogic labelled = new MinesLogic(height, width, 0), flooded = new MinesLogic(height, width, 0);
+		new MineGenerator(mines).place(labelled, mines);
+		new MineGenerator(mines).place(flooded, mines);
+		RegionLabels labels = labelled.labelRegions(null);
+		assertNotNull(labelled.getRegionLabels());
+		RegionLabels parallel = RegionLabels.compute(flooded, ForkJoinPool.commonPool());
+		assertEquals(labels.getRegionCount(), parallel.getRegionCount());
+		assertEquals(labels.getThreeBV(), parallel.getThreeBV());
+		assertEquals(labels.getLargestRegion(), parallel.getLargestRegion());
+		SplittableRandom random = new SplittableRandom(mines);
+		for (int k = 0; k < OPENS; k++) {
+			int row = random.nextInt(height), col = random.nextInt(width);
+			assertEquals(flooded.open(row, col), labelled.open(row, col));
+		}
+		assertEquals(flooded.toString(), labelled.toString());
+		assertEquals(flooded.getRemainingSafeCells(), labelled.getRemainingSafeCells());
+	}
+}